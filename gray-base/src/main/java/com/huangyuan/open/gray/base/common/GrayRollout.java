@@ -0,0 +1,77 @@
+package com.huangyuan.open.gray.base.common;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * 按比例灰度企业（一致性哈希）
+ *
+ * 企业的桶号 = murmur3_32(盐 + ":" + 企业账号)按无符号数对10000取模（按UTF-16字符计算哈希），桶号小于阈值的企业为灰度企业：
+ *  （1）不需要保存企业列表，分组只有阈值和盐两个配置
+ *  （2）阈值调大时，原来的灰度企业仍然是灰度企业，只增加新的企业；换一个盐会重新打散全部企业
+ * 盐为空时使用分组id，配置服务和gray-core使用同一个实现，判断结果一致
+ */
+public final class GrayRollout {
+
+    /**
+     * 桶的个数，阈值的单位是万分之一
+     */
+    public static final int BUCKETS = 10000;
+
+    private static final HashFunction MURMUR3 = Hashing.murmur3_32();
+
+    private GrayRollout() {
+    }
+
+    /**
+     * 企业的桶号
+     *
+     * @param fsEa 企业账号
+     * @param salt 盐
+     * @return 0 ~ 9999
+     */
+    public static int bucket(String fsEa, String salt) {
+        int hash = MURMUR3.newHasher()
+                .putUnencodedChars(salt)
+                .putChar(':')
+                .putUnencodedChars(fsEa)
+                .hash().asInt();
+        return (int) ((hash & 0xFFFFFFFFL) % BUCKETS);
+    }
+
+    /**
+     * 判断企业是否在灰度比例内
+     *
+     * @param fsEa      企业账号
+     * @param salt      盐，使用saltOf得到的值
+     * @param threshold 阈值（万分之一），0表示不按比例灰度，10000表示全部企业
+     * @return true-灰度企业
+     */
+    public static boolean contains(String fsEa, String salt, int threshold) {
+        if ((threshold <= 0) || (fsEa == null)) {
+            return false;
+        }
+        return (threshold >= BUCKETS) || (bucket(fsEa, salt) < threshold);
+    }
+
+    /**
+     * 分组实际使用的盐：配置了盐时使用配置的盐，否则使用分组id
+     *
+     * @param groupId 分组id
+     * @param salt    配置的盐，可以为空
+     * @return 盐
+     */
+    public static String saltOf(Long groupId, String salt) {
+        return (salt == null) || salt.trim().isEmpty() ? String.valueOf(groupId) : salt;
+    }
+
+    /**
+     * 阈值是否合法，为null时表示不修改
+     *
+     * @param threshold 阈值（万分之一）
+     * @return true-合法
+     */
+    public static boolean isValidThreshold(Integer threshold) {
+        return (threshold == null) || ((threshold >= 0) && (threshold <= BUCKETS));
+    }
+}
@@ -0,0 +1,453 @@
+package com.huangyuan.open.gray.base.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 灰度机器匹配器（不可变）
+ *
+ * 支持的规则：
+ *  （1）all：全部机器
+ *  （2）单个ip：10.0.0.1、fe80::1
+ *  （3）CIDR网段：10.0.0.0/8、fd00::/8
+ * 规则编译成二叉前缀树（IPv4、IPv6各一棵），地址按位从高到低查找，
+ * 匹配的耗时只与地址位数有关，与规则数量无关。匹配过程不创建对象，可以被多个线程同时访问
+ */
+public final class IpRangeMatcher {
+
+    public static final String ALL = "all";
+
+    private static final int IPV4_BITS = 32;
+
+    private static final int IPV6_BITS = 128;
+
+    private static final IpRangeMatcher EMPTY = new IpRangeMatcher(false, new Trie(IPV4_BITS), new Trie(IPV6_BITS),
+            Collections.<String>emptyList());
+
+    /**
+     * 解析IPv6地址用的临时空间，避免每次匹配都创建数组
+     */
+    private static final ThreadLocal<long[]> IPV6_BUFFER = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    private final boolean matchAll;
+
+    private final Trie ipv4;
+
+    private final Trie ipv6;
+
+    private final List<String> invalidRules;
+
+    private IpRangeMatcher(boolean matchAll, Trie ipv4, Trie ipv6, List<String> invalidRules) {
+        this.matchAll = matchAll;
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+        this.invalidRules = invalidRules;
+    }
+
+    /**
+     * 编译规则，无法识别的规则会被忽略，可以通过getInvalidRules查看
+     *
+     * @param rules 规则列表，可以为null
+     * @return IpRangeMatcher
+     */
+    public static IpRangeMatcher compile(Collection<String> rules) {
+        if ((rules == null) || rules.isEmpty()) {
+            return EMPTY;
+        }
+
+        boolean matchAll = false;
+        Trie ipv4 = new Trie(IPV4_BITS);
+        Trie ipv6 = new Trie(IPV6_BITS);
+        List<String> invalidRules = new ArrayList<>(0);
+        long[] address = new long[2];
+
+        for (String rule : rules) {
+            if (rule == null) {
+                continue;
+            }
+            String value = rule.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (ALL.equalsIgnoreCase(value)) {
+                matchAll = true;
+                continue;
+            }
+
+            int prefixLength = parseRule(value, address);
+            if (prefixLength < 0) {
+                invalidRules.add(rule);
+            } else if (value.indexOf(':') >= 0) {
+                ipv6.insert(address[0], address[1], prefixLength);
+            } else {
+                ipv4.insert(0L, address[1], prefixLength);
+            }
+        }
+
+        ipv4.trim();
+        ipv6.trim();
+        return new IpRangeMatcher(matchAll, ipv4, ipv6, Collections.unmodifiableList(invalidRules));
+    }
+
+    /**
+     * 判断规则是否可以识别
+     *
+     * @param rule 规则
+     * @return true-可以识别
+     */
+    public static boolean isValidRule(String rule) {
+        if (rule == null) {
+            return false;
+        }
+        String value = rule.trim();
+        return ALL.equalsIgnoreCase(value) || (parseRule(value, new long[2]) >= 0);
+    }
+
+    /**
+     * 判断该机器是否命中规则（包括all）
+     *
+     * @param ip 机器ip
+     * @return true-命中
+     */
+    public boolean matches(String ip) {
+        return matchAll || matchesAddress(ip);
+    }
+
+    /**
+     * 判断该机器是否命中具体的ip或网段，不考虑all
+     *
+     * @param ip 机器ip
+     * @return true-命中
+     */
+    public boolean matchesAddress(String ip) {
+        if (ip == null) {
+            return false;
+        }
+
+        if (ip.indexOf(':') >= 0) {
+            if (ipv6.isEmpty()) {
+                return false;
+            }
+            long[] address = IPV6_BUFFER.get();
+            return parseIpv6(ip, 0, ip.length(), address) && ipv6.contains(address[0], address[1]);
+        }
+
+        if (ipv4.isEmpty()) {
+            return false;
+        }
+        long address = parseIpv4(ip, 0, ip.length());
+        return (address >= 0) && ipv4.contains(0L, address);
+    }
+
+    public boolean isMatchAll() {
+        return matchAll;
+    }
+
+    /**
+     * 没有任何规则
+     */
+    public boolean isEmpty() {
+        return !matchAll && ipv4.isEmpty() && ipv6.isEmpty();
+    }
+
+    public List<String> getInvalidRules() {
+        return invalidRules;
+    }
+
+    /**
+     * 解析一条ip或网段规则
+     *
+     * @return 前缀长度，无法识别时返回-1；地址写入address（IPv4只使用address[1]）
+     */
+    private static int parseRule(String rule, long[] address) {
+        int slash = rule.indexOf('/');
+        int end = slash < 0 ? rule.length() : slash;
+        boolean v6 = rule.indexOf(':') >= 0;
+        int bits = v6 ? IPV6_BITS : IPV4_BITS;
+
+        int prefixLength = bits;
+        if (slash >= 0) {
+            prefixLength = parsePrefixLength(rule, slash + 1, rule.length(), bits);
+            if (prefixLength < 0) {
+                return -1;
+            }
+        }
+
+        if (v6) {
+            return parseIpv6(rule, 0, end, address) ? prefixLength : -1;
+        }
+
+        long ipv4 = parseIpv4(rule, 0, end);
+        if (ipv4 < 0) {
+            return -1;
+        }
+        address[0] = 0L;
+        address[1] = ipv4;
+        return prefixLength;
+    }
+
+    private static int parsePrefixLength(String s, int from, int to, int bits) {
+        if ((from >= to) || (to - from > 3)) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > bits ? -1 : value;
+    }
+
+    /**
+     * 解析IPv4地址
+     *
+     * @return 地址（低32位），无法识别时返回-1
+     */
+    private static long parseIpv4(String s, int from, int to) {
+        long address = 0L;
+        int octets = 0;
+        int i = from;
+        while (octets < 4) {
+            int value = 0;
+            int digits = 0;
+            while ((i < to) && (s.charAt(i) != '.')) {
+                char c = s.charAt(i);
+                if ((c < '0') || (c > '9') || (++digits > 3)) {
+                    return -1L;
+                }
+                value = value * 10 + (c - '0');
+                i++;
+            }
+            if ((digits == 0) || (value > 255)) {
+                return -1L;
+            }
+            address = (address << 8) | value;
+            octets++;
+
+            if (i == to) {
+                break;
+            }
+            // 跳过'.'
+            i++;
+        }
+        return (octets == 4) && (i == to) ? address : -1L;
+    }
+
+    /**
+     * 解析IPv6地址，支持::缩写、末尾嵌入IPv4、%区域标识
+     *
+     * @param address 输出：address[0]为高64位，address[1]为低64位
+     * @return 能否识别
+     */
+    private static boolean parseIpv6(String s, int from, int to, long[] address) {
+        int zone = s.indexOf('%', from);
+        if ((zone >= 0) && (zone < to)) {
+            to = zone;
+        }
+        if (from >= to) {
+            return false;
+        }
+
+        // ::之前的部分、::之后的部分分别累加，最后再把前半部分移到高位
+        long headHi = 0L;
+        long headLo = 0L;
+        long tailHi = 0L;
+        long tailLo = 0L;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = from;
+        if (s.charAt(i) == ':') {
+            if ((i + 1 >= to) || (s.charAt(i + 1) != ':')) {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+
+        while (i < to) {
+            int start = i;
+            int value = 0;
+            int digits = 0;
+            while ((i < to) && (s.charAt(i) != ':') && (s.charAt(i) != '.')) {
+                int digit = Character.digit(s.charAt(i), 16);
+                if ((digit < 0) || (++digits > 4)) {
+                    return false;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+
+            if ((i < to) && (s.charAt(i) == '.')) {
+                // 末尾嵌入的IPv4，占两组
+                long ipv4 = parseIpv4(s, start, to);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                if (compressed) {
+                    tailHi = (tailHi << 32) | (tailLo >>> 32);
+                    tailLo = (tailLo << 32) | ipv4;
+                    tailGroups += 2;
+                } else {
+                    headHi = (headHi << 32) | (headLo >>> 32);
+                    headLo = (headLo << 32) | ipv4;
+                    headGroups += 2;
+                }
+                i = to;
+                break;
+            }
+
+            if (digits == 0) {
+                return false;
+            }
+            if (compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | value;
+                tailGroups++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | value;
+                headGroups++;
+            }
+            if (headGroups + tailGroups > 8) {
+                return false;
+            }
+
+            if (i == to) {
+                break;
+            }
+            // 跳过':'
+            i++;
+            if ((i < to) && (s.charAt(i) == ':')) {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            } else if (i == to) {
+                return false;
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if ((groups > 8) || (compressed ? (groups > 7) : (groups != 8))) {
+            return false;
+        }
+
+        // 前半部分左移到高位
+        int shift = (8 - headGroups) * 16;
+        if (shift >= 128) {
+            headHi = 0L;
+            headLo = 0L;
+        } else if (shift >= 64) {
+            headHi = headLo << (shift - 64);
+            headLo = 0L;
+        } else if (shift > 0) {
+            headHi = (headHi << shift) | (headLo >>> (64 - shift));
+            headLo = headLo << shift;
+        }
+
+        address[0] = headHi | tailHi;
+        address[1] = headLo | tailLo;
+        return true;
+    }
+
+    /**
+     * 二叉前缀树，节点保存在数组中，0号节点为根节点（子节点下标为0表示没有子节点）
+     */
+    private static final class Trie {
+
+        private final int bits;
+
+        private int[] zero = new int[16];
+
+        private int[] one = new int[16];
+
+        private boolean[] terminal = new boolean[16];
+
+        private int size = 1;
+
+        Trie(int bits) {
+            this.bits = bits;
+        }
+
+        void insert(long hi, long lo, int prefixLength) {
+            int node = 0;
+            for (int index = 0; index < prefixLength; index++) {
+                if (terminal[node]) {
+                    // 已经被更短的网段覆盖
+                    return;
+                }
+                // newNode可能扩容数组，先取得新节点再写入
+                if (bit(hi, lo, index) == 0) {
+                    if (zero[node] == 0) {
+                        int child = newNode();
+                        zero[node] = child;
+                    }
+                    node = zero[node];
+                } else {
+                    if (one[node] == 0) {
+                        int child = newNode();
+                        one[node] = child;
+                    }
+                    node = one[node];
+                }
+            }
+            terminal[node] = true;
+        }
+
+        boolean contains(long hi, long lo) {
+            int node = 0;
+            for (int index = 0; index < bits; index++) {
+                if (terminal[node]) {
+                    return true;
+                }
+                node = bit(hi, lo, index) == 0 ? zero[node] : one[node];
+                if (node == 0) {
+                    return false;
+                }
+            }
+            return terminal[node];
+        }
+
+        boolean isEmpty() {
+            return size == 1 && !terminal[0];
+        }
+
+        void trim() {
+            zero = Arrays.copyOf(zero, size);
+            one = Arrays.copyOf(one, size);
+            terminal = Arrays.copyOf(terminal, size);
+        }
+
+        /**
+         * 第index位（从最高位开始），IPv4地址只使用lo的低32位
+         */
+        private int bit(long hi, long lo, int index) {
+            int position = bits - 1 - index;
+            return (int) (position < 64 ? (lo >>> position) & 1L : (hi >>> (position - 64)) & 1L);
+        }
+
+        private int newNode() {
+            if (size == zero.length) {
+                int capacity = size << 1;
+                zero = Arrays.copyOf(zero, capacity);
+                one = Arrays.copyOf(one, capacity);
+                terminal = Arrays.copyOf(terminal, capacity);
+            }
+            return size++;
+        }
+    }
+}
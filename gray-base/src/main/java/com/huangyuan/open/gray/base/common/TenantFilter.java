@@ -0,0 +1,99 @@
+package com.huangyuan.open.gray.base.common;
+
+import java.util.Collection;
+
+/**
+ * 企业账号的布隆过滤器（不可变）
+ *
+ * 用于在查询企业列表之前排除不在列表中的企业：mightContain返回false时一定不在列表中，返回true时可能在（误判率约1%）。
+ * 每个账号约占12位，按块存放（每个账号的全部位都在同一个long中），一次判断只访问一个long，
+ * 使用String缓存的hashCode再做一次混合，不重新计算字符串的哈希。可以被多个线程同时访问
+ */
+public final class TenantFilter {
+
+    /**
+     * 每个账号占用的位数
+     */
+    private static final int BITS_PER_KEY = 12;
+
+    /**
+     * 每个账号在块中设置的位数
+     */
+    private static final int HASHES = 4;
+
+    private static final TenantFilter EMPTY = new TenantFilter(new long[0]);
+
+    private final long[] blocks;
+
+    private TenantFilter(long[] blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * 构建过滤器
+     *
+     * @param keys 企业账号列表，可以为null
+     * @return TenantFilter
+     */
+    public static TenantFilter build(Collection<String> keys) {
+        if ((keys == null) || keys.isEmpty()) {
+            return EMPTY;
+        }
+
+        // 块数取2的幂，定位块时用掩码代替取模
+        long bits = (long) keys.size() * BITS_PER_KEY;
+        int blockCount = Integer.highestOneBit((int) Math.min((bits + Long.SIZE - 1) / Long.SIZE, 1 << 30));
+        if (blockCount * (long) Long.SIZE < bits) {
+            blockCount <<= 1;
+        }
+
+        long[] blocks = new long[blockCount];
+        for (String key : keys) {
+            if (key != null) {
+                long hash = mix(key.hashCode());
+                blocks[blockIndex(hash, blockCount)] |= mask(hash);
+            }
+        }
+        return new TenantFilter(blocks);
+    }
+
+    /**
+     * 判断账号是否可能在列表中
+     *
+     * @param key 企业账号
+     * @return false-一定不在列表中, true-可能在列表中
+     */
+    public boolean mightContain(String key) {
+        if ((key == null) || (blocks.length == 0)) {
+            return false;
+        }
+        long hash = mix(key.hashCode());
+        long mask = mask(hash);
+        return (blocks[blockIndex(hash, blocks.length)] & mask) == mask;
+    }
+
+    /**
+     * 块的低32位决定块的位置，高位每6位决定块中的一位
+     */
+    private static int blockIndex(long hash, int blockCount) {
+        return (int) hash & (blockCount - 1);
+    }
+
+    private static long mask(long hash) {
+        long mask = 0L;
+        for (int i = 0; i < HASHES; i++) {
+            mask |= 1L << (int) ((hash >>> (32 + i * 6)) & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * 把32位的hashCode扩散成64位（SplitMix64的混合函数），相近的hashCode也会落到不同的块、不同的位
+     */
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
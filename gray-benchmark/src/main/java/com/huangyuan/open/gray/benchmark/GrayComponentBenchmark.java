@@ -0,0 +1,121 @@
+package com.huangyuan.open.gray.benchmark;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+import com.huangyuan.open.gray.benchmark.support.DemoService;
+import com.huangyuan.open.gray.benchmark.support.GrayBenchmarkContext;
+import com.huangyuan.open.gray.benchmark.support.RandomCustomLoadBalance;
+import com.huangyuan.open.gray.common.component.GrayComponent;
+import com.huangyuan.open.gray.common.component.api.CustomLoadBalance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次RPC都会经过的GrayComponent.selectByEa、selectByIpAndApplication的基准测试
+ *
+ * 同时统计吞吐量、平均耗时，分配速率需要打开gc profiler：
+ *  java -jar gray-benchmark/target/benchmarks.jar GrayComponentBenchmark -prof gc
+ * 或者直接运行本类的main方法（已经打开gc profiler），参数组合较多时可以用 -p eaCount=1000 指定部分参数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayComponentBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int invokerCount;
+
+    @Param({"1", "10"})
+    private int groupCount;
+
+    /**
+     * 每个灰度分组的企业数量
+     */
+    @Param({"10", "1000", "100000"})
+    private int eaCount;
+
+    /**
+     * 访问人员的企业是否灰度企业
+     */
+    @Param({"true", "false"})
+    private boolean grayEa;
+
+    /**
+     * 当前消费方是否灰度服务
+     */
+    @Param({"true", "false"})
+    private boolean consumerGray;
+
+    private GrayBenchmarkContext context;
+
+    private GrayComponent grayComponent;
+
+    private List<Invoker<DemoService>> invokers;
+
+    private URL consumerUrl;
+
+    private CustomLoadBalance loadBalance;
+
+    private String fsEa;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new GrayBenchmarkContext(consumerGray, groupCount, eaCount);
+        grayComponent = context.getGrayComponent();
+        invokers = GrayBenchmarkContext.invokers(invokerCount, groupCount);
+        consumerUrl = GrayBenchmarkContext.consumerUrl();
+        loadBalance = new RandomCustomLoadBalance();
+
+        // 提供方服务绑定的是gray1，取该分组中间的企业
+        fsEa = grayEa ? GrayBenchmarkContext.grayEa(1, eaCount / 2) : GrayBenchmarkContext.NOT_GRAY_EA;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Invoker<DemoService> selectByEa() {
+        return grayComponent.selectByEa(invokers, consumerUrl, newInvocation(), fsEa, loadBalance);
+    }
+
+    @Benchmark
+    public Invoker<DemoService> selectByIpAndApplication() {
+        return grayComponent.selectByIpAndApplication(invokers, consumerUrl, newInvocation(), loadBalance);
+    }
+
+    private Invocation newInvocation() {
+        return new RpcInvocation("sayHello", new Class<?>[]{String.class}, new Object[]{"gray"});
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GrayComponentBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
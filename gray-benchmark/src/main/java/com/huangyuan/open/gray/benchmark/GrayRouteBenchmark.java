@@ -0,0 +1,102 @@
+package com.huangyuan.open.gray.benchmark;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.RpcInvocation;
+import com.alibaba.dubbo.rpc.cluster.LoadBalance;
+import com.alibaba.dubbo.rpc.cluster.Router;
+import com.alibaba.dubbo.rpc.cluster.loadbalance.LeastActiveLoadBalance;
+import com.huangyuan.open.gray.benchmark.support.DemoService;
+import com.huangyuan.open.gray.benchmark.support.GrayBenchmarkContext;
+import com.huangyuan.open.gray.common.component.GrayLoadBalance;
+import com.huangyuan.open.gray.common.component.GrayRouterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 灰度筛选放在负载均衡里（GrayLoadBalance） 与 放在路由里（GrayRouter + LeastActiveLoadBalance） 的对比
+ *
+ * 两条路径的灰度判断都使用本地快照，不产生远程调用，对比的是筛选本身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayRouteBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int invokerCount;
+
+    /**
+     * 当前消费方是否灰度服务，true时筛选灰度服务，false时筛选正式服务
+     */
+    @Param({"true", "false"})
+    private boolean consumerGray;
+
+    private GrayBenchmarkContext context;
+
+    private List<Invoker<DemoService>> invokers;
+
+    private URL consumerUrl;
+
+    private LoadBalance grayLoadBalance;
+
+    private LoadBalance leastActiveLoadBalance;
+
+    private Router grayRouter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new GrayBenchmarkContext(consumerGray);
+        invokers = GrayBenchmarkContext.invokers(invokerCount);
+        consumerUrl = GrayBenchmarkContext.consumerUrl();
+
+        grayLoadBalance = new GrayLoadBalance();
+        leastActiveLoadBalance = new LeastActiveLoadBalance();
+        grayRouter = new GrayRouterFactory().getRouter(consumerUrl);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 现有方式：在负载均衡里完成灰度筛选
+     */
+    @Benchmark
+    public Invoker<DemoService> loadBalance() {
+        return grayLoadBalance.select(invokers, consumerUrl, newInvocation());
+    }
+
+    /**
+     * 路由方式：先由GrayRouter筛选，再由LeastActiveLoadBalance选择
+     */
+    @Benchmark
+    public Invoker<DemoService> router() {
+        Invocation invocation = newInvocation();
+        List<Invoker<DemoService>> routed = grayRouter.route(invokers, consumerUrl, invocation);
+        return leastActiveLoadBalance.select(routed, consumerUrl, invocation);
+    }
+
+    private Invocation newInvocation() {
+        return new RpcInvocation("sayHello", new Class<?>[]{String.class}, new Object[]{"gray"});
+    }
+}
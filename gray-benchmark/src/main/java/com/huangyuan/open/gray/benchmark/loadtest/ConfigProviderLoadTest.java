@@ -0,0 +1,569 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import com.huangyuan.open.gray.base.result.EserviceResult;
+import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
+import com.huangyuan.open.gray.config.api.constant.StatusTypeEnum;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationConfigNewArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationGroupConfigByEaArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingConfigArg;
+import com.huangyuan.open.gray.config.api.model.arg.GrayApplicationGroupConfigArg;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationGroupConfigService;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
+import com.huangyuan.open.gray.config.provider.manager.GrayRoutingIndexManager;
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 灰度配置服务（gray-config-provider）的压测：模拟大量gray-core客户端同时调用GrayApplicationHandlerService，
+ * 同时按固定频率修改灰度配置（触发路由索引重建、按变化清除缓存），
+ * 统计服务端的耗时、数据库的访问次数、c3p0连接池的使用情况、缓存命中率
+ *
+ * 服务、连接池、ehcache的配置与线上相同（见loadtest/config-provider-loadtest.xml），数据库默认使用内存中的H2。
+ * 直接调用服务的实现类，耗时不包括dubbo的网络传输、序列化
+ *
+ * 参数（-D指定）：
+ *  gray.provider.loadtest.clients            虚拟客户端数量，默认2000
+ *  gray.provider.loadtest.clientIntervalMillis 每个客户端两次调用的间隔，默认1000（总qps = clients * 1000 / clientIntervalMillis）
+ *  gray.provider.loadtest.threads            服务端处理线程数，默认200（dubbo默认的线程池大小）
+ *  gray.provider.loadtest.mix                各个接口的调用比例，默认configNew:50,checkGrayFsEa:30,groupByEa:15,routingConfig:5
+ *  gray.provider.loadtest.applications       灰度服务数量，默认500
+ *  gray.provider.loadtest.ipsPerApplication  每个灰度服务的灰度机器数量，默认4
+ *  gray.provider.loadtest.groups             灰度分组数量，默认5
+ *  gray.provider.loadtest.easPerGroup        每个灰度分组的企业数量，默认2000
+ *  gray.provider.loadtest.grayRatio          调用来自灰度机器、灰度企业的比例（百分比），默认10
+ *  gray.provider.loadtest.editsPerMinute     每分钟修改灰度分组的次数，默认30，0表示不修改
+ *  gray.provider.loadtest.warmupSeconds      预热时间，默认10
+ *  gray.provider.loadtest.durationSeconds    压测时间，默认60
+ *  连接池、数据库参数见config-provider-loadtest.xml，如-Dgray.provider.loadtest.maxPoolSize=20
+ *
+ * 运行：java -cp gray-benchmark/target/benchmarks.jar com.huangyuan.open.gray.benchmark.loadtest.ConfigProviderLoadTest
+ */
+public class ConfigProviderLoadTest {
+
+    private static final String PREFIX = "gray.provider.loadtest.";
+
+    private static final String CONFIG_NEW = "configNew";
+
+    private static final String CHECK_GRAY_FS_EA = "checkGrayFsEa";
+
+    private static final String GROUP_BY_EA = "groupByEa";
+
+    private static final String ROUTING_CONFIG = "routingConfig";
+
+    private static final String[] OPERATIONS = {CONFIG_NEW, CHECK_GRAY_FS_EA, GROUP_BY_EA, ROUTING_CONFIG};
+
+    private static final String MARGIN = ";";
+
+    private static final String EDIT_EA = "edit_ea";
+
+    private final int clients = intOption("clients", 2000);
+
+    private final int clientIntervalMillis = intOption("clientIntervalMillis", 1000);
+
+    private final int threads = intOption("threads", 200);
+
+    private final String mix = option("mix", CONFIG_NEW + ":50," + CHECK_GRAY_FS_EA + ":30," + GROUP_BY_EA + ":15,"
+            + ROUTING_CONFIG + ":5");
+
+    private final int applications = intOption("applications", 500);
+
+    private final int ipsPerApplication = intOption("ipsPerApplication", 4);
+
+    private final int groups = intOption("groups", 5);
+
+    private final int easPerGroup = intOption("easPerGroup", 2000);
+
+    private final int grayRatio = intOption("grayRatio", 10);
+
+    private final int editsPerMinute = intOption("editsPerMinute", 30);
+
+    private final int warmupSeconds = intOption("warmupSeconds", 10);
+
+    private final int durationSeconds = intOption("durationSeconds", 60);
+
+    /**
+     * 按比例展开的操作表，随机取一个下标即按比例选择操作
+     */
+    private int[] operationTable;
+
+    private GrayApplicationHandlerService grayApplicationHandlerService;
+
+    private GrayApplicationGroupConfigService grayApplicationGroupConfigService;
+
+    /**
+     * 灰度分组id -> 分组名称
+     */
+    private final Map<Long, String> groupNames = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        new ConfigProviderLoadTest().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        operationTable = parseMix(mix);
+
+        ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("loadtest/config-provider-loadtest.xml");
+        try {
+            grayApplicationHandlerService = context.getBean(GrayApplicationHandlerService.class);
+            grayApplicationGroupConfigService = context.getBean(GrayApplicationGroupConfigService.class);
+
+            seed(context.getBean(JdbcTemplate.class));
+            context.getBean(GrayRoutingIndexManager.class).rebuild();
+            System.out.println("seeded " + groups + " groups x " + easPerGroup + " eas, " + applications
+                    + " applications x " + ipsPerApplication + " ips");
+
+            QueryCountInterceptor queryCounter = context.getBean(QueryCountInterceptor.class);
+            CountingCacheManager cacheManager = context.getBean(CountingCacheManager.class);
+            ComboPooledDataSource dataSource = context.getBean(ComboPooledDataSource.class);
+
+            long qps = (long) clients * 1000L / clientIntervalMillis;
+            System.out.println("running " + clients + " clients (" + qps + " qps) on " + threads + " threads, mix=" + mix
+                    + ", editsPerMinute=" + editsPerMinute + ", warmup=" + warmupSeconds + "s, duration="
+                    + durationSeconds + "s");
+
+            long start = System.nanoTime();
+            long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+            long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            List<Worker> workers = new ArrayList<>(threads);
+            CountDownLatch finished = new CountDownLatch(threads + 1);
+            long interval = TimeUnit.SECONDS.toNanos(threads) / Math.max(qps, 1L);
+            for (int i = 0; i < threads; i++) {
+                Worker worker = new Worker(start + (interval * i) / threads, interval, measureStart, end);
+                workers.add(worker);
+                start(worker, finished, "gray-provider-loadtest-" + i);
+            }
+            Editor editor = new Editor(start, measureStart, end);
+            start(editor, finished, "gray-provider-loadtest-editor");
+
+            // 预热结束后清空统计，之后每100毫秒采样一次连接池
+            for (long wait = measureStart - System.nanoTime(); wait > 0; wait = measureStart - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            queryCounter.reset();
+            cacheManager.reset();
+            PoolSampler poolSampler = new PoolSampler(dataSource);
+            while (!finished.await(100, TimeUnit.MILLISECONDS)) {
+                poolSampler.sample();
+            }
+
+            LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+            long[] errors = new long[OPERATIONS.length];
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                histograms[op] = new LatencyHistogram();
+                for (Worker worker : workers) {
+                    histograms[op].merge(worker.histograms[op]);
+                    errors[op] += worker.errors[op];
+                }
+            }
+
+            print(histograms, errors, editor, queryCounter, cacheManager, poolSampler, dataSource);
+
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 构造灰度分组、灰度企业、灰度服务、灰度机器
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        long now = System.currentTimeMillis();
+        Integer open = StatusTypeEnum.OPEN.getTypeCode();
+
+        for (int g = 1; g <= groups; g++) {
+            jdbcTemplate.update("INSERT INTO `gray_application_group_config` (`group_name`, `fs_eas`, `create_time`, "
+                            + "`update_time`, `status`, `describe`) VALUES (?, ?, ?, ?, ?, ?)",
+                    groupName(g), groupEas(g, false), now, now, open, "loadtest");
+        }
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT `id`, `group_name` FROM `gray_application_group_config`")) {
+            groupNames.put(((Number) row.get("id")).longValue(), (String) row.get("group_name"));
+        }
+
+        List<Object[]> groupEas = new ArrayList<>(groups * easPerGroup);
+        for (Map.Entry<Long, String> group : groupNames.entrySet()) {
+            int g = groupIndex(group.getValue());
+            for (int i = 0; i < easPerGroup; i++) {
+                groupEas.add(new Object[]{group.getKey(), grayEa(g, i), now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `gray_group_ea` (`group_id`, `fs_ea`, `create_time`) VALUES (?, ?, ?)",
+                groupEas);
+
+        Map<String, Long> groupIds = new HashMap<>();
+        for (Map.Entry<Long, String> group : groupNames.entrySet()) {
+            groupIds.put(group.getValue(), group.getKey());
+        }
+        List<Object[]> applicationInfos = new ArrayList<>(applications);
+        for (int a = 0; a < applications; a++) {
+            applicationInfos.add(new Object[]{applicationName(a), groupIds.get(groupName(a % groups + 1)),
+                    now, now, open, "loadtest"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `gray_application_info` (`application_name`, `group_id`, "
+                + "`create_time`, `update_time`, `status`, `describe`) VALUES (?, ?, ?, ?, ?, ?)", applicationInfos);
+
+        List<Object[]> ipConfigs = new ArrayList<>(applications * ipsPerApplication);
+        for (Map<String, Object> row : jdbcTemplate.queryForList(
+                "SELECT `id`, `application_name` FROM `gray_application_info`")) {
+            int a = Integer.parseInt(((String) row.get("application_name")).substring("app".length()));
+            for (String ip : applicationIps(a)) {
+                ipConfigs.add(new Object[]{ip, ((Number) row.get("id")).longValue(), now, "loadtest"});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `gray_application_ip_config` (`ip_address`, `application_id`, "
+                + "`create_time`, `describe`) VALUES (?, ?, ?, ?)", ipConfigs);
+    }
+
+    /**
+     * 模拟一个服务端处理线程，按固定速率处理随机虚拟客户端的调用
+     */
+    private class Worker implements Runnable {
+
+        private final long interval;
+
+        private final long measureStart;
+
+        private final long end;
+
+        private long next;
+
+        private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+
+        private final long[] errors = new long[OPERATIONS.length];
+
+        Worker(long first, long interval, long measureStart, long end) {
+            this.next = first;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.end = end;
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                histograms[op] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (true) {
+                long intended = next;
+                next += interval;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (intended >= end) {
+                    return;
+                }
+
+                // 虚拟客户端即某个服务的某台机器
+                int client = random.nextInt(clients);
+                int op = operationTable[random.nextInt(operationTable.length)];
+
+                boolean success;
+                try {
+                    success = call(op, client, random);
+                } catch (Exception e) {
+                    success = false;
+                }
+                long latency = System.nanoTime() - intended;
+
+                if (intended >= measureStart) {
+                    if (success) {
+                        histograms[op].record(latency);
+                    } else {
+                        errors[op]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean call(int op, int client, ThreadLocalRandom random) {
+        int application = client % applications;
+        boolean gray = random.nextInt(100) < grayRatio;
+
+        EserviceResult<?> result;
+        switch (OPERATIONS[op]) {
+            case CONFIG_NEW:
+                GetGrayApplicationConfigNewArg configNewArg = new GetGrayApplicationConfigNewArg();
+                configNewArg.setApplicationName(applicationName(application));
+                configNewArg.setIp(gray ? applicationIps(application).get(client % ipsPerApplication)
+                        : formalIp(client));
+                result = grayApplicationHandlerService.getGrayApplicationConfigNew(configNewArg);
+                break;
+            case CHECK_GRAY_FS_EA:
+                result = grayApplicationHandlerService.checkGrayFsEa(applicationName(application), randomEa(gray, random));
+                break;
+            case GROUP_BY_EA:
+                GetGrayApplicationGroupConfigByEaArg groupByEaArg = new GetGrayApplicationGroupConfigByEaArg();
+                groupByEaArg.setFsEa(randomEa(gray, random));
+                result = grayApplicationHandlerService.getGrayApplicationGroupConfigByEa(groupByEaArg);
+                break;
+            default:
+                GetGrayRoutingConfigArg routingConfigArg = new GetGrayRoutingConfigArg();
+                routingConfigArg.setApplicationName(applicationName(application));
+                result = grayApplicationHandlerService.getGrayRoutingConfig(routingConfigArg);
+                break;
+        }
+
+        // 配置不存在（不是灰度服务、不是灰度企业）是正常的结果，只有系统错误算失败
+        return (result != null) && !GrayErrorCode.SYSTEM_ERROR.getErrorCode().equals(result.getErrCode());
+    }
+
+    /**
+     * 模拟管理后台，按固定频率修改灰度分组的企业名单（轮流加入、移除一个企业）
+     */
+    private class Editor implements Runnable {
+
+        private final long start;
+
+        private final long measureStart;
+
+        private final long end;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private long errors;
+
+        Editor(long start, long measureStart, long end) {
+            this.start = start;
+            this.measureStart = measureStart;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            if (editsPerMinute <= 0) {
+                return;
+            }
+
+            long interval = TimeUnit.MINUTES.toNanos(1) / editsPerMinute;
+            List<Long> groupIds = new ArrayList<>(groupNames.keySet());
+            for (int n = 0; ; n++) {
+                long intended = start + interval * n;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (intended >= end) {
+                    return;
+                }
+
+                // 同一个分组连续两次修改：第一次加入企业，第二次移除
+                Long groupId = groupIds.get((n / 2) % groupIds.size());
+                String groupName = groupNames.get(groupId);
+
+                GrayApplicationGroupConfigArg arg = new GrayApplicationGroupConfigArg();
+                arg.setId(groupId);
+                arg.setGroupName(groupName);
+                arg.setStatus(StatusTypeEnum.OPEN.getTypeCode());
+                arg.setDescribe("loadtest");
+                arg.setFsEas(groupEas(groupIndex(groupName), n % 2 == 0));
+
+                long begin = System.nanoTime();
+                EserviceResult<Boolean> result = grayApplicationGroupConfigService.updateGroupConfig(arg);
+                long latency = System.nanoTime() - begin;
+
+                if (intended >= measureStart) {
+                    if ((result != null) && Boolean.TRUE.equals(result.getData())) {
+                        histogram.record(latency);
+                    } else {
+                        errors++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 连接池采样：正在使用的连接数
+     */
+    private static class PoolSampler {
+
+        private final ComboPooledDataSource dataSource;
+
+        private long samples;
+
+        private long busySum;
+
+        private int maxBusy;
+
+        private int maxConnections;
+
+        PoolSampler(ComboPooledDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void sample() {
+            try {
+                int busy = dataSource.getNumBusyConnectionsDefaultUser();
+                samples++;
+                busySum += busy;
+                maxBusy = Math.max(maxBusy, busy);
+                maxConnections = Math.max(maxConnections, dataSource.getNumConnectionsDefaultUser());
+            } catch (Exception e) {
+                // 采样失败不影响压测
+            }
+        }
+
+        double getMeanBusy() {
+            return samples == 0 ? 0.0D : (double) busySum / samples;
+        }
+    }
+
+    private void print(LatencyHistogram[] histograms, long[] errors, Editor editor, QueryCountInterceptor queryCounter,
+                       CountingCacheManager cacheManager, PoolSampler poolSampler, ComboPooledDataSource dataSource) {
+        System.out.println();
+        System.out.println(String.format("%-14s %10s %12s %8s %10s %10s %10s %10s %10s",
+                "operation", "calls", "ops/s", "errors", "mean(us)", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+
+        LatencyHistogram all = new LatencyHistogram();
+        long allErrors = 0L;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            printRow(OPERATIONS[op], histograms[op], errors[op]);
+            all.merge(histograms[op]);
+            allErrors += errors[op];
+        }
+        printRow("all", all, allErrors);
+        printRow("admin edit", editor.histogram, editor.errors);
+
+        System.out.println();
+        System.out.println(String.format("db: %d statements, %.1f/s, mean %.1fus, %s", queryCounter.getTotal(),
+                queryCounter.getTotal() / (double) durationSeconds, queryCounter.getMeanNanos() / 1000.0D,
+                queryCounter.getCounts()));
+
+        System.out.println(String.format("c3p0: busy connections mean %.1f, max %d, opened connections max %d, maxPoolSize %d",
+                poolSampler.getMeanBusy(), poolSampler.maxBusy, poolSampler.maxConnections, dataSource.getMaxPoolSize()));
+
+        System.out.println(String.format("cache: %d hits, %d misses, hit ratio %.2f%%, %d evictions",
+                cacheManager.getHits(), cacheManager.getMisses(), cacheManager.getHitRatio() * 100.0D,
+                cacheManager.getEvictions()));
+    }
+
+    private void printRow(String name, LatencyHistogram histogram, long errors) {
+        System.out.println(String.format("%-14s %10d %12.1f %8d %10.1f %10.1f %10.1f %10.1f %10.1f", name,
+                histogram.getTotalCount(), histogram.getTotalCount() / (double) durationSeconds, errors,
+                histogram.getMeanNanos() / 1000.0D, micros(histogram.getPercentile(50)),
+                micros(histogram.getPercentile(99)), micros(histogram.getPercentile(99.9)),
+                micros(histogram.getMaxNanos())));
+    }
+
+    private int[] parseMix(String value) {
+        List<Integer> table = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String[] pair = item.trim().split(":");
+            int op = indexOf(pair[0].trim());
+            if ((op < 0) || (pair.length != 2)) {
+                throw new IllegalArgumentException("illegal mix: " + item + ", operations: " + String.join(",", OPERATIONS));
+            }
+            for (int i = Integer.parseInt(pair[1].trim()); i > 0; i--) {
+                table.add(op);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("illegal mix: " + value);
+        }
+
+        int[] result = new int[table.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = table.get(i);
+        }
+        return result;
+    }
+
+    private static int indexOf(String operation) {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i].equals(operation)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String randomEa(boolean gray, ThreadLocalRandom random) {
+        return gray ? grayEa(random.nextInt(groups) + 1, random.nextInt(easPerGroup))
+                : "formal_ea" + random.nextInt(1000000);
+    }
+
+    private String groupEas(int g, boolean withEditEa) {
+        StringBuilder fsEas = new StringBuilder();
+        for (int i = 0; i < easPerGroup; i++) {
+            if (i > 0) {
+                fsEas.append(MARGIN);
+            }
+            fsEas.append(grayEa(g, i));
+        }
+        if (withEditEa) {
+            fsEas.append(MARGIN).append(EDIT_EA).append(g);
+        }
+        return fsEas.toString();
+    }
+
+    private List<String> applicationIps(int application) {
+        List<String> ips = new ArrayList<>(ipsPerApplication);
+        for (int k = 0; k < ipsPerApplication; k++) {
+            ips.add("10." + (application / 250) + "." + (application % 250) + "." + (k + 1));
+        }
+        return ips;
+    }
+
+    private static String formalIp(int client) {
+        return "172.16." + ((client / 250) % 250) + "." + (client % 250 + 1);
+    }
+
+    private static String groupName(int g) {
+        return "gray" + g;
+    }
+
+    private static int groupIndex(String groupName) {
+        return Integer.parseInt(groupName.substring("gray".length()));
+    }
+
+    private static String grayEa(int g, int i) {
+        return "ea" + g + "_" + i;
+    }
+
+    private static String applicationName(int a) {
+        return "app" + a;
+    }
+
+    private static void start(Runnable runnable, final CountDownLatch finished, String name) {
+        final Runnable target = runnable;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    target.run();
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0D;
+    }
+
+    private static String option(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    private static int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+}
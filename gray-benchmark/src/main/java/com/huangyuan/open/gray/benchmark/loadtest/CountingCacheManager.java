@@ -0,0 +1,147 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 包装配置服务的CacheManager（ehcache），统计@Cacheable的命中次数、未命中次数，以及清除缓存的次数
+ */
+public class CountingCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+
+    private final ConcurrentMap<String, CountingCache> caches = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public CountingCacheManager(CacheManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        CountingCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        cache = new CountingCache(target);
+        CountingCache existing = caches.putIfAbsent(name, cache);
+        return existing == null ? cache : existing;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * 清空统计，预热结束后调用
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0.0D : (double) hit / total;
+    }
+
+    private class CountingCache implements Cache {
+
+        private final Cache target;
+
+        CountingCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper value = target.get(key);
+            (value == null ? misses : hits).increment();
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            T value = target.get(key, type);
+            (value == null ? misses : hits).increment();
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, final Callable<T> valueLoader) {
+            final boolean[] loaded = new boolean[1];
+            T value = target.get(key, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    loaded[0] = true;
+                    return valueLoader.call();
+                }
+            });
+            (loaded[0] ? misses : hits).increment();
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            evictions.increment();
+            target.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            evictions.increment();
+            target.clear();
+        }
+    }
+}
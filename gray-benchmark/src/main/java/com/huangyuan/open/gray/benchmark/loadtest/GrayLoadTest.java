@@ -0,0 +1,284 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.config.ApplicationConfig;
+import com.alibaba.dubbo.config.ConsumerConfig;
+import com.alibaba.dubbo.config.ProtocolConfig;
+import com.alibaba.dubbo.config.ProviderConfig;
+import com.alibaba.dubbo.config.ReferenceConfig;
+import com.alibaba.dubbo.config.RegistryConfig;
+import com.alibaba.dubbo.config.ServiceConfig;
+import com.huangyuan.open.gray.benchmark.support.DemoService;
+import com.huangyuan.open.gray.benchmark.support.DemoServiceImpl;
+import com.huangyuan.open.gray.benchmark.support.FakeGrayApplicationHandlerService;
+import com.huangyuan.open.gray.benchmark.support.GrayBenchmarkContext;
+import com.huangyuan.open.gray.common.component.GrayBeanPostProcessor;
+import com.huangyuan.open.gray.common.component.GrayComponent;
+import com.huangyuan.open.gray.common.support.GrayConfigHepler;
+import com.huangyuan.open.gray.common.support.GrayHandlerHelper;
+import com.huangyuan.open.gray.common.support.GrayRoutingSnapshotHolder;
+import com.huangyuan.open.gray.common.utils.SpringContextUtil;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * 灰度路由的端到端压测：对比不经过灰度组件的普通调用 与 经过完整灰度链路的调用
+ *
+ * 完整灰度链路包括：GrayBeanPostProcessor改写消费方配置（group="*"、grayLoadBalance或gray路由、grayFilter）、
+ * 提供方按灰度分组暴露服务、DubboGrayFilter。配置服务使用本地模拟的FakeGrayApplicationHandlerService
+ *
+ * 场景：
+ *  baseline    普通的dubbo调用，只调用正式服务
+ *  gray-formal 经过灰度链路，消费方不是灰度服务，应该调用正式服务
+ *  gray-gray   经过灰度链路，消费方是灰度服务，应该调用gray1分组的服务
+ *
+ * 参数（-D指定）：
+ *  gray.loadtest.role             all（默认，提供方、消费方在同一个进程） | provider | consumer
+ *  gray.loadtest.registry         注册中心，默认local://127.0.0.1（进程内），多个进程时使用multicast://224.5.6.7:1234
+ *  gray.loadtest.port             提供方的起始端口，默认20880
+ *  gray.loadtest.formalProviders  正式服务的数量，默认2
+ *  gray.loadtest.grayGroups       灰度分组的数量（每个分组一个提供方），默认2
+ *  gray.loadtest.threads          压测线程数，默认16
+ *  gray.loadtest.qps              目标qps，默认0（不限速，测最大吞吐量）
+ *  gray.loadtest.warmupSeconds    预热时间，默认10
+ *  gray.loadtest.durationSeconds  压测时间，默认30
+ *  gray.loadtest.router           灰度链路是否使用GrayRouter（gray.router.enable），默认false
+ *  gray.loadtest.scenarios        要运行的场景，默认baseline,gray-formal,gray-gray
+ *
+ * 运行：java -cp gray-benchmark/target/benchmarks.jar com.huangyuan.open.gray.benchmark.loadtest.GrayLoadTest
+ */
+public class GrayLoadTest {
+
+    private static final String PREFIX = "gray.loadtest.";
+
+    private static final String SCENARIO_BASELINE = "baseline";
+
+    private static final String SCENARIO_GRAY_FORMAL = "gray-formal";
+
+    private static final String SCENARIO_GRAY_GRAY = "gray-gray";
+
+    private static final String FORMAL_PROVIDER = "formal";
+
+    private final String role = option("role", "all");
+
+    private final String registryAddress = option("registry", "local://127.0.0.1");
+
+    private final int port = intOption("port", 20880);
+
+    private final int formalProviders = intOption("formalProviders", 2);
+
+    private final int grayGroups = intOption("grayGroups", 2);
+
+    private final int threads = intOption("threads", 16);
+
+    private final int qps = intOption("qps", 0);
+
+    private final int warmupSeconds = intOption("warmupSeconds", 10);
+
+    private final int durationSeconds = intOption("durationSeconds", 30);
+
+    private final boolean router = Boolean.parseBoolean(option("router", "false"));
+
+    private final String scenarios = option("scenarios",
+            SCENARIO_BASELINE + "," + SCENARIO_GRAY_FORMAL + "," + SCENARIO_GRAY_GRAY);
+
+    public static void main(String[] args) throws Exception {
+        new GrayLoadTest().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        List<ServiceConfig<DemoService>> services = new ArrayList<>();
+        if (!"consumer".equals(role)) {
+            services = exportProviders();
+            System.out.println("exported " + formalProviders + " formal providers and " + grayGroups + " gray providers");
+        }
+        if ("provider".equals(role)) {
+            // 只作为提供方，等待其他进程的消费方压测
+            new CountDownLatch(1).await();
+        }
+
+        LoadDriver driver = new LoadDriver(threads, qps, warmupSeconds, durationSeconds);
+        List<LoadDriver.Report> reports = new ArrayList<>();
+        for (String scenario : scenarios.split(",")) {
+            reports.add(runScenario(driver, scenario.trim()));
+        }
+
+        print(reports);
+
+        for (ServiceConfig<DemoService> service : services) {
+            service.unexport();
+        }
+    }
+
+    private LoadDriver.Report runScenario(LoadDriver driver, String scenario) throws Exception {
+        System.out.println("running " + scenario + ", threads=" + threads + ", qps=" + (qps > 0 ? qps : "max")
+                + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds + "s");
+
+        if (SCENARIO_BASELINE.equals(scenario)) {
+            ReferenceConfig<DemoService> reference = newReference("demo-consumer-baseline");
+            // 普通调用不经过灰度过滤器
+            reference.setFilter("-grayFilter");
+            reference.setLoadbalance("leastactive");
+            try {
+                return driver.run(scenario, reference.get());
+            } finally {
+                reference.destroy();
+            }
+        }
+
+        boolean consumerGray = SCENARIO_GRAY_GRAY.equals(scenario);
+        if (!consumerGray && !SCENARIO_GRAY_FORMAL.equals(scenario)) {
+            throw new IllegalArgumentException("unknown scenario: " + scenario);
+        }
+
+        AnnotationConfigApplicationContext context = grayConsumerContext(consumerGray);
+        ReferenceConfig<DemoService> reference = newReference(GrayBenchmarkContext.CONSUMER_APPLICATION);
+        reference.setConsumer(context.getBean("consumerConfig", ConsumerConfig.class));
+        reference.setRegistry(context.getBean("registryConfig", RegistryConfig.class));
+        try {
+            return driver.run(scenario, reference.get());
+        } finally {
+            reference.destroy();
+            context.close();
+        }
+    }
+
+    /**
+     * 暴露正式服务、各个灰度分组的服务。在同一台机器上无法通过ip区分灰度机器，
+     * 所以这里直接设置ProviderConfig的group，与GrayBeanPostProcessor在灰度机器上设置的结果相同
+     */
+    private List<ServiceConfig<DemoService>> exportProviders() {
+        List<ServiceConfig<DemoService>> services = new ArrayList<>();
+        int index = 0;
+        for (int i = 0; i < formalProviders; i++) {
+            services.add(export(FORMAL_PROVIDER + i, null, port + index++));
+        }
+        for (int g = 1; g <= grayGroups; g++) {
+            services.add(export("gray" + g, "gray" + g, port + index++));
+        }
+        return services;
+    }
+
+    private ServiceConfig<DemoService> export(String name, String group, int servicePort) {
+        ProtocolConfig protocol = new ProtocolConfig(Constants.DEFAULT_PROTOCOL, servicePort);
+
+        ProviderConfig provider = new ProviderConfig();
+        provider.setGroup(group);
+
+        ServiceConfig<DemoService> service = new ServiceConfig<>();
+        service.setApplication(new ApplicationConfig(GrayBenchmarkContext.PROVIDER_APPLICATION));
+        service.setRegistry(new RegistryConfig(registryAddress));
+        service.setProtocol(protocol);
+        service.setInterface(DemoService.class);
+        service.setRef(new DemoServiceImpl(name));
+        service.setProvider(provider);
+        service.setScope(Constants.SCOPE_REMOTE);
+        service.export();
+        return service;
+    }
+
+    private ReferenceConfig<DemoService> newReference(String applicationName) {
+        ReferenceConfig<DemoService> reference = new ReferenceConfig<>();
+        reference.setApplication(new ApplicationConfig(applicationName));
+        reference.setRegistry(new RegistryConfig(registryAddress));
+        reference.setInterface(DemoService.class);
+        reference.setScope(Constants.SCOPE_REMOTE);
+        reference.setCheck(false);
+        reference.setTimeout(3000);
+        return reference;
+    }
+
+    /**
+     * 与接入灰度组件的应用相同的spring环境，由GrayBeanPostProcessor改写consumerConfig、registryConfig
+     */
+    private AnnotationConfigApplicationContext grayConsumerContext(boolean consumerGray) {
+        final GrayApplicationHandlerService grayApplicationHandlerService = new FakeGrayApplicationHandlerService(
+                GrayBenchmarkContext.routingConfig(consumerGray, grayGroups, 2));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("dubbo.application.name", GrayBenchmarkContext.CONSUMER_APPLICATION);
+        properties.put("gray.router.enable", String.valueOf(router));
+        properties.put("gray.snapshot.persist", "false");
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("grayLoadTest", properties));
+        context.registerBean(PropertySourcesPlaceholderConfigurer.class);
+        context.registerBean("consumerConfig", ConsumerConfig.class);
+        context.registerBean("registryConfig", RegistryConfig.class, new Supplier<RegistryConfig>() {
+            @Override
+            public RegistryConfig get() {
+                return new RegistryConfig(registryAddress);
+            }
+        });
+        context.registerBean("grayApplicationHandlerService", GrayApplicationHandlerService.class,
+                new Supplier<GrayApplicationHandlerService>() {
+                    @Override
+                    public GrayApplicationHandlerService get() {
+                        return grayApplicationHandlerService;
+                    }
+                });
+        context.registerBean("grayBeanPostProcessor", GrayBeanPostProcessor.class);
+        context.registerBean("grayConfigHepler", GrayConfigHepler.class);
+        context.registerBean("grayRoutingSnapshotHolder", GrayRoutingSnapshotHolder.class);
+        context.registerBean("grayHandlerHelper", GrayHandlerHelper.class);
+        context.registerBean("grayComponent", GrayComponent.class);
+        context.registerBean("graySpringContextUtil", SpringContextUtil.class);
+        context.refresh();
+        return context;
+    }
+
+    private void print(List<LoadDriver.Report> reports) {
+        System.out.println();
+        System.out.println(String.format("%-12s %12s %8s %10s %10s %10s %10s %10s  %s",
+                "scenario", "ops/s", "errors", "mean(us)", "p50(us)", "p99(us)", "p999(us)", "max(us)", "routed to"));
+
+        LoadDriver.Report baseline = null;
+        for (LoadDriver.Report report : reports) {
+            LatencyHistogram histogram = report.getHistogram();
+            System.out.println(String.format("%-12s %12.1f %8d %10.1f %10.1f %10.1f %10.1f %10.1f  %s",
+                    report.getScenario(), report.getThroughput(), report.getErrors(),
+                    histogram.getMeanNanos() / 1000.0D, micros(histogram.getPercentile(50)),
+                    micros(histogram.getPercentile(99)), micros(histogram.getPercentile(99.9)),
+                    micros(histogram.getMaxNanos()), report.getResponses()));
+            if (SCENARIO_BASELINE.equals(report.getScenario())) {
+                baseline = report;
+            }
+        }
+
+        if (baseline != null) {
+            System.out.println();
+            for (LoadDriver.Report report : reports) {
+                if (report == baseline) {
+                    continue;
+                }
+                System.out.println(String.format("%s vs baseline: p50 %+.1fus, p99 %+.1fus, p999 %+.1fus",
+                        report.getScenario(),
+                        micros(report.getHistogram().getPercentile(50) - baseline.getHistogram().getPercentile(50)),
+                        micros(report.getHistogram().getPercentile(99) - baseline.getHistogram().getPercentile(99)),
+                        micros(report.getHistogram().getPercentile(99.9) - baseline.getHistogram().getPercentile(99.9))));
+            }
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0D;
+    }
+
+    private static String option(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    private static int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+}
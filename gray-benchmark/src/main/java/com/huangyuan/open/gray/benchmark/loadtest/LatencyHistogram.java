@@ -0,0 +1,95 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+/**
+ * 耗时直方图（纳秒），每个2的幂区间再等分成64个桶，百分位的相对误差不超过1/64
+ *
+ * 不是线程安全的，每个压测线程使用自己的直方图，结束后再合并
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 128;
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MIN_EXPONENT = 7;
+
+    private final long[] counts = new long[LINEAR_BUCKETS + (63 - MIN_EXPONENT) * SUB_BUCKETS];
+
+    private long totalCount;
+
+    private long totalNanos;
+
+    private long maxNanos;
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        counts[indexOf(value)]++;
+        totalCount++;
+        totalNanos += value;
+        maxNanos = Math.max(maxNanos, value);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    /**
+     * @param percentile 百分位，例如99.9
+     * @return 耗时（纳秒）
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(totalCount * percentile / 100.0D);
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1L)) {
+                return Math.min(valueOf(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return totalCount == 0 ? 0.0D : (double) totalNanos / totalCount;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * 桶的中间值
+     */
+    private static long valueOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = MIN_EXPONENT + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket) << shift) + ((1L << shift) >>> 1);
+    }
+}
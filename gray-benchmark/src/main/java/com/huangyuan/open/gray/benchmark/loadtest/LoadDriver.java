@@ -0,0 +1,189 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import com.huangyuan.open.gray.benchmark.support.DemoService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测驱动
+ *
+ * qps大于0时按固定速率发起请求，耗时从计划的发起时间开始计算（请求排队的时间也算在内，避免协调遗漏）；
+ * qps为0时每个线程连续发起请求，测的是最大吞吐量
+ */
+public class LoadDriver {
+
+    private final int threads;
+
+    private final int qps;
+
+    private final long warmupNanos;
+
+    private final long durationNanos;
+
+    public LoadDriver(int threads, int qps, long warmupSeconds, long durationSeconds) {
+        this.threads = threads;
+        this.qps = qps;
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    public Report run(String scenario, final DemoService demoService) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long measureStart = start + warmupNanos;
+        final long end = measureStart + durationNanos;
+        final long interval = qps > 0 ? TimeUnit.SECONDS.toNanos(threads) / qps : 0L;
+
+        final List<Worker> workers = new ArrayList<>(threads);
+        final CountDownLatch finished = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            // 各个线程错开发起时间，使整体速率均匀
+            final Worker worker = new Worker(demoService, start + (interval * i) / threads, interval,
+                    measureStart, end);
+            workers.add(worker);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        worker.run();
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }, "gray-loadtest-" + scenario + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        finished.await();
+
+        Report report = new Report(scenario, durationNanos);
+        for (Worker worker : workers) {
+            report.merge(worker);
+        }
+        return report;
+    }
+
+    private static class Worker {
+
+        private final DemoService demoService;
+
+        private final long interval;
+
+        private final long measureStart;
+
+        private final long end;
+
+        private long next;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private final Map<String, Long> responses = new HashMap<>();
+
+        private long errors;
+
+        Worker(DemoService demoService, long first, long interval, long measureStart, long end) {
+            this.demoService = demoService;
+            this.next = first;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.end = end;
+        }
+
+        void run() {
+            while (true) {
+                long intended;
+                if (interval > 0) {
+                    intended = next;
+                    next += interval;
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                }
+                if (intended >= end) {
+                    return;
+                }
+
+                String response = null;
+                boolean success;
+                try {
+                    response = demoService.sayHello("gray");
+                    success = true;
+                } catch (Exception e) {
+                    success = false;
+                }
+                long latency = System.nanoTime() - intended;
+
+                if (intended >= measureStart) {
+                    if (success) {
+                        histogram.record(latency);
+                        Long count = responses.get(response);
+                        responses.put(response, count == null ? 1L : count + 1);
+                    } else {
+                        errors++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个场景的压测结果
+     */
+    public static class Report {
+
+        private final String scenario;
+
+        private final long durationNanos;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private final Map<String, Long> responses = new HashMap<>();
+
+        private long errors;
+
+        Report(String scenario, long durationNanos) {
+            this.scenario = scenario;
+            this.durationNanos = durationNanos;
+        }
+
+        void merge(Worker worker) {
+            histogram.merge(worker.histogram);
+            errors += worker.errors;
+            for (Map.Entry<String, Long> entry : worker.responses.entrySet()) {
+                Long count = responses.get(entry.getKey());
+                responses.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * 请求被哪些提供方处理（提供方名称 -> 次数），用于确认路由结果
+         */
+        public Map<String, Long> getResponses() {
+            return responses;
+        }
+
+        public double getThroughput() {
+            return histogram.getTotalCount() * 1.0E9D / durationNanos;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.UrlUtils;
+import com.alibaba.dubbo.registry.NotifyListener;
+import com.alibaba.dubbo.registry.support.FailbackRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 进程内的注册中心，只用于压测：提供方注册的url保存在内存中，变化时通知同一个进程内的订阅方
+ *
+ * 地址：local://127.0.0.1
+ */
+public class LocalRegistry extends FailbackRegistry {
+
+    /**
+     * 接口名称 -> 提供方url
+     */
+    private final Map<String, Set<URL>> providers = new ConcurrentHashMap<>();
+
+    public LocalRegistry(URL url) {
+        super(url);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    protected void doRegister(URL url) {
+        if (!Constants.PROVIDERS_CATEGORY.equals(url.getParameter(Constants.CATEGORY_KEY, Constants.PROVIDERS_CATEGORY))) {
+            // 消费方也会注册自己，这里只关心提供方
+            return;
+        }
+        Set<URL> urls = providers.get(url.getServiceInterface());
+        if (urls == null) {
+            providers.putIfAbsent(url.getServiceInterface(), new CopyOnWriteArraySet<URL>());
+            urls = providers.get(url.getServiceInterface());
+        }
+        urls.add(url);
+        notifySubscribers(url.getServiceInterface());
+    }
+
+    @Override
+    protected void doUnregister(URL url) {
+        Set<URL> urls = providers.get(url.getServiceInterface());
+        if ((urls != null) && urls.remove(url)) {
+            notifySubscribers(url.getServiceInterface());
+        }
+    }
+
+    @Override
+    protected void doSubscribe(URL url, NotifyListener listener) {
+        notify(url, listener, lookupProviders(url));
+    }
+
+    @Override
+    protected void doUnsubscribe(URL url, NotifyListener listener) {
+        // 订阅关系由AbstractRegistry维护
+    }
+
+    private void notifySubscribers(String serviceInterface) {
+        for (Map.Entry<URL, Set<NotifyListener>> entry : getSubscribed().entrySet()) {
+            URL consumerUrl = entry.getKey();
+            if (!serviceInterface.equals(consumerUrl.getServiceInterface())) {
+                continue;
+            }
+            List<URL> urls = lookupProviders(consumerUrl);
+            for (NotifyListener listener : entry.getValue()) {
+                notify(consumerUrl, listener, urls);
+            }
+        }
+    }
+
+    /**
+     * 找到与消费方匹配（接口、group、version）的提供方，没有时返回empty协议的url，让订阅方清空列表
+     */
+    private List<URL> lookupProviders(URL consumerUrl) {
+        List<URL> result = new ArrayList<>();
+        Set<URL> urls = providers.get(consumerUrl.getServiceInterface());
+        if (urls != null) {
+            for (URL url : urls) {
+                if (UrlUtils.isMatch(consumerUrl, url)) {
+                    result.add(url);
+                }
+            }
+        }
+        if (result.isEmpty()) {
+            result.add(consumerUrl.setProtocol(Constants.EMPTY_PROTOCOL)
+                    .addParameter(Constants.CATEGORY_KEY, Constants.PROVIDERS_CATEGORY));
+        }
+        return result;
+    }
+}
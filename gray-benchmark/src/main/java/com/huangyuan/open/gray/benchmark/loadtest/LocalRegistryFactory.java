@@ -0,0 +1,25 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.registry.Registry;
+import com.alibaba.dubbo.registry.RegistryFactory;
+
+/**
+ * 同一个进程内的提供方、消费方共用一个LocalRegistry
+ */
+public class LocalRegistryFactory implements RegistryFactory {
+
+    private static volatile LocalRegistry registry;
+
+    @Override
+    public Registry getRegistry(URL url) {
+        if (registry == null) {
+            synchronized (LocalRegistryFactory.class) {
+                if (registry == null) {
+                    registry = new LocalRegistry(url);
+                }
+            }
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,99 @@
+package com.huangyuan.open.gray.benchmark.loadtest;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计配置服务访问数据库的次数、耗时（按mapper中statement的id分别统计）
+ *
+ * mybatis没有开启二级缓存，每次执行都会访问数据库，统计的次数即数据库的查询次数
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class QueryCountInterceptor implements Interceptor {
+
+    private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            totalNanos.add(System.nanoTime() - start);
+            total.increment();
+
+            LongAdder count = counts.get(statement.getId());
+            if (count == null) {
+                LongAdder newCount = new LongAdder();
+                count = counts.putIfAbsent(statement.getId(), newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.increment();
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    /**
+     * 清空统计，预热结束后调用
+     */
+    public void reset() {
+        counts.clear();
+        total.reset();
+        totalNanos.reset();
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public double getMeanNanos() {
+        long count = total.sum();
+        return count == 0 ? 0.0D : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * statement的id（去掉namespace） -> 执行次数
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            String id = entry.getKey();
+            result.merge(id.substring(id.lastIndexOf('.') + 1), entry.getValue().sum(), Long::sum);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
+import com.alibaba.dubbo.rpc.RpcResult;
+
+/**
+ * 模拟RegistryDirectory.InvokerDelegate的invoker
+ *
+ * 灰度组件通过反射读取providerUrl字段获取提供方的group、application，
+ * 因此这里保留同名字段
+ */
+public class BenchmarkInvoker<T> implements Invoker<T> {
+
+    private final Class<T> type;
+
+    /**
+     * 合并了消费方参数的url
+     */
+    private final URL url;
+
+    /**
+     * 提供方注册的url
+     */
+    private final URL providerUrl;
+
+    public BenchmarkInvoker(Class<T> type, URL url, URL providerUrl) {
+        this.type = type;
+        this.url = url;
+        this.providerUrl = providerUrl;
+    }
+
+    @Override
+    public Class<T> getInterface() {
+        return type;
+    }
+
+    @Override
+    public Result invoke(Invocation invocation) throws RpcException {
+        return new RpcResult();
+    }
+
+    @Override
+    public URL getUrl() {
+        return url;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    public URL getProviderUrl() {
+        return providerUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "BenchmarkInvoker{" + providerUrl + "}";
+    }
+}
@@ -0,0 +1,9 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+/**
+ * 基准测试使用的服务接口
+ */
+public interface DemoService {
+
+    String sayHello(String name);
+}
@@ -0,0 +1,18 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+/**
+ * 压测使用的服务实现，返回提供方的名称，便于确认请求被路由到哪个分组
+ */
+public class DemoServiceImpl implements DemoService {
+
+    private final String name;
+
+    public DemoServiceImpl(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String sayHello(String name) {
+        return this.name;
+    }
+}
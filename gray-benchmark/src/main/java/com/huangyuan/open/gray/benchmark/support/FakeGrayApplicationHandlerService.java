@@ -0,0 +1,120 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+import com.huangyuan.open.gray.base.result.EserviceResult;
+import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+import com.huangyuan.open.gray.config.api.model.arg.ClassifyGrayFsEasArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationConfigNewArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationGroupConfigByEaArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayConfigChangesArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingConfigArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingSliceArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingVerdictArg;
+import com.huangyuan.open.gray.config.api.model.result.ClassifyGrayFsEasResult;
+import com.huangyuan.open.gray.config.api.model.result.GetGrayApplicationGroupConfigByEaResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangeResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangesResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingSliceResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingVerdictResult;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地模拟的灰度配置服务，只提供全量配置，并统计被调用的次数
+ * 基准测试中，灰度判断应当全部在本地快照上完成，其他接口不应该被调用
+ */
+public class FakeGrayApplicationHandlerService implements GrayApplicationHandlerService {
+
+    private final GrayRoutingConfigResult routingConfig;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    public FakeGrayApplicationHandlerService(GrayRoutingConfigResult routingConfig) {
+        this.routingConfig = routingConfig;
+    }
+
+    @Override
+    public EserviceResult<GrayApplicationResult> getGrayApplicationConfig(String applicationName) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<Boolean> checkGrayFsEa(String applicationName, String fsEa) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<GrayApplicationResult> getGrayApplicationConfigNew(GetGrayApplicationConfigNewArg arg) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<GetGrayApplicationGroupConfigByEaResult> getGrayApplicationGroupConfigByEa(GetGrayApplicationGroupConfigByEaArg arg) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<ClassifyGrayFsEasResult> classifyGrayFsEas(ClassifyGrayFsEasArg arg) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<GrayRoutingVerdictResult> getGrayRoutingVerdict(GetGrayRoutingVerdictArg arg) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<GrayRoutingSliceResult> getGrayRoutingSlice(GetGrayRoutingSliceArg arg) {
+        return notExists();
+    }
+
+    @Override
+    public EserviceResult<GrayRoutingConfigResult> getGrayRoutingConfig(GetGrayRoutingConfigArg arg) {
+        calls.incrementAndGet();
+        return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                GrayErrorCode.SUCCESS.getDescription(), routingConfig);
+    }
+
+    @Override
+    public EserviceResult<GrayConfigChangesResult> getGrayConfigChangesSince(GetGrayConfigChangesArg arg) {
+        calls.incrementAndGet();
+        GrayConfigChangesResult result = new GrayConfigChangesResult();
+        result.setVersion(routingConfig.getVersion());
+        result.setHasMore(false);
+        result.setFullSyncRequired(arg.getSinceVersion() > routingConfig.getVersion());
+        result.setChanges(new ArrayList<GrayConfigChangeResult>());
+        return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                GrayErrorCode.SUCCESS.getDescription(), result);
+    }
+
+    @Override
+    public EserviceResult<Long> subscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener) {
+        calls.incrementAndGet();
+        return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                GrayErrorCode.SUCCESS.getDescription(), routingConfig.getVersion());
+    }
+
+    @Override
+    public EserviceResult<Boolean> unsubscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener) {
+        calls.incrementAndGet();
+        return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                GrayErrorCode.SUCCESS.getDescription(), Boolean.TRUE);
+    }
+
+    /**
+     * 被调用的总次数
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    private <T> EserviceResult<T> notExists() {
+        calls.incrementAndGet();
+        return new EserviceResult<>(GrayErrorCode.GRAY_CONFIG_NOT_EXISTS.getErrorCode(),
+                GrayErrorCode.GRAY_CONFIG_NOT_EXISTS.getDescription());
+    }
+}
@@ -0,0 +1,192 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.huangyuan.open.gray.common.component.GrayComponent;
+import com.huangyuan.open.gray.common.support.GrayConfigHepler;
+import com.huangyuan.open.gray.common.support.GrayHandlerHelper;
+import com.huangyuan.open.gray.common.support.GrayRoutingSnapshotHolder;
+import com.huangyuan.open.gray.common.utils.SpringContextUtil;
+import com.huangyuan.open.gray.config.api.constant.StatusTypeEnum;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationGroupConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationInfoResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 基准测试的运行环境
+ *
+ * 使用本地模拟的配置服务启动灰度组件（不连接注册中心、配置服务），
+ * 并构造指定数量的invoker，其中每10个invoker有1个是灰度服务（轮流分配到各个灰度分组）。
+ * 灰度分组名称为gray1 ~ grayN，第g个分组的灰度企业为ea{g}_0 ~ ea{g}_{M-1}，
+ * 提供方服务绑定gray1，NOT_GRAY_EA不属于任何分组
+ */
+public class GrayBenchmarkContext implements Closeable {
+
+    public static final String CONSUMER_APPLICATION = "demo-consumer";
+
+    public static final String PROVIDER_APPLICATION = "demo-provider";
+
+    public static final String GRAY_GROUP = "gray1";
+
+    public static final Long GRAY_GROUP_ID = 1L;
+
+    public static final String NOT_GRAY_EA = "formal_ea";
+
+    private final AnnotationConfigApplicationContext applicationContext;
+
+    private final FakeGrayApplicationHandlerService grayApplicationHandlerService;
+
+    /**
+     * @param consumerGray 当前机器上的消费方是否灰度服务
+     */
+    public GrayBenchmarkContext(boolean consumerGray) {
+        this(consumerGray, 1, 2);
+    }
+
+    /**
+     * @param consumerGray 当前机器上的消费方是否灰度服务
+     * @param groupCount   灰度分组数量
+     * @param eaCount      每个灰度分组的企业数量
+     */
+    public GrayBenchmarkContext(boolean consumerGray, int groupCount, int eaCount) {
+        grayApplicationHandlerService = new FakeGrayApplicationHandlerService(
+                routingConfig(consumerGray, groupCount, eaCount));
+
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean(PropertySourcesPlaceholderConfigurer.class);
+        applicationContext.registerBean("grayApplicationHandlerService", GrayApplicationHandlerService.class,
+                new Supplier<GrayApplicationHandlerService>() {
+                    @Override
+                    public GrayApplicationHandlerService get() {
+                        return grayApplicationHandlerService;
+                    }
+                });
+        applicationContext.registerBean("grayConfigHepler", GrayConfigHepler.class);
+        applicationContext.registerBean("grayRoutingSnapshotHolder", GrayRoutingSnapshotHolder.class);
+        applicationContext.registerBean("grayHandlerHelper", GrayHandlerHelper.class);
+        applicationContext.registerBean("grayComponent", GrayComponent.class);
+        applicationContext.registerBean("graySpringContextUtil", SpringContextUtil.class);
+        applicationContext.refresh();
+    }
+
+    public GrayComponent getGrayComponent() {
+        return applicationContext.getBean("grayComponent", GrayComponent.class);
+    }
+
+    public FakeGrayApplicationHandlerService getGrayApplicationHandlerService() {
+        return grayApplicationHandlerService;
+    }
+
+    /**
+     * 消费方的url
+     */
+    public static URL consumerUrl() {
+        return URL.valueOf("consumer://" + GrayHandlerHelper.getLocalIp() + "/" + DemoService.class.getName()
+                + "?application=" + CONSUMER_APPLICATION + "&interface=" + DemoService.class.getName());
+    }
+
+    /**
+     * 构造invoker列表，每10个invoker有1个是灰度服务
+     *
+     * @param count invoker数量
+     */
+    public static List<Invoker<DemoService>> invokers(int count) {
+        return invokers(count, 1);
+    }
+
+    /**
+     * 第g个灰度分组的第i个企业
+     */
+    public static String grayEa(int group, int index) {
+        return "ea" + group + "_" + index;
+    }
+
+    /**
+     * 构造invoker列表，每10个invoker有1个是灰度服务，灰度服务轮流分配到各个灰度分组
+     *
+     * @param count      invoker数量
+     * @param groupCount 灰度分组数量
+     */
+    public static List<Invoker<DemoService>> invokers(int count, int groupCount) {
+        List<Invoker<DemoService>> invokers = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String address = "10.0." + (i / 250) + "." + (i % 250 + 1) + ":20880";
+            String path = "/" + DemoService.class.getName() + "?interface=" + DemoService.class.getName();
+
+            URL providerUrl = URL.valueOf("dubbo://" + address + path + "&application=" + PROVIDER_APPLICATION
+                    + ((i % 10 == 0) ? "&default.group=gray" + ((i / 10) % groupCount + 1) : ""));
+            URL url = URL.valueOf("dubbo://" + address + path + "&application=" + CONSUMER_APPLICATION);
+
+            invokers.add(new BenchmarkInvoker<>(DemoService.class, url, providerUrl));
+        }
+
+        return Collections.unmodifiableList(invokers);
+    }
+
+    /**
+     * 模拟配置服务返回的全量配置
+     *
+     * @param consumerGray 当前机器上的消费方是否灰度服务
+     * @param groupCount   灰度分组数量
+     * @param eaCount      每个灰度分组的企业数量
+     */
+    public static GrayRoutingConfigResult routingConfig(boolean consumerGray, int groupCount, int eaCount) {
+        List<GrayApplicationGroupConfigResult> groups = new ArrayList<>(groupCount);
+        for (int g = 1; g <= groupCount; g++) {
+            StringBuilder fsEas = new StringBuilder();
+            for (int i = 0; i < eaCount; i++) {
+                if (i > 0) {
+                    fsEas.append(';');
+                }
+                fsEas.append(grayEa(g, i));
+            }
+
+            GrayApplicationGroupConfigResult group = new GrayApplicationGroupConfigResult();
+            group.setId((long) g);
+            group.setGroupName("gray" + g);
+            group.setStatus(StatusTypeEnum.OPEN.getTypeCode());
+            group.setFsEas(fsEas.toString());
+            groups.add(group);
+        }
+
+        GrayApplicationInfoResult consumer = new GrayApplicationInfoResult();
+        consumer.setId(1L);
+        consumer.setApplicationName(CONSUMER_APPLICATION);
+        consumer.setGroupId(GRAY_GROUP_ID);
+        consumer.setStatus(StatusTypeEnum.OPEN.getTypeCode());
+        consumer.setIpAddress(consumerGray ? GrayHandlerHelper.getLocalIp() : "127.0.0.2");
+
+        GrayApplicationInfoResult provider = new GrayApplicationInfoResult();
+        provider.setId(2L);
+        provider.setApplicationName(PROVIDER_APPLICATION);
+        provider.setGroupId(GRAY_GROUP_ID);
+        provider.setStatus(StatusTypeEnum.OPEN.getTypeCode());
+        provider.setIpAddress("10.0.0.1");
+
+        List<GrayApplicationInfoResult> applicationInfos = new ArrayList<>();
+        applicationInfos.add(consumer);
+        applicationInfos.add(provider);
+
+        GrayRoutingConfigResult config = new GrayRoutingConfigResult();
+        config.setVersion(1L);
+        config.setApplicationInfos(applicationInfos);
+        config.setGroupConfigs(groups);
+
+        return config;
+    }
+
+    @Override
+    public void close() {
+        applicationContext.close();
+    }
+}
@@ -0,0 +1,20 @@
+package com.huangyuan.open.gray.benchmark.support;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.huangyuan.open.gray.common.component.api.CustomLoadBalance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机选择的负载均衡，开销可以忽略，基准测试的结果基本都是灰度筛选的开销
+ */
+public class RandomCustomLoadBalance implements CustomLoadBalance {
+
+    @Override
+    public <T> Invoker<T> superFilterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation) {
+        return invokers.get(ThreadLocalRandom.current().nextInt(invokers.size()));
+    }
+}
@@ -0,0 +1,66 @@
+-- ConfigProviderLoadTest使用的内存数据库（H2，MySQL兼容模式）表结构，字段与线上的MySQL表保持一致
+CREATE TABLE IF NOT EXISTS `gray_application_group_config` (
+  `id`          BIGINT          NOT NULL AUTO_INCREMENT,
+  `group_name`  VARCHAR(64)     NOT NULL,
+  `fs_eas`      VARCHAR(1000000) NULL,
+  `rollout_threshold` INT       NOT NULL DEFAULT 0,
+  `rollout_salt` VARCHAR(64)     NOT NULL DEFAULT '',
+  `create_time` BIGINT          NULL,
+  `update_time` BIGINT          NULL,
+  `status`      INT             NULL,
+  `describe`    VARCHAR(255)    NULL,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `gray_application_info` (
+  `id`               BIGINT          NOT NULL AUTO_INCREMENT,
+  `application_name` VARCHAR(128)    NOT NULL,
+  `group_id`         BIGINT          NULL,
+  `ip_address`       VARCHAR(1000000) NULL,
+  `create_time`      BIGINT          NULL,
+  `update_time`      BIGINT          NULL,
+  `status`           INT             NULL,
+  `describe`         VARCHAR(255)    NULL,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `gray_application_ip_config` (
+  `id`             BIGINT       NOT NULL AUTO_INCREMENT,
+  `ip_address`     VARCHAR(64)  NOT NULL,
+  `application_id` BIGINT       NOT NULL,
+  `create_time`    BIGINT       NULL,
+  `update_time`    BIGINT       NULL,
+  `describe`       VARCHAR(255) NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_application_ip` (`application_id`, `ip_address`)
+);
+
+CREATE TABLE IF NOT EXISTS `gray_application_ea_info` (
+  `id`          BIGINT       NOT NULL AUTO_INCREMENT,
+  `fs_ea`       VARCHAR(64)  NOT NULL,
+  `ea_name`     VARCHAR(128) NULL,
+  `create_time` BIGINT       NULL,
+  `update_time` BIGINT       NULL,
+  `describe`    VARCHAR(255) NULL,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `gray_group_ea` (
+  `id`          BIGINT      NOT NULL AUTO_INCREMENT,
+  `group_id`    BIGINT      NOT NULL,
+  `fs_ea`       VARCHAR(64) NOT NULL,
+  `create_time` BIGINT      NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_group_ea` (`group_id`, `fs_ea`),
+  KEY `idx_fs_ea` (`fs_ea`)
+);
+
+CREATE TABLE IF NOT EXISTS `gray_config_change_log` (
+  `id`          BIGINT          NOT NULL AUTO_INCREMENT,
+  `config_type` TINYINT         NOT NULL,
+  `config_id`   BIGINT          NOT NULL,
+  `operation`   TINYINT         NOT NULL,
+  `content`     VARCHAR(1000000) NULL,
+  `create_time` BIGINT          NOT NULL,
+  PRIMARY KEY (`id`)
+);
@@ -51,6 +51,7 @@
                                     <th>序号</th>
                                     <th>分组名称</th>
                                     <th>灰度企业</th>
+                                    <th>灰度比例（万分之一）</th>
                                     <th>状态</th>
                                     <th>备注</th>
                                     <th>更新时间</th>
@@ -64,6 +65,7 @@
                                     <td>${vs.index + 1 + (page.currentPage - 1)*page.pageSize}</td>
                                     <td>${item.groupName}</td>
                                     <td style="width: 1000px;word-wrap: break-word;word-break:break-all;">${item.fsEas}</td>
+                                    <td class="center">${item.rolloutThreshold}</td>
                                     <td class="center">${item.status == 1 ? "开启"
                                     	: item.status == 2 ? "关闭"  : ""}</td>
                                     <td class="center">${item.describe}</td>
@@ -71,7 +73,7 @@
                                     <td class="center">${fsfun:parseLongCalendarString(item.createTime)}</td>
                                     <td class="center">
                                         <button type="button" class="btn btn-primary"
-                                                onclick="updateGrayGroup('${item.id}', '${item.groupName}', '${item.status}','${item.describe}','${item.fsEas}')">
+                                                onclick="updateGrayGroup('${item.id}', '${item.groupName}', '${item.status}','${item.describe}','${item.fsEas}','${item.rolloutThreshold}','${item.rolloutSalt}')">
                                             修改详情信息
                                         </button>
                                         <button type="button" class="btn btn-primary"
@@ -110,6 +112,14 @@
                             <label class="form-inline" >灰度企业</label>
                             <textarea  class="form-control" name="fsEas" style="height: 300px;"></textarea>
                         </div>
+                        <div class="form-group " >
+                            <label class="form-inline" >灰度比例（万分之一，0 ~ 10000，不在灰度企业中的企业按比例灰度）</label>
+                            <input  type=text class="form-control" name="rolloutThreshold" placeholder="0">
+                        </div>
+                        <div class="form-group " >
+                            <label class="form-inline" >灰度比例的盐（为空时使用分组id，修改后重新打散全部企业）</label>
+                            <input  type=text class="form-control" name="rolloutSalt">
+                        </div>
                         <div class="form-group " >
                             <label class="form-inline" >状态</label>
                             <select name="status" class="form-control">
@@ -148,14 +158,18 @@ function addGaryGroup() {
     $("input[name='groupName']").val("");
     $("input[name='status']").val("");
     $("input[name='describe']").val("");
+    $("input[name='rolloutThreshold']").val("");
+    $("input[name='rolloutSalt']").val("");
     $("#groupModal").modal();
 }
-function updateGrayGroup(id, groupName, status, describe, fsEas) {
+function updateGrayGroup(id, groupName, status, describe, fsEas, rolloutThreshold, rolloutSalt) {
     $("#id").val(id);
     $("#myModalLabel").val("修改灰度服务分组");
     $("input[name='groupName']").val(groupName);
     $("input[name='describe']").val(describe);
     $("textarea[name='fsEas']").val(fsEas);
+    $("input[name='rolloutThreshold']").val(rolloutThreshold);
+    $("input[name='rolloutSalt']").val(rolloutSalt);
     $("select[name='status']").find("option").each(function(){
         if (this.value == status) {
             $(this).prop("selected", true);
@@ -0,0 +1,40 @@
+package com.huangyuan.open.gray.config.api.constant;
+
+/**
+ * 灰度配置的变更操作
+ */
+public enum GrayConfigOperationEnum {
+    // 新增
+    INSERT(1, "新增"),
+
+    // 修改
+    UPDATE(2, "修改"),
+
+    // 删除
+    DELETE(3, "删除"),;
+
+    private Integer typeCode;
+    private String typeDesc;
+
+    GrayConfigOperationEnum(Integer typeCode, String typeDesc) {
+        this.typeCode = typeCode;
+        this.typeDesc = typeDesc;
+    }
+
+    public Integer getTypeCode() {
+        return typeCode;
+    }
+
+    public String getTypeDesc() {
+        return typeDesc;
+    }
+
+    public static GrayConfigOperationEnum getByTypeCode(Integer typeCode) {
+        for (GrayConfigOperationEnum operationEnum : values()) {
+            if (operationEnum.typeCode.equals(typeCode)) {
+                return operationEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.huangyuan.open.gray.config.api.constant;
+
+/**
+ * 灰度配置的类型（变更日志中记录的配置类型）
+ */
+public enum GrayConfigTypeEnum {
+    // 灰度服务
+    APPLICATION_INFO(1, "灰度服务"),
+
+    // 灰度分组
+    APPLICATION_GROUP(2, "灰度分组"),
+
+    // 灰度服务的机器IP
+    APPLICATION_IP(3, "灰度机器"),
+
+    // 灰度企业
+    APPLICATION_EA(4, "灰度企业"),;
+
+    private Integer typeCode;
+    private String typeDesc;
+
+    GrayConfigTypeEnum(Integer typeCode, String typeDesc) {
+        this.typeCode = typeCode;
+        this.typeDesc = typeDesc;
+    }
+
+    public Integer getTypeCode() {
+        return typeCode;
+    }
+
+    public String getTypeDesc() {
+        return typeDesc;
+    }
+
+    public static GrayConfigTypeEnum getByTypeCode(Integer typeCode) {
+        for (GrayConfigTypeEnum typeEnum : values()) {
+            if (typeEnum.typeCode.equals(typeCode)) {
+                return typeEnum;
+            }
+        }
+        return null;
+    }
+}
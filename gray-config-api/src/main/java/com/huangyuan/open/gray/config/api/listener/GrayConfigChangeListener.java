@@ -0,0 +1,19 @@
+package com.huangyuan.open.gray.config.api.listener;
+
+import com.huangyuan.open.gray.config.api.model.event.GrayConfigChangeEvent;
+
+/**
+ * 灰度配置变更监听器
+ *
+ * 作为dubbo回调参数传给 GrayApplicationHandlerService.subscribeGrayConfigChange，
+ * 配置变更后由配置服务回调到订阅方
+ */
+public interface GrayConfigChangeListener {
+
+    /**
+     * 灰度配置发生变更
+     *
+     * @param event 变更事件，包含变更后的配置版本号
+     */
+    void onChange(GrayConfigChangeEvent event);
+}
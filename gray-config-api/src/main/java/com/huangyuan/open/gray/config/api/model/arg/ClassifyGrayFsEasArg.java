@@ -0,0 +1,48 @@
+package com.huangyuan.open.gray.config.api.model.arg;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class ClassifyGrayFsEasArg implements Serializable {
+
+    /**
+     * 一次最多判断的企业数，超过时调用方需要分批
+     */
+    public static final int MAX_SIZE = 5000;
+
+    /**
+     * 提供方的应用名称 【非必填】
+     *     填写时，按该服务判断企业是否灰度（与checkGrayFsEa一致）；
+     *     不填时，企业所在的灰度分组已开启即为灰度
+     */
+    private String providerApplicationName;
+
+    /**
+     * 企业账号列表 【必填】，最多MAX_SIZE个
+     */
+    private List<String> fsEas;
+
+    public String getProviderApplicationName() {
+        return providerApplicationName;
+    }
+
+    public void setProviderApplicationName(String providerApplicationName) {
+        this.providerApplicationName = providerApplicationName;
+    }
+
+    public List<String> getFsEas() {
+        return fsEas;
+    }
+
+    public void setFsEas(List<String> fsEas) {
+        this.fsEas = fsEas;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassifyGrayFsEasArg{" +
+                "providerApplicationName='" + providerApplicationName + '\'' +
+                ", fsEas=" + (fsEas == null ? 0 : fsEas.size()) +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.huangyuan.open.gray.config.api.model.arg;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * @author huangy on 2019-09-12
@@ -34,6 +35,23 @@ public class GetGrayApplicationConfigNewArg implements Serializable {
         this.ip = ip;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+        GetGrayApplicationConfigNewArg that = (GetGrayApplicationConfigNewArg) o;
+        return Objects.equals(applicationName, that.applicationName) && Objects.equals(ip, that.ip);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(applicationName, ip);
+    }
+
     @Override
     public String toString() {
         return "GetGrayApplicationConfigNewArg{" +
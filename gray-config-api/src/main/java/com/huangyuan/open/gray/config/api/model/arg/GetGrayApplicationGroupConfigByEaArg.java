@@ -1,6 +1,7 @@
 package com.huangyuan.open.gray.config.api.model.arg;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * @author huangy on 2019-09-12
@@ -17,6 +18,23 @@ public class GetGrayApplicationGroupConfigByEaArg implements Serializable {
         this.fsEa = fsEa;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+        GetGrayApplicationGroupConfigByEaArg that = (GetGrayApplicationGroupConfigByEaArg) o;
+        return Objects.equals(fsEa, that.fsEa);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(fsEa);
+    }
+
     @Override
     public String toString() {
         return "GetGrayApplicationGroupConfigByEaArg{" +
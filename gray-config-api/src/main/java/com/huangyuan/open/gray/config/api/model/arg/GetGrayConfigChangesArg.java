@@ -0,0 +1,54 @@
+package com.huangyuan.open.gray.config.api.model.arg;
+
+import java.io.Serializable;
+
+public class GetGrayConfigChangesArg implements Serializable {
+
+    /**
+     * 订阅方已经同步到的版本号，返回比该版本号新的变更 【必填】
+     */
+    private Long sinceVersion;
+
+    /**
+     * 一次最多返回的变更条数，不填使用默认值
+     */
+    private Integer limit;
+
+    /**
+     * 拉取变更的应用名称，用于排查问题
+     */
+    private String applicationName;
+
+    public Long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public void setSinceVersion(Long sinceVersion) {
+        this.sinceVersion = sinceVersion;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    @Override
+    public String toString() {
+        return "GetGrayConfigChangesArg{" +
+                "sinceVersion=" + sinceVersion +
+                ", limit=" + limit +
+                ", applicationName='" + applicationName + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.huangyuan.open.gray.config.api.model.arg;
+
+import java.io.Serializable;
+
+public class GetGrayRoutingConfigArg implements Serializable {
+
+    /**
+     * 拉取配置的应用名称，用于排查问题
+     */
+    private String applicationName;
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    @Override
+    public String toString() {
+        return "GetGrayRoutingConfigArg{" +
+                "applicationName='" + applicationName + '\'' +
+                '}';
+    }
+}
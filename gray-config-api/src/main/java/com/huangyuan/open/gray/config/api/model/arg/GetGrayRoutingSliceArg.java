@@ -0,0 +1,40 @@
+package com.huangyuan.open.gray.config.api.model.arg;
+
+import java.io.Serializable;
+
+public class GetGrayRoutingSliceArg implements Serializable {
+
+    /**
+     * 应用名称 【必填】
+     */
+    private String applicationName;
+
+    /**
+     * 机器ip 【必填】
+     */
+    private String ip;
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    @Override
+    public String toString() {
+        return "GetGrayRoutingSliceArg{" +
+                "applicationName='" + applicationName + '\'' +
+                ", ip='" + ip + '\'' +
+                '}';
+    }
+}
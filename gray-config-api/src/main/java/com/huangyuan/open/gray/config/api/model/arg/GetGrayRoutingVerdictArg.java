@@ -0,0 +1,83 @@
+package com.huangyuan.open.gray.config.api.model.arg;
+
+import java.io.Serializable;
+
+public class GetGrayRoutingVerdictArg implements Serializable {
+
+    /**
+     * 消费方的应用名称 【必填】
+     */
+    private String consumerApplicationName;
+
+    /**
+     * 提供方的应用名称 【必填】
+     */
+    private String providerApplicationName;
+
+    /**
+     * 消费方的机器ip 【必填】
+     */
+    private String ip;
+
+    /**
+     * 企业账号 【非必填】
+     */
+    private String fsEa;
+
+    /**
+     * 调用的接口，形如 接口名#方法名 【非必填】
+     *     灰度接口列表在gray-core本地配置，这里只用于排查问题
+     */
+    private String invokeInterface;
+
+    public String getConsumerApplicationName() {
+        return consumerApplicationName;
+    }
+
+    public void setConsumerApplicationName(String consumerApplicationName) {
+        this.consumerApplicationName = consumerApplicationName;
+    }
+
+    public String getProviderApplicationName() {
+        return providerApplicationName;
+    }
+
+    public void setProviderApplicationName(String providerApplicationName) {
+        this.providerApplicationName = providerApplicationName;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    public String getFsEa() {
+        return fsEa;
+    }
+
+    public void setFsEa(String fsEa) {
+        this.fsEa = fsEa;
+    }
+
+    public String getInvokeInterface() {
+        return invokeInterface;
+    }
+
+    public void setInvokeInterface(String invokeInterface) {
+        this.invokeInterface = invokeInterface;
+    }
+
+    @Override
+    public String toString() {
+        return "GetGrayRoutingVerdictArg{" +
+                "consumerApplicationName='" + consumerApplicationName + '\'' +
+                ", providerApplicationName='" + providerApplicationName + '\'' +
+                ", ip='" + ip + '\'' +
+                ", fsEa='" + fsEa + '\'' +
+                ", invokeInterface='" + invokeInterface + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package com.huangyuan.open.gray.config.api.model.event;
+
+import java.io.Serializable;
+
+/**
+ * 灰度配置变更事件
+ */
+public class GrayConfigChangeEvent implements Serializable {
+
+    /**
+     * 变更后的配置版本号
+     */
+    private Long version;
+
+    /**
+     * 变更时间
+     */
+    private Long changeTime;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getChangeTime() {
+        return changeTime;
+    }
+
+    public void setChangeTime(Long changeTime) {
+        this.changeTime = changeTime;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayConfigChangeEvent{" +
+                "version=" + version +
+                ", changeTime=" + changeTime +
+                '}';
+    }
+}
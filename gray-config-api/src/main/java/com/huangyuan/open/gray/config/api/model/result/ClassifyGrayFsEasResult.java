@@ -0,0 +1,97 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量判断企业的结果
+ *
+ * 为了减少传输的数据量，不按企业返回分组名称：
+ *  （1）groupNames是结果中出现的分组名称（每个名称只出现一次）
+ *  （2）groupIndexes与请求的企业列表一一对应，是分组名称在groupNames中的下标，-1表示不属于任何分组
+ *  （3）grayFlags按位保存是否灰度，第i个企业对应第i/8个字节的第i%8位
+ */
+public class ClassifyGrayFsEasResult implements Serializable {
+
+    /**
+     * 配置版本号
+     */
+    private Long version;
+
+    /**
+     * 分组名称
+     */
+    private List<String> groupNames;
+
+    /**
+     * 每个企业所在分组的下标，-1表示不属于任何分组
+     */
+    private int[] groupIndexes;
+
+    /**
+     * 每个企业是否灰度（按位保存）
+     */
+    private byte[] grayFlags;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    public void setGroupNames(List<String> groupNames) {
+        this.groupNames = groupNames;
+    }
+
+    public int[] getGroupIndexes() {
+        return groupIndexes;
+    }
+
+    public void setGroupIndexes(int[] groupIndexes) {
+        this.groupIndexes = groupIndexes;
+    }
+
+    public byte[] getGrayFlags() {
+        return grayFlags;
+    }
+
+    public void setGrayFlags(byte[] grayFlags) {
+        this.grayFlags = grayFlags;
+    }
+
+    /**
+     * 第i个企业所在的分组名称
+     *
+     * @param i 企业在请求列表中的下标
+     * @return 分组名称，不属于任何分组时返回null
+     */
+    public String groupNameOf(int i) {
+        int index = groupIndexes[i];
+        return index < 0 ? null : groupNames.get(index);
+    }
+
+    /**
+     * 第i个企业是否灰度
+     *
+     * @param i 企业在请求列表中的下标
+     * @return true-灰度
+     */
+    public boolean isGray(int i) {
+        return (grayFlags[i >>> 3] & (1 << (i & 7))) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassifyGrayFsEasResult{" +
+                "version=" + version +
+                ", groupNames=" + groupNames +
+                ", size=" + (groupIndexes == null ? 0 : groupIndexes.length) +
+                '}';
+    }
+}
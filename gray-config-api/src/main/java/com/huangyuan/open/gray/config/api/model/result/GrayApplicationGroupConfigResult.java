@@ -19,6 +19,16 @@ public class GrayApplicationGroupConfigResult implements Serializable{
      */
     private String fsEas;
 
+    /**
+     * 按比例灰度的阈值（万分之一，0 ~ 10000），0表示不按比例灰度
+     */
+    private Integer rolloutThreshold;
+
+    /**
+     * 按比例灰度的盐，为空时使用分组id；修改后会重新打散全部企业
+     */
+    private String rolloutSalt;
+
     /**
      * 状态 （1：开启 2：关闭）
      */
@@ -95,12 +105,30 @@ public class GrayApplicationGroupConfigResult implements Serializable{
         this.describe = describe;
     }
 
+    public Integer getRolloutThreshold() {
+        return rolloutThreshold;
+    }
+
+    public void setRolloutThreshold(Integer rolloutThreshold) {
+        this.rolloutThreshold = rolloutThreshold;
+    }
+
+    public String getRolloutSalt() {
+        return rolloutSalt;
+    }
+
+    public void setRolloutSalt(String rolloutSalt) {
+        this.rolloutSalt = rolloutSalt;
+    }
+
     @Override
     public String toString() {
         return "GrayApplicationGroupConfigDO{" +
                 "id=" + id +
                 ", groupName='" + groupName + '\'' +
                 ", fsEas='" + fsEas + '\'' +
+                ", rolloutThreshold=" + rolloutThreshold +
+                ", rolloutSalt='" + rolloutSalt + '\'' +
                 ", status=" + status +
                 ", createTime=" + createTime +
                 ", updateTime=" + updateTime +
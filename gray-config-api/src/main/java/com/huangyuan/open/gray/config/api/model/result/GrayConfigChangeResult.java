@@ -0,0 +1,111 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+
+/**
+ * 一条灰度配置变更
+ */
+public class GrayConfigChangeResult implements Serializable {
+
+    /**
+     * 变更后的配置版本号
+     */
+    private Long version;
+
+    /**
+     * 配置类型，参考GrayConfigTypeEnum
+     */
+    private Integer configType;
+
+    /**
+     * 变更的配置记录id
+     */
+    private Long configId;
+
+    /**
+     * 变更操作，参考GrayConfigOperationEnum
+     */
+    private Integer operation;
+
+    /**
+     * 变更时间
+     */
+    private Long changeTime;
+
+    /**
+     * 变更后的灰度服务配置，配置类型为灰度服务、并且不是删除操作时才有值
+     */
+    private GrayApplicationInfoResult applicationInfo;
+
+    /**
+     * 变更后的灰度分组配置，配置类型为灰度分组、并且不是删除操作时才有值
+     */
+    private GrayApplicationGroupConfigResult groupConfig;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getConfigType() {
+        return configType;
+    }
+
+    public void setConfigType(Integer configType) {
+        this.configType = configType;
+    }
+
+    public Long getConfigId() {
+        return configId;
+    }
+
+    public void setConfigId(Long configId) {
+        this.configId = configId;
+    }
+
+    public Integer getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Integer operation) {
+        this.operation = operation;
+    }
+
+    public Long getChangeTime() {
+        return changeTime;
+    }
+
+    public void setChangeTime(Long changeTime) {
+        this.changeTime = changeTime;
+    }
+
+    public GrayApplicationInfoResult getApplicationInfo() {
+        return applicationInfo;
+    }
+
+    public void setApplicationInfo(GrayApplicationInfoResult applicationInfo) {
+        this.applicationInfo = applicationInfo;
+    }
+
+    public GrayApplicationGroupConfigResult getGroupConfig() {
+        return groupConfig;
+    }
+
+    public void setGroupConfig(GrayApplicationGroupConfigResult groupConfig) {
+        this.groupConfig = groupConfig;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayConfigChangeResult{" +
+                "version=" + version +
+                ", configType=" + configType +
+                ", configId=" + configId +
+                ", operation=" + operation +
+                ", changeTime=" + changeTime +
+                '}';
+    }
+}
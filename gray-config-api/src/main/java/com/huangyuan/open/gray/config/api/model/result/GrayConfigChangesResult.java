@@ -0,0 +1,72 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 某个版本号之后的灰度配置变更（增量配置）
+ */
+public class GrayConfigChangesResult implements Serializable {
+
+    /**
+     * 应用完本次返回的变更后，订阅方所处的版本号
+     */
+    private Long version;
+
+    /**
+     * 是否还有更多变更，为true时订阅方以version继续拉取
+     */
+    private Boolean hasMore;
+
+    /**
+     * 是否需要重新拉取全量配置（订阅方的版本号已经无法通过增量追上，比如变更日志已经被清理）
+     */
+    private Boolean fullSyncRequired;
+
+    /**
+     * 按版本号从小到大排列的变更
+     */
+    private List<GrayConfigChangeResult> changes;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public Boolean getFullSyncRequired() {
+        return fullSyncRequired;
+    }
+
+    public void setFullSyncRequired(Boolean fullSyncRequired) {
+        this.fullSyncRequired = fullSyncRequired;
+    }
+
+    public List<GrayConfigChangeResult> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<GrayConfigChangeResult> changes) {
+        this.changes = changes;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayConfigChangesResult{" +
+                "version=" + version +
+                ", hasMore=" + hasMore +
+                ", fullSyncRequired=" + fullSyncRequired +
+                ", changes=" + (changes == null ? 0 : changes.size()) +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 灰度路由的全量配置，供gray-core在本地构建路由快照
+ */
+public class GrayRoutingConfigResult implements Serializable {
+
+    /**
+     * 配置版本号，每次配置变更后递增
+     */
+    private Long version;
+
+    /**
+     * 全部灰度服务配置
+     */
+    private List<GrayApplicationInfoResult> applicationInfos;
+
+    /**
+     * 全部灰度分组配置
+     */
+    private List<GrayApplicationGroupConfigResult> groupConfigs;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<GrayApplicationInfoResult> getApplicationInfos() {
+        return applicationInfos;
+    }
+
+    public void setApplicationInfos(List<GrayApplicationInfoResult> applicationInfos) {
+        this.applicationInfos = applicationInfos;
+    }
+
+    public List<GrayApplicationGroupConfigResult> getGroupConfigs() {
+        return groupConfigs;
+    }
+
+    public void setGroupConfigs(List<GrayApplicationGroupConfigResult> groupConfigs) {
+        this.groupConfigs = groupConfigs;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayRoutingConfigResult{" +
+                "version=" + version +
+                ", applicationInfos=" + (applicationInfos == null ? 0 : applicationInfos.size()) +
+                ", groupConfigs=" + (groupConfigs == null ? 0 : groupConfigs.size()) +
+                '}';
+    }
+}
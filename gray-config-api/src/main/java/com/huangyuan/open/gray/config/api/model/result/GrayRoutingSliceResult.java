@@ -0,0 +1,86 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 与某个应用、某台机器相关的灰度配置，供不持有全量配置的调用方在本地缓存
+ */
+public class GrayRoutingSliceResult implements Serializable {
+
+    /**
+     * 配置版本号，版本号变化后需要重新拉取
+     */
+    private Long version;
+
+    /**
+     * 该应用的全部灰度服务配置
+     */
+    private List<GrayApplicationInfoResult> applicationInfos;
+
+    /**
+     * applicationInfos引用的灰度分组配置
+     */
+    private List<GrayApplicationGroupConfigResult> groupConfigs;
+
+    /**
+     * 该机器是否灰度机器
+     */
+    private Boolean gray;
+
+    /**
+     * 该机器所在的灰度分组，不在任何灰度分组时为null
+     */
+    private String grayGroup;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<GrayApplicationInfoResult> getApplicationInfos() {
+        return applicationInfos;
+    }
+
+    public void setApplicationInfos(List<GrayApplicationInfoResult> applicationInfos) {
+        this.applicationInfos = applicationInfos;
+    }
+
+    public List<GrayApplicationGroupConfigResult> getGroupConfigs() {
+        return groupConfigs;
+    }
+
+    public void setGroupConfigs(List<GrayApplicationGroupConfigResult> groupConfigs) {
+        this.groupConfigs = groupConfigs;
+    }
+
+    public Boolean getGray() {
+        return gray;
+    }
+
+    public void setGray(Boolean gray) {
+        this.gray = gray;
+    }
+
+    public String getGrayGroup() {
+        return grayGroup;
+    }
+
+    public void setGrayGroup(String grayGroup) {
+        this.grayGroup = grayGroup;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayRoutingSliceResult{" +
+                "version=" + version +
+                ", applicationInfos=" + (applicationInfos == null ? 0 : applicationInfos.size()) +
+                ", groupConfigs=" + (groupConfigs == null ? 0 : groupConfigs.size()) +
+                ", gray=" + gray +
+                ", grayGroup='" + grayGroup + '\'' +
+                '}';
+    }
+}
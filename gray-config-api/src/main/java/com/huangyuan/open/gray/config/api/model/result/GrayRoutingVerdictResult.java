@@ -0,0 +1,117 @@
+package com.huangyuan.open.gray.config.api.model.result;
+
+import java.io.Serializable;
+
+/**
+ * 一次调用的灰度判断结果
+ *
+ * 有企业账号时，按企业判断（对应checkGrayFsEa、getGrayApplicationGroupConfigByEa）；
+ * 没有企业账号时，按消费方机器判断（对应getGrayApplicationConfigNew）。
+ * 灰度接口列表在gray-core本地配置，不在这里判断
+ */
+public class GrayRoutingVerdictResult implements Serializable {
+
+    /**
+     * 配置版本号
+     */
+    private Long version;
+
+    /**
+     * 是否走灰度服务
+     */
+    private Boolean gray;
+
+    /**
+     * 灰度分组名称，没有时为null
+     */
+    private String grayGroup;
+
+    /**
+     * 消费方机器是否灰度机器
+     */
+    private Boolean consumerGray;
+
+    /**
+     * 消费方机器所在的灰度分组
+     */
+    private String consumerGroup;
+
+    /**
+     * 企业对于提供方服务是否灰度企业，没有企业账号时为null
+     */
+    private Boolean eaGray;
+
+    /**
+     * 企业所在的灰度分组，没有企业账号时为null
+     */
+    private String eaGroup;
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Boolean getGray() {
+        return gray;
+    }
+
+    public void setGray(Boolean gray) {
+        this.gray = gray;
+    }
+
+    public String getGrayGroup() {
+        return grayGroup;
+    }
+
+    public void setGrayGroup(String grayGroup) {
+        this.grayGroup = grayGroup;
+    }
+
+    public Boolean getConsumerGray() {
+        return consumerGray;
+    }
+
+    public void setConsumerGray(Boolean consumerGray) {
+        this.consumerGray = consumerGray;
+    }
+
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+    public void setConsumerGroup(String consumerGroup) {
+        this.consumerGroup = consumerGroup;
+    }
+
+    public Boolean getEaGray() {
+        return eaGray;
+    }
+
+    public void setEaGray(Boolean eaGray) {
+        this.eaGray = eaGray;
+    }
+
+    public String getEaGroup() {
+        return eaGroup;
+    }
+
+    public void setEaGroup(String eaGroup) {
+        this.eaGroup = eaGroup;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayRoutingVerdictResult{" +
+                "version=" + version +
+                ", gray=" + gray +
+                ", grayGroup='" + grayGroup + '\'' +
+                ", consumerGray=" + consumerGray +
+                ", consumerGroup='" + consumerGroup + '\'' +
+                ", eaGray=" + eaGray +
+                ", eaGroup='" + eaGroup + '\'' +
+                '}';
+    }
+}
@@ -1,9 +1,20 @@
 package com.huangyuan.open.gray.config.api.service;
 
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+import com.huangyuan.open.gray.config.api.model.arg.ClassifyGrayFsEasArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationConfigNewArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationGroupConfigByEaArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayConfigChangesArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingConfigArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingSliceArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingVerdictArg;
+import com.huangyuan.open.gray.config.api.model.result.ClassifyGrayFsEasResult;
 import com.huangyuan.open.gray.config.api.model.result.GetGrayApplicationGroupConfigByEaResult;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangesResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingSliceResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingVerdictResult;
 import com.huangyuan.open.gray.base.result.EserviceResult;
 
 public interface GrayApplicationHandlerService {
@@ -40,4 +51,63 @@ public interface GrayApplicationHandlerService {
      */
     EserviceResult<GetGrayApplicationGroupConfigByEaResult> getGrayApplicationGroupConfigByEa(GetGrayApplicationGroupConfigByEaArg arg);
 
+    /**
+     * 批量判断企业是否灰度、所在的灰度分组
+     *      供批处理任务、MQ消费者使用，代替按企业逐个调用checkGrayFsEa、getGrayApplicationGroupConfigByEa
+     * @param arg 企业账号列表必填（最多ClassifyGrayFsEasArg.MAX_SIZE个），提供方应用选填
+     * @return ClassifyGrayFsEasResult 与企业列表一一对应的判断结果
+     */
+    EserviceResult<ClassifyGrayFsEasResult> classifyGrayFsEas(ClassifyGrayFsEasArg arg);
+
+    /**
+     * 一次查询得到某次调用的灰度判断
+     *      代替checkGrayFsEa、getGrayApplicationGroupConfigByEa、getGrayApplicationConfigNew三次调用
+     * @param arg 消费方应用、提供方应用、消费方ip必填，企业账号、调用接口选填
+     * @return GrayRoutingVerdictResult 灰度判断
+     */
+    EserviceResult<GrayRoutingVerdictResult> getGrayRoutingVerdict(GetGrayRoutingVerdictArg arg);
+
+    /**
+     * 查询与某个应用、某台机器相关的灰度配置（该应用的灰度服务配置及其分组）
+     *      供不持有全量配置的调用方在本地缓存，版本号变化后重新拉取
+     * @param arg 应用名称、ip必填
+     * @return GrayRoutingSliceResult 相关配置
+     */
+    EserviceResult<GrayRoutingSliceResult> getGrayRoutingSlice(GetGrayRoutingSliceArg arg);
+
+    /**
+     * 查询灰度路由的全量配置（全部灰度服务、全部灰度分组）
+     *      gray-core启动时拉取一次，之后定时刷新，在本地完成灰度判断
+     * @param arg 拉取方信息，可为空
+     * @return GrayRoutingConfigResult 全量配置
+     */
+    EserviceResult<GrayRoutingConfigResult> getGrayRoutingConfig(GetGrayRoutingConfigArg arg);
+
+    /**
+     * 查询某个版本号之后的灰度配置变更（增量配置）
+     *      订阅方持有全量配置及其版本号后，只需要拉取增量变更；
+     *      返回fullSyncRequired=true时，订阅方需要重新调用getGrayRoutingConfig拉取全量配置
+     * @param arg sinceVersion必填
+     * @return GrayConfigChangesResult 增量变更
+     */
+    EserviceResult<GrayConfigChangesResult> getGrayConfigChangesSince(GetGrayConfigChangesArg arg);
+
+    /**
+     * 订阅灰度配置变更（dubbo回调）
+     *      配置变更后，配置服务通过listener推送变更事件，订阅方收到事件后再拉取全量配置；
+     *      重复订阅同一个listener是幂等的，订阅方可以定时重新订阅，用于配置服务重启后恢复订阅
+     * @param applicationName 订阅方的应用名称 【必填】
+     * @param listener        变更监听器      【必填】
+     * @return Long 当前的配置版本号
+     */
+    EserviceResult<Long> subscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener);
+
+    /**
+     * 取消订阅灰度配置变更
+     * @param applicationName 订阅方的应用名称 【必填】
+     * @param listener        订阅时使用的监听器 【必填】
+     * @return Boolean true-取消成功
+     */
+    EserviceResult<Boolean> unsubscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener);
+
 }
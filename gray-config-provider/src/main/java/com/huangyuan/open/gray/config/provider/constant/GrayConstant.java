@@ -12,4 +12,9 @@ public interface GrayConstant {
      * 灰度Service层缓存名称
      */
     String GRAY_SERVICE_CACHE = "grayServiceCache";
+
+    /**
+     * 全量配置在灰度Service层缓存中的key，与@Cacheable中的key保持一致
+     */
+    String ROUTING_CONFIG_CACHE_KEY = "getGrayRoutingConfig";
 }
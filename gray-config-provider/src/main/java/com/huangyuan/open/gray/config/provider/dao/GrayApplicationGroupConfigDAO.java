@@ -29,6 +29,15 @@ public interface GrayApplicationGroupConfigDAO {
      */
     List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfig(GrayApplicationGroupConfigDO grayApplicationGroupConfigDO);
 
+    /**
+     * 查询灰度服务分组信息，不读取fs_eas字段（结果中fsEas为null）
+     *
+     * @param grayApplicationGroupConfigDO 查询参数
+     *                                     【id】非必填
+     * @return   List<GrayApplicationGroupConfigDO> 灰度分组信息
+     */
+    List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfigWithoutEas(GrayApplicationGroupConfigDO grayApplicationGroupConfigDO);
+
     /**
      * 修改灰度服务分组信息
      *
@@ -54,4 +54,29 @@ public interface GrayApplicationIpConfigDAO {
      * @return true-操作成功, false-操作失败
      */
     Boolean insertGrayApplicationIpConfig(GrayApplicationIpConfigDO grayApplicationIpConfigDO);
+
+    /**
+     * 查询多个灰度服务的机器，按记录id排列
+     *
+     * @param applicationIds 灰度服务id 【必填】
+     * @return List<GrayApplicationIpConfigDO>
+     */
+    List<GrayApplicationIpConfigDO> queryGrayApplicationIpConfigByApplicationIds(List<Long> applicationIds);
+
+    /**
+     * 批量新增灰度服务ip信息
+     *
+     * @param list 新增参数，同一个灰度服务的ip不能重复
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean batchInsertGrayApplicationIpConfig(List<GrayApplicationIpConfigDO> list);
+
+    /**
+     * 删除灰度服务的机器
+     *
+     * @param applicationId 灰度服务id 【必填】
+     * @param ipAddresses   ip地址 【非必填】，为空时删除该服务的全部机器
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean delGrayApplicationIpConfigByApplicationId(Long applicationId, List<String> ipAddresses);
 }
@@ -0,0 +1,42 @@
+package com.huangyuan.open.gray.config.provider.dao;
+
+import com.huangyuan.open.gray.config.provider.model.entity.GrayConfigChangeLogDO;
+
+import java.util.List;
+
+public interface GrayConfigChangeLogDAO {
+
+    /**
+     * 新增变更日志
+     *
+     * @param grayConfigChangeLogDO 变更日志
+     *                              【configType】 必填
+     *                              【configId】   必填
+     *                              【operation】  必填
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean insertChangeLog(GrayConfigChangeLogDO grayConfigChangeLogDO);
+
+    /**
+     * 查询某个版本号之后的变更日志，按版本号从小到大排列
+     *
+     * @param sinceVersion 版本号（不包含）
+     * @param limit        最多返回的条数
+     * @return List<GrayConfigChangeLogDO>
+     */
+    List<GrayConfigChangeLogDO> queryChangeLogSince(Long sinceVersion, Integer limit);
+
+    /**
+     * 查询最大的版本号
+     *
+     * @return 版本号，没有变更日志时返回0
+     */
+    Long queryMaxVersion();
+
+    /**
+     * 查询最小的版本号（变更日志被清理后，早于该版本号的变更无法再通过增量获取）
+     *
+     * @return 版本号，没有变更日志时返回0
+     */
+    Long queryMinVersion();
+}
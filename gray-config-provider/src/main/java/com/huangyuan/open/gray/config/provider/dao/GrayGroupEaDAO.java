@@ -0,0 +1,51 @@
+package com.huangyuan.open.gray.config.provider.dao;
+
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
+
+import java.util.List;
+
+public interface GrayGroupEaDAO {
+
+    /**
+     * 查询分组与企业的关系，按记录id排列
+     *
+     * @param grayGroupEaDO 查询参数
+     *                      【groupId】 非必填
+     *                      【fsEa】    非必填（走fs_ea索引）
+     * @return List<GrayGroupEaDO>
+     */
+    List<GrayGroupEaDO> queryGroupEa(GrayGroupEaDO grayGroupEaDO);
+
+    /**
+     * 查询多个分组的企业，按记录id排列
+     *
+     * @param groupIds 分组id 【必填】
+     * @return List<GrayGroupEaDO>
+     */
+    List<GrayGroupEaDO> queryGroupEaByGroupIds(List<Long> groupIds);
+
+    /**
+     * 批量新增分组与企业的关系
+     *
+     * @param list 关系列表，同一个分组内的企业不能重复
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean insertGroupEa(List<GrayGroupEaDO> list);
+
+    /**
+     * 删除分组下的部分企业
+     *
+     * @param groupId 分组id 【必填】
+     * @param fsEas   企业账户 【必填】
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean delGroupEa(Long groupId, List<String> fsEas);
+
+    /**
+     * 删除分组下的全部企业
+     *
+     * @param groupId 分组id 【必填】
+     * @return true-操作成功, false-操作失败
+     */
+    Boolean delGroupEaByGroupId(Long groupId);
+}
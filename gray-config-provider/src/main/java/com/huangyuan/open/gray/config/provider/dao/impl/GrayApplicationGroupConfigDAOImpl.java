@@ -30,6 +30,11 @@ public class GrayApplicationGroupConfigDAOImpl extends CommonDAO<GrayApplication
         return super.getList("queryGrayApplicationGroupConfig", grayApplicationGroupConfigDO);
     }
 
+    @Override
+    public List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfigWithoutEas(GrayApplicationGroupConfigDO grayApplicationGroupConfigDO) {
+        return super.getList("queryGrayApplicationGroupConfigWithoutEas", grayApplicationGroupConfigDO);
+    }
+
 
     @Override
     public Boolean updateGroupConfig(GrayApplicationGroupConfigDO grayApplicationGroupConfigDO) {
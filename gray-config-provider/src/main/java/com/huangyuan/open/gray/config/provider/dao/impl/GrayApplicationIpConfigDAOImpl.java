@@ -9,7 +9,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -59,4 +61,35 @@ public class GrayApplicationIpConfigDAOImpl extends CommonDAO<GrayApplicationIpC
             return false;
         }
     }
+
+    @Override
+    public List<GrayApplicationIpConfigDO> queryGrayApplicationIpConfigByApplicationIds(List<Long> applicationIds) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("applicationIds", applicationIds);
+        return super.getList("queryGrayApplicationIpConfigByApplicationIds", params);
+    }
+
+    @Override
+    public Boolean batchInsertGrayApplicationIpConfig(List<GrayApplicationIpConfigDO> list) {
+        try {
+            return super.save("batchInsertGrayApplicationIpConfig", list) == list.size();
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred batchInsert，size={}，e={}", list.size(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public Boolean delGrayApplicationIpConfigByApplicationId(Long applicationId, List<String> ipAddresses) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("applicationId", applicationId);
+        params.put("ipAddresses", ipAddresses);
+        try {
+            super.delete("delGrayApplicationIpConfigByApplicationId", params);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred delete，applicationId={}，e={}", applicationId, e);
+            return false;
+        }
+    }
 }
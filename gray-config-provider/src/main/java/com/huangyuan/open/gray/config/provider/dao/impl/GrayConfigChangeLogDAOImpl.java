@@ -0,0 +1,48 @@
+package com.huangyuan.open.gray.config.provider.dao.impl;
+
+import com.huangyuan.open.gray.config.provider.dao.GrayConfigChangeLogDAO;
+import com.huangyuan.open.gray.config.provider.dao.base.CommonDAO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayConfigChangeLogDO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class GrayConfigChangeLogDAOImpl extends CommonDAO<GrayConfigChangeLogDO> implements GrayConfigChangeLogDAO {
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Override
+    public Boolean insertChangeLog(GrayConfigChangeLogDO grayConfigChangeLogDO) {
+        try {
+            return super.save("insertChangeLog", grayConfigChangeLogDO) > 0;
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred，grayConfigChangeLogDO={}，e={}", grayConfigChangeLogDO, e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<GrayConfigChangeLogDO> queryChangeLogSince(Long sinceVersion, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("sinceVersion", sinceVersion);
+        params.put("limit", limit);
+        return super.getList("queryChangeLogSince", params);
+    }
+
+    @Override
+    public Long queryMaxVersion() {
+        Number version = super.statis("queryMaxVersion", Collections.<String, Object>emptyMap());
+        return version == null ? 0L : version.longValue();
+    }
+
+    @Override
+    public Long queryMinVersion() {
+        Number version = super.statis("queryMinVersion", Collections.<String, Object>emptyMap());
+        return version == null ? 0L : version.longValue();
+    }
+}
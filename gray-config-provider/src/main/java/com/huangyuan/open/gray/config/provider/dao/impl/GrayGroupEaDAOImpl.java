@@ -0,0 +1,66 @@
+package com.huangyuan.open.gray.config.provider.dao.impl;
+
+import com.huangyuan.open.gray.config.provider.dao.GrayGroupEaDAO;
+import com.huangyuan.open.gray.config.provider.dao.base.CommonDAO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class GrayGroupEaDAOImpl extends CommonDAO<GrayGroupEaDO> implements GrayGroupEaDAO {
+    private Logger LOGGER = LoggerFactory.getLogger(this.getClass());
+
+    @Override
+    public List<GrayGroupEaDO> queryGroupEa(GrayGroupEaDO grayGroupEaDO) {
+        return super.getList("queryGroupEa", grayGroupEaDO);
+    }
+
+    @Override
+    public List<GrayGroupEaDO> queryGroupEaByGroupIds(List<Long> groupIds) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("groupIds", groupIds);
+        return super.getList("queryGroupEaByGroupIds", params);
+    }
+
+    @Override
+    public Boolean insertGroupEa(List<GrayGroupEaDO> list) {
+        try {
+            return super.save("insertGroupEa", list) == list.size();
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred insertGroupEa，size={}，e={}", list.size(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public Boolean delGroupEa(Long groupId, List<String> fsEas) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("groupId", groupId);
+        params.put("fsEas", fsEas);
+        try {
+            super.delete("delGroupEa", params);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred delGroupEa，groupId={}，e={}", groupId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public Boolean delGroupEaByGroupId(Long groupId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("groupId", groupId);
+        try {
+            super.delete("delGroupEaByGroupId", params);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("An exception occurred delGroupEaByGroupId，groupId={}，e={}", groupId, e);
+            return false;
+        }
+    }
+}
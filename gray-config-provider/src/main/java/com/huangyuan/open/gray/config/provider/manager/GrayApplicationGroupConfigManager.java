@@ -3,6 +3,7 @@ package com.huangyuan.open.gray.config.provider.manager;
 
 import com.huangyuan.open.gray.base.common.Pager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
 
 import java.util.List;
 
@@ -24,11 +25,28 @@ public interface GrayApplicationGroupConfigManager {
      * 查询灰度服务分组信息
      *
      * @param id   记录id 【非必填】
-     * @param fsEa 灰度企业 【非必填】
+     * @param fsEa 灰度企业 【非必填】，精确匹配，通过gray_group_ea关系表查询
      * @return List<GrayApplicationGroupConfigDO>
      */
     List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfig(Long id, String fsEa);
 
+    /**
+     * 查询灰度服务分组信息，不读取fs_eas字段（结果中fsEas为null），企业列表通过queryGrayGroupEa从关系表查询
+     *
+     * @param id 记录id 【非必填】
+     * @return List<GrayApplicationGroupConfigDO>
+     */
+    List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfigWithoutEas(Long id);
+
+    /**
+     * 查询灰度分组与灰度企业的关系
+     *
+     * @param groupId 分组id 【非必填】
+     * @param fsEa    灰度企业 【非必填】
+     * @return List<GrayGroupEaDO>
+     */
+    List<GrayGroupEaDO> queryGrayGroupEa(Long groupId, String fsEa);
+
     /**
      * 修改灰度服务分组信息
      *
@@ -37,9 +55,12 @@ public interface GrayApplicationGroupConfigManager {
      * @param describe  描叙      【非必填】
      * @param fsEas     灰度企业账号   【非必填】
      * @param status    状态     【非必填】
+     * @param rolloutThreshold 按比例灰度的阈值（万分之一） 【非必填】，为null时不修改
+     * @param rolloutSalt      按比例灰度的盐 【非必填】，为null时不修改
      * @return true-操作成功, false-操作失败
      */
-    Boolean updateGroupConfig(Long id, String groupName, String describe, String fsEas, Integer status);
+    Boolean updateGroupConfig(Long id, String groupName, String describe, String fsEas, Integer status,
+                              Integer rolloutThreshold, String rolloutSalt);
 
     /**
      * 删除灰度服务分组信息
@@ -56,7 +77,10 @@ public interface GrayApplicationGroupConfigManager {
      * @param status    状态      【必填】
      * @param describe  描叙      【必填】
      * @param fsEas     灰度企业账号      【非必填】
+     * @param rolloutThreshold 按比例灰度的阈值（万分之一） 【非必填】，默认为0
+     * @param rolloutSalt      按比例灰度的盐 【非必填】，默认使用分组id
      * @return true-操作成功, false-操作失败
      */
-    Boolean insertGrayApplicationGroupConfig(String groupName, Integer status, String describe, String fsEas);
+    Boolean insertGrayApplicationGroupConfig(String groupName, Integer status, String describe, String fsEas,
+                                             Integer rolloutThreshold, String rolloutSalt);
 }
@@ -1,5 +1,6 @@
 package com.huangyuan.open.gray.config.provider.manager;
 
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
 import com.huangyuan.open.gray.config.provider.model.vo.GrayApplicationVO;
 
 /**
@@ -22,4 +23,21 @@ public interface GrayApplicationHandlerManager {
      * @return Boolean true-存在，为灰度企业 ，false-不存在，非灰度企业
      */
     Boolean checkGrayFsEa(String applicationName, String fsEa);
+
+    /**
+     * 查询该ip所在的灰度服务配置（支持一个服务绑定多个灰度分组）
+     *
+     * @param applicationName 服务名称 【必填】
+     * @param ip              机器ip  【必填】
+     * @return GrayApplicationVO，ip不在任何灰度配置中时返回null
+     */
+    GrayApplicationVO getGrayApplicationConfigByIp(String applicationName, String ip);
+
+    /**
+     * 查询该企业所属的灰度分组
+     *
+     * @param fsEa 企业账号 【必填】
+     * @return GrayApplicationGroupConfigDO，不属于任何灰度分组时返回null
+     */
+    GrayApplicationGroupConfigDO getGrayApplicationGroupConfigByEa(String fsEa);
 }
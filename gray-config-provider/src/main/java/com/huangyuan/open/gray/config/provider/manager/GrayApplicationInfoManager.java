@@ -7,6 +7,10 @@ import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoD
 import java.util.List;
 
 /**
+ * 灰度服务的机器保存在gray_application_ip_config表（一台机器一条记录），
+ * 查询结果中的ipAddress由该表的记录以分号拼接而成；
+ * 新增、修改时只同步该表，不再写gray_application_info.ip_address（迁移时已清空，见sql/gray_application_ip_config.sql）
+ *
  * @author huangy
  * @date 2018/8/27
  */
@@ -32,6 +36,14 @@ public interface GrayApplicationInfoManager {
      */
     List<GrayApplicationInfoDO> queryGrayApplicationInfo(String applicationName, Long groupId);
 
+    /**
+     * 根据记录id查询灰度服务信息
+     *
+     * @param id 记录id 【必填】
+     * @return GrayApplicationInfoDO，不存在时返回null
+     */
+    GrayApplicationInfoDO queryGrayApplicationInfoById(Long id);
+
     /**
      * 修改灰度服务信息
      *
@@ -32,7 +32,7 @@ public interface GrayApplicationIpConfigManager {
      * 修改灰度服务ip信息
      *
      * @param id            记录id   【必填】
-     * @param ipAddress     ip地址 【必填】
+     * @param ipAddress     ip地址 【必填】，一条记录一个ip（all表示全部机器）
      * @param applicationId 灰度服务id 【必填】
      * @param describe      描叙      【必填】
      * @return true-操作成功, false-操作失败
@@ -50,7 +50,7 @@ public interface GrayApplicationIpConfigManager {
     /**
      * 新增灰度服务ip信息
      *
-     * @param ipAddress     ip地址 【必填】
+     * @param ipAddress     ip地址 【必填】，一条记录一个ip（all表示全部机器）
      * @param applicationId 灰度服务id 【必填】
      * @param describe      描叙      【必填】
      * @return true-操作成功, false-操作失败
@@ -0,0 +1,47 @@
+package com.huangyuan.open.gray.config.provider.manager;
+
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayConfigChangeLogDO;
+
+import java.util.List;
+
+/**
+ * 灰度配置变更日志
+ */
+public interface GrayConfigChangeLogManager {
+
+    /**
+     * 记录一条配置变更，需要在配置修改的事务中调用；
+     * 写入失败时抛出异常，使配置修改一起回滚，保证每次修改都有对应的变更日志
+     *
+     * @param configType 配置类型   【必填】
+     * @param operation  变更操作   【必填】
+     * @param configId   配置记录id 【必填】
+     * @param content    变更后的配置，删除操作时为null
+     */
+    void recordChange(GrayConfigTypeEnum configType, GrayConfigOperationEnum operation, Long configId, Object content);
+
+    /**
+     * 查询某个版本号之后的变更日志，按版本号从小到大排列
+     *
+     * @param sinceVersion 版本号（不包含） 【必填】
+     * @param limit        最多返回的条数   【必填】
+     * @return List<GrayConfigChangeLogDO>
+     */
+    List<GrayConfigChangeLogDO> queryChangeLogSince(Long sinceVersion, Integer limit);
+
+    /**
+     * 查询最大的版本号
+     *
+     * @return 版本号，没有变更日志时返回0
+     */
+    Long queryMaxVersion();
+
+    /**
+     * 查询最小的版本号
+     *
+     * @return 版本号，没有变更日志时返回0
+     */
+    Long queryMinVersion();
+}
@@ -0,0 +1,39 @@
+package com.huangyuan.open.gray.config.provider.manager;
+
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+
+/**
+ * 灰度配置变更的订阅与通知
+ */
+public interface GrayConfigChangeManager {
+
+    /**
+     * 当前的配置版本号（即变更日志的最大id）
+     *
+     * @return 版本号
+     */
+    Long getVersion();
+
+    /**
+     * 订阅配置变更，重复订阅同一个listener是幂等的
+     *
+     * @param applicationName 订阅方的应用名称 【必填】
+     * @param listener        变更监听器      【必填】
+     * @return 当前的配置版本号
+     */
+    Long subscribe(String applicationName, GrayConfigChangeListener listener);
+
+    /**
+     * 取消订阅
+     *
+     * @param applicationName 订阅方的应用名称 【必填】
+     * @param listener        订阅时使用的监听器 【必填】
+     * @return true-取消成功, false-没有该订阅
+     */
+    Boolean unsubscribe(String applicationName, GrayConfigChangeListener listener);
+
+    /**
+     * 配置已经变更（事务已提交），重建路由索引，从变更日志读取最新版本号，并异步通知全部订阅方
+     */
+    void publishChange();
+}
@@ -0,0 +1,24 @@
+package com.huangyuan.open.gray.config.provider.manager;
+
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
+
+/**
+ * 灰度路由索引，灰度判断相关的查询都在索引上完成，不访问数据库
+ */
+public interface GrayRoutingIndexManager {
+
+    /**
+     * 获取当前索引，还没有构建成功时同步构建一次
+     *
+     * @return GrayRoutingIndex
+     */
+    GrayRoutingIndex getIndex();
+
+    /**
+     * 从数据库重新构建索引，构建完成后整体替换；构建失败时保留原来的索引。
+     * 正在重建时发起的请求会等待，并由一次新的重建统一处理
+     *
+     * @return 新的索引，构建失败时返回原来的索引
+     */
+    GrayRoutingIndex rebuild();
+}
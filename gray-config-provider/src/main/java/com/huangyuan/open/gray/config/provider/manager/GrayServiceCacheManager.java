@@ -0,0 +1,18 @@
+package com.huangyuan.open.gray.config.provider.manager;
+
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
+
+/**
+ * 灰度Service层缓存（grayServiceCache）的清除
+ */
+public interface GrayServiceCacheManager {
+
+    /**
+     * 路由索引重建后清除全量配置的缓存（唯一被缓存的结果，其他查询直接读取索引）：
+     * 版本号变化时一定清除，保证全量配置中的版本号不会落后于变更日志；版本号没有变化时，配置不同才清除
+     *
+     * @param previous 重建前的索引 【必填】
+     * @param current  重建后的索引 【必填】
+     */
+    void evictChanged(GrayRoutingIndex previous, GrayRoutingIndex current);
+}
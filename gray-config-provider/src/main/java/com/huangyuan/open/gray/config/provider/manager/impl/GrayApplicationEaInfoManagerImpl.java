@@ -2,11 +2,15 @@ package com.huangyuan.open.gray.config.provider.manager.impl;
 
 
 import com.huangyuan.open.gray.base.common.Pager;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
 import com.huangyuan.open.gray.config.provider.dao.GrayApplicationEaInfoDAO;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationEaInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationEaInfoDO;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 
@@ -20,6 +24,8 @@ public class GrayApplicationEaInfoManagerImpl implements GrayApplicationEaInfoMa
 
     @Resource
     private GrayApplicationEaInfoDAO grayApplicationEaInfoDAO;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
 
 
     @Override
@@ -40,6 +46,7 @@ public class GrayApplicationEaInfoManagerImpl implements GrayApplicationEaInfoMa
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean updateApplicationEaInfo(Long id, String fsEa, String eaName, String describe) {
         GrayApplicationEaInfoDO grayApplicationEaInfoDO = new GrayApplicationEaInfoDO();
         grayApplicationEaInfoDO.setId(id);
@@ -47,23 +54,47 @@ public class GrayApplicationEaInfoManagerImpl implements GrayApplicationEaInfoMa
         grayApplicationEaInfoDO.setDescribe(fsEa);
         grayApplicationEaInfoDO.setEaName(eaName);
         grayApplicationEaInfoDO.setUpdateTime(System.currentTimeMillis());
-        return grayApplicationEaInfoDAO.updateApplicationEaInfo(grayApplicationEaInfoDO);
+        Boolean result = grayApplicationEaInfoDAO.updateApplicationEaInfo(grayApplicationEaInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_EA, GrayConfigOperationEnum.UPDATE,
+                    grayApplicationEaInfoDO.getId(), queryById(grayApplicationEaInfoDO.getId()));
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean delGrayApplicationEaInfo(Long id) {
         GrayApplicationEaInfoDO grayApplicationEaInfoDO = new GrayApplicationEaInfoDO();
         grayApplicationEaInfoDO.setId(id);
-        return grayApplicationEaInfoDAO.delGrayApplicationEaInfo(grayApplicationEaInfoDO);
+        Boolean result = grayApplicationEaInfoDAO.delGrayApplicationEaInfo(grayApplicationEaInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_EA, GrayConfigOperationEnum.DELETE,
+                    grayApplicationEaInfoDO.getId(), null);
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean insertGrayApplicationEaInfo(String fsEa, String eaName, String describe) {
         GrayApplicationEaInfoDO grayApplicationEaInfoDO = new GrayApplicationEaInfoDO();
         grayApplicationEaInfoDO.setFsEa(fsEa);
         grayApplicationEaInfoDO.setDescribe(describe);
         grayApplicationEaInfoDO.setEaName(eaName);
         grayApplicationEaInfoDO.setCreateTime(System.currentTimeMillis());
-        return grayApplicationEaInfoDAO.insertGrayApplicationEaInfo(grayApplicationEaInfoDO);
+        Boolean result = grayApplicationEaInfoDAO.insertGrayApplicationEaInfo(grayApplicationEaInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_EA, GrayConfigOperationEnum.INSERT,
+                    grayApplicationEaInfoDO.getId(), queryById(grayApplicationEaInfoDO.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * 查询变更后的记录，作为变更日志的内容
+     */
+    private GrayApplicationEaInfoDO queryById(Long id) {
+        return queryGrayApplicationEaInfo(id, null);
     }
 }
@@ -1,16 +1,31 @@
 package com.huangyuan.open.gray.config.provider.manager.impl;
 
 import com.huangyuan.open.gray.base.common.Pager;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
+import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.dao.GrayApplicationGroupConfigDAO;
+import com.huangyuan.open.gray.config.provider.dao.GrayGroupEaDAO;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationGroupConfigManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 
 /**
+ * 分组的灰度企业以gray_group_ea关系表为准：路由索引、变更日志、下发的配置都从关系表读取，不再读取fs_eas字段。
+ * 兼容：fs_eas字段仍在同一个事务中写入，只供后台列表展示，后台改为读取关系表后去掉
  *
  * @author huangy
  * @date 2018/8/27
@@ -20,6 +35,10 @@ public class GrayApplicationGroupConfigManagerImpl implements GrayApplicationGro
 
     @Resource
     private GrayApplicationGroupConfigDAO grayApplicationGroupConfigDAO;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
+    @Resource
+    private GrayGroupEaDAO grayGroupEaDAO;
 
 
     @Override
@@ -36,7 +55,21 @@ public class GrayApplicationGroupConfigManagerImpl implements GrayApplicationGro
     }
 
     @Override
-    public Boolean updateGroupConfig(Long id, String groupName, String describe, String fsEas, Integer status) {
+    public List<GrayApplicationGroupConfigDO> queryGrayApplicationGroupConfigWithoutEas(Long id) {
+        GrayApplicationGroupConfigDO grayApplicationGroupConfigDO = new GrayApplicationGroupConfigDO();
+        grayApplicationGroupConfigDO.setId(id);
+        return grayApplicationGroupConfigDAO.queryGrayApplicationGroupConfigWithoutEas(grayApplicationGroupConfigDO);
+    }
+
+    @Override
+    public List<GrayGroupEaDO> queryGrayGroupEa(Long groupId, String fsEa) {
+        return grayGroupEaDAO.queryGroupEa(new GrayGroupEaDO(groupId, fsEa));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Boolean updateGroupConfig(Long id, String groupName, String describe, String fsEas, Integer status,
+                                     Integer rolloutThreshold, String rolloutSalt) {
         GrayApplicationGroupConfigDO grayApplicationGroupConfigDO = new GrayApplicationGroupConfigDO();
         grayApplicationGroupConfigDO.setId(id);
         grayApplicationGroupConfigDO.setGroupName(groupName);
@@ -44,24 +77,118 @@ public class GrayApplicationGroupConfigManagerImpl implements GrayApplicationGro
         grayApplicationGroupConfigDO.setUpdateTime(System.currentTimeMillis());
         grayApplicationGroupConfigDO.setFsEas(fsEas);
         grayApplicationGroupConfigDO.setStatus(status);
-        return grayApplicationGroupConfigDAO.updateGroupConfig(grayApplicationGroupConfigDO);
+        grayApplicationGroupConfigDO.setRolloutThreshold(rolloutThreshold);
+        grayApplicationGroupConfigDO.setRolloutSalt(rolloutSalt);
+        Boolean result = grayApplicationGroupConfigDAO.updateGroupConfig(grayApplicationGroupConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            syncGroupEa(id, fsEas);
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_GROUP, GrayConfigOperationEnum.UPDATE,
+                    grayApplicationGroupConfigDO.getId(), queryById(grayApplicationGroupConfigDO.getId()));
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean delGrayApplicationGroupConfig(Long id) {
         GrayApplicationGroupConfigDO grayApplicationGroupConfigDO = new GrayApplicationGroupConfigDO();
         grayApplicationGroupConfigDO.setId(id);
-        return grayApplicationGroupConfigDAO.delGrayApplicationGroupConfig(grayApplicationGroupConfigDO);
+        Boolean result = grayApplicationGroupConfigDAO.delGrayApplicationGroupConfig(grayApplicationGroupConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            if (!grayGroupEaDAO.delGroupEaByGroupId(id)) {
+                throw new IllegalStateException("delete gray group ea fail, groupId=" + id);
+            }
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_GROUP, GrayConfigOperationEnum.DELETE,
+                    grayApplicationGroupConfigDO.getId(), null);
+        }
+        return result;
     }
 
     @Override
-    public Boolean insertGrayApplicationGroupConfig(String groupName, Integer status, String describe, String fsEas) {
+    @Transactional(rollbackFor = Exception.class)
+    public Boolean insertGrayApplicationGroupConfig(String groupName, Integer status, String describe, String fsEas,
+                                                    Integer rolloutThreshold, String rolloutSalt) {
         GrayApplicationGroupConfigDO grayApplicationGroupConfigDO = new GrayApplicationGroupConfigDO();
         grayApplicationGroupConfigDO.setGroupName(groupName);
         grayApplicationGroupConfigDO.setStatus(status == null ? 1 : status);
         grayApplicationGroupConfigDO.setDescribe(describe);
         grayApplicationGroupConfigDO.setCreateTime(System.currentTimeMillis());
         grayApplicationGroupConfigDO.setFsEas(fsEas);
-        return grayApplicationGroupConfigDAO.insertGrayApplicationGroupConfig(grayApplicationGroupConfigDO);
+        grayApplicationGroupConfigDO.setRolloutThreshold(rolloutThreshold == null ? 0 : rolloutThreshold);
+        grayApplicationGroupConfigDO.setRolloutSalt(rolloutSalt == null ? "" : rolloutSalt);
+        Boolean result = grayApplicationGroupConfigDAO.insertGrayApplicationGroupConfig(grayApplicationGroupConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            syncGroupEa(grayApplicationGroupConfigDO.getId(), fsEas);
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_GROUP, GrayConfigOperationEnum.INSERT,
+                    grayApplicationGroupConfigDO.getId(), queryById(grayApplicationGroupConfigDO.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * 查询变更后的记录，作为变更日志的内容；fsEas由关系表的记录（按记录id的顺序）以分号拼接而成
+     */
+    private GrayApplicationGroupConfigDO queryById(Long id) {
+        List<GrayApplicationGroupConfigDO> list = queryGrayApplicationGroupConfigWithoutEas(id);
+        if (CollectionUtils.isEmpty(list)) {
+            return null;
+        }
+
+        GrayApplicationGroupConfigDO groupConfigDO = list.get(0);
+        List<String> fsEas = new ArrayList<>();
+        for (GrayGroupEaDO groupEaDO : grayGroupEaDAO.queryGroupEaByGroupIds(Collections.singletonList(id))) {
+            fsEas.add(groupEaDO.getFsEa());
+        }
+        groupConfigDO.setFsEas(fsEas.isEmpty() ? null : String.join(GrayConstant.IP_ADDRESS_MARGIN, fsEas));
+        return groupConfigDO;
+    }
+
+    /**
+     * 让关系表中该分组的企业与fsEas一致：只删除去掉的企业、只新增加入的企业。
+     * 失败时抛出异常，回滚整个修改，避免后台展示的fs_eas字段与关系表不一致
+     */
+    private void syncGroupEa(Long groupId, String fsEas) {
+        Set<String> target = split(fsEas);
+
+        Set<String> existing = new LinkedHashSet<>();
+        for (GrayGroupEaDO groupEaDO : queryGrayGroupEa(groupId, null)) {
+            existing.add(groupEaDO.getFsEa());
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String fsEa : existing) {
+            if (!target.contains(fsEa)) {
+                removed.add(fsEa);
+            }
+        }
+        if (!removed.isEmpty() && !grayGroupEaDAO.delGroupEa(groupId, removed)) {
+            throw new IllegalStateException("delete gray group ea fail, groupId=" + groupId);
+        }
+
+        long now = System.currentTimeMillis();
+        List<GrayGroupEaDO> added = new ArrayList<>();
+        for (String fsEa : target) {
+            if (!existing.contains(fsEa)) {
+                GrayGroupEaDO groupEaDO = new GrayGroupEaDO(groupId, fsEa);
+                groupEaDO.setCreateTime(now);
+                added.add(groupEaDO);
+            }
+        }
+        if (!added.isEmpty() && !grayGroupEaDAO.insertGroupEa(added)) {
+            throw new IllegalStateException("insert gray group ea fail, groupId=" + groupId);
+        }
+    }
+
+    private static Set<String> split(String fsEas) {
+        Set<String> set = new LinkedHashSet<>();
+        if (StringUtils.isBlank(fsEas)) {
+            return set;
+        }
+        for (String fsEa : fsEas.split(GrayConstant.IP_ADDRESS_MARGIN)) {
+            if (StringUtils.isNotBlank(fsEa)) {
+                set.add(fsEa);
+            }
+        }
+        return set;
     }
 }
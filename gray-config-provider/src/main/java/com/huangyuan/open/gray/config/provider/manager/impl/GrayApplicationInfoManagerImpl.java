@@ -1,13 +1,27 @@
 package com.huangyuan.open.gray.config.provider.manager.impl;
 
 import com.huangyuan.open.gray.base.common.Pager;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
+import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.dao.GrayApplicationInfoDAO;
+import com.huangyuan.open.gray.config.provider.dao.GrayApplicationIpConfigDAO;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationIpConfigDO;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author huangy
@@ -18,11 +32,17 @@ public class GrayApplicationInfoManagerImpl implements GrayApplicationInfoManage
 
     @Resource
     private GrayApplicationInfoDAO grayApplicationInfoDAO;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
+    @Resource
+    private GrayApplicationIpConfigDAO grayApplicationIpConfigDAO;
 
 
     @Override
     public Pager<GrayApplicationInfoDO> queryGrayApplicationInfoPage(Pager<GrayApplicationInfoDO> queryPage) {
-        return grayApplicationInfoDAO.queryGrayApplicationInfoPage(queryPage);
+        Pager<GrayApplicationInfoDO> pager = grayApplicationInfoDAO.queryGrayApplicationInfoPage(queryPage);
+        fillIpAddress(pager.getData());
+        return pager;
     }
 
     @Override
@@ -30,10 +50,19 @@ public class GrayApplicationInfoManagerImpl implements GrayApplicationInfoManage
         GrayApplicationInfoDO grayApplicationInfoDO = new GrayApplicationInfoDO();
         grayApplicationInfoDO.setApplicationName(applicationName);
         grayApplicationInfoDO.setGroupId(groupId);
-        return grayApplicationInfoDAO.queryGrayApplicationInfo(grayApplicationInfoDO);
+        return fillIpAddress(grayApplicationInfoDAO.queryGrayApplicationInfo(grayApplicationInfoDO));
     }
 
     @Override
+    public GrayApplicationInfoDO queryGrayApplicationInfoById(Long id) {
+        GrayApplicationInfoDO grayApplicationInfoDO = new GrayApplicationInfoDO();
+        grayApplicationInfoDO.setId(id);
+        List<GrayApplicationInfoDO> list = fillIpAddress(grayApplicationInfoDAO.queryGrayApplicationInfo(grayApplicationInfoDO));
+        return CollectionUtils.isEmpty(list) ? null : list.get(0);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean updateGrayApplicationInfo(Long id, String applicationName, Long groupId,
                                              String describe, String ipAddress, Integer status) {
         GrayApplicationInfoDO grayApplicationInfoDO = new GrayApplicationInfoDO();
@@ -41,20 +70,35 @@ public class GrayApplicationInfoManagerImpl implements GrayApplicationInfoManage
         grayApplicationInfoDO.setApplicationName(applicationName);
         grayApplicationInfoDO.setGroupId(groupId);
         grayApplicationInfoDO.setDescribe(describe);
-        grayApplicationInfoDO.setIpAddress(ipAddress);
         grayApplicationInfoDO.setUpdateTime(System.currentTimeMillis());
         grayApplicationInfoDO.setStatus(status);
-        return grayApplicationInfoDAO.updateGrayApplicationInfo(grayApplicationInfoDO);
+        Boolean result = grayApplicationInfoDAO.updateGrayApplicationInfo(grayApplicationInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            syncIpConfig(id, ipAddress);
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_INFO, GrayConfigOperationEnum.UPDATE,
+                    grayApplicationInfoDO.getId(), queryGrayApplicationInfoById(grayApplicationInfoDO.getId()));
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean delGrayApplicationInfo(Long id) {
         GrayApplicationInfoDO grayApplicationInfoDO = new GrayApplicationInfoDO();
         grayApplicationInfoDO.setId(id);
-        return grayApplicationInfoDAO.delGrayApplicationInfo(grayApplicationInfoDO);
+        Boolean result = grayApplicationInfoDAO.delGrayApplicationInfo(grayApplicationInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            if (!grayApplicationIpConfigDAO.delGrayApplicationIpConfigByApplicationId(id, null)) {
+                throw new IllegalStateException("delete gray application ip fail, applicationId=" + id);
+            }
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_INFO, GrayConfigOperationEnum.DELETE,
+                    grayApplicationInfoDO.getId(), null);
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean insertGrayApplicationInfo(String applicationName, Long groupId, Integer status,
                                              String describe, String ipAddress) {
         GrayApplicationInfoDO grayApplicationInfoDO = new GrayApplicationInfoDO();
@@ -63,7 +107,92 @@ public class GrayApplicationInfoManagerImpl implements GrayApplicationInfoManage
         grayApplicationInfoDO.setStatus(status == null ? 1 : status);
         grayApplicationInfoDO.setDescribe(describe);
         grayApplicationInfoDO.setCreateTime(System.currentTimeMillis());
-        grayApplicationInfoDO.setIpAddress(ipAddress);
-        return grayApplicationInfoDAO.insertGrayApplicationInfo(grayApplicationInfoDO);
+        Boolean result = grayApplicationInfoDAO.insertGrayApplicationInfo(grayApplicationInfoDO);
+        if (Boolean.TRUE.equals(result)) {
+            syncIpConfig(grayApplicationInfoDO.getId(), ipAddress);
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_INFO, GrayConfigOperationEnum.INSERT,
+                    grayApplicationInfoDO.getId(), queryGrayApplicationInfoById(grayApplicationInfoDO.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * 用机器表的记录填充ipAddress（按记录id的顺序以分号拼接），没有机器时为null
+     */
+    private List<GrayApplicationInfoDO> fillIpAddress(List<GrayApplicationInfoDO> list) {
+        if (CollectionUtils.isEmpty(list)) {
+            return list;
+        }
+
+        List<Long> applicationIds = new ArrayList<>(list.size());
+        for (GrayApplicationInfoDO grayApplicationInfoDO : list) {
+            applicationIds.add(grayApplicationInfoDO.getId());
+        }
+
+        Map<Long, StringBuilder> ipAddressMap = new HashMap<>();
+        for (GrayApplicationIpConfigDO ipConfigDO : grayApplicationIpConfigDAO
+                .queryGrayApplicationIpConfigByApplicationIds(applicationIds)) {
+            StringBuilder ipAddress = ipAddressMap.get(ipConfigDO.getApplicationId());
+            if (ipAddress == null) {
+                ipAddressMap.put(ipConfigDO.getApplicationId(), new StringBuilder(ipConfigDO.getIpAddress()));
+            } else {
+                ipAddress.append(GrayConstant.IP_ADDRESS_MARGIN).append(ipConfigDO.getIpAddress());
+            }
+        }
+
+        for (GrayApplicationInfoDO grayApplicationInfoDO : list) {
+            StringBuilder ipAddress = ipAddressMap.get(grayApplicationInfoDO.getId());
+            grayApplicationInfoDO.setIpAddress(ipAddress == null ? null : ipAddress.toString());
+        }
+        return list;
+    }
+
+    /**
+     * 让机器表中该服务的机器与ipAddress一致：只删除去掉的机器、只新增加入的机器。
+     * 失败时抛出异常，回滚整个修改
+     */
+    private void syncIpConfig(Long applicationId, String ipAddress) {
+        Set<String> target = new LinkedHashSet<>();
+        if (StringUtils.isNotBlank(ipAddress)) {
+            for (String ip : ipAddress.split(GrayConstant.IP_ADDRESS_MARGIN)) {
+                if (StringUtils.isNotBlank(ip)) {
+                    target.add(ip);
+                }
+            }
+        }
+
+        List<Long> applicationIds = new ArrayList<>(1);
+        applicationIds.add(applicationId);
+        Set<String> existing = new LinkedHashSet<>();
+        for (GrayApplicationIpConfigDO ipConfigDO : grayApplicationIpConfigDAO
+                .queryGrayApplicationIpConfigByApplicationIds(applicationIds)) {
+            existing.add(ipConfigDO.getIpAddress());
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String ip : existing) {
+            if (!target.contains(ip)) {
+                removed.add(ip);
+            }
+        }
+        if (!removed.isEmpty()
+                && !grayApplicationIpConfigDAO.delGrayApplicationIpConfigByApplicationId(applicationId, removed)) {
+            throw new IllegalStateException("delete gray application ip fail, applicationId=" + applicationId);
+        }
+
+        long now = System.currentTimeMillis();
+        List<GrayApplicationIpConfigDO> added = new ArrayList<>();
+        for (String ip : target) {
+            if (!existing.contains(ip)) {
+                GrayApplicationIpConfigDO ipConfigDO = new GrayApplicationIpConfigDO();
+                ipConfigDO.setApplicationId(applicationId);
+                ipConfigDO.setIpAddress(ip);
+                ipConfigDO.setCreateTime(now);
+                added.add(ipConfigDO);
+            }
+        }
+        if (!added.isEmpty() && !grayApplicationIpConfigDAO.batchInsertGrayApplicationIpConfig(added)) {
+            throw new IllegalStateException("insert gray application ip fail, applicationId=" + applicationId);
+        }
     }
 }
@@ -2,15 +2,23 @@ package com.huangyuan.open.gray.config.provider.manager.impl;
 
 
 import com.huangyuan.open.gray.base.common.Pager;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
 import com.huangyuan.open.gray.config.provider.dao.GrayApplicationIpConfigDAO;
+import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationIpConfigManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationIpConfigDO;
+import org.apache.commons.collections.CollectionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.util.List;
 
 /**
+ * 机器的修改同时记录一条所属灰度服务的修改日志，使按灰度服务增量同步的客户端也能拿到新的机器列表
  *
  * @author huangy
  * @date 2018/8/27
@@ -20,6 +28,10 @@ public class GrayApplicationIpConfigManagerImpl implements GrayApplicationIpConf
 
     @Resource
     private GrayApplicationIpConfigDAO grayApplicationIpConfigDAO;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
+    @Resource
+    private GrayApplicationInfoManager grayApplicationInfoManager;
 
     @Override
     public Pager<GrayApplicationIpConfigDO> queryGrayApplicationIpConfigPage(Pager<GrayApplicationIpConfigDO> queryPage) {
@@ -35,6 +47,7 @@ public class GrayApplicationIpConfigManagerImpl implements GrayApplicationIpConf
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean updateApplicationIPConfig(Long id, String ipAddress, Long applicationId, String describe) {
         GrayApplicationIpConfigDO grayApplicationIpConfigDO = new GrayApplicationIpConfigDO();
         grayApplicationIpConfigDO.setId(id);
@@ -42,23 +55,69 @@ public class GrayApplicationIpConfigManagerImpl implements GrayApplicationIpConf
         grayApplicationIpConfigDO.setApplicationId(applicationId);
         grayApplicationIpConfigDO.setDescribe(describe);
         grayApplicationIpConfigDO.setUpdateTime(System.currentTimeMillis());
-        return grayApplicationIpConfigDAO.updateApplicationIPConfig(grayApplicationIpConfigDO);
+        GrayApplicationIpConfigDO before = queryById(id);
+        Boolean result = grayApplicationIpConfigDAO.updateApplicationIPConfig(grayApplicationIpConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_IP, GrayConfigOperationEnum.UPDATE,
+                    grayApplicationIpConfigDO.getId(), queryById(grayApplicationIpConfigDO.getId()));
+            if ((before != null) && !applicationId.equals(before.getApplicationId())) {
+                recordApplicationChange(before.getApplicationId());
+            }
+            recordApplicationChange(applicationId);
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean delGrayApplicationIpConfig(Long id) {
         GrayApplicationIpConfigDO grayApplicationIpConfigDO = new GrayApplicationIpConfigDO();
         grayApplicationIpConfigDO.setId(id);
-        return grayApplicationIpConfigDAO.delGrayApplicationIpConfig(grayApplicationIpConfigDO);
+        GrayApplicationIpConfigDO before = queryById(id);
+        Boolean result = grayApplicationIpConfigDAO.delGrayApplicationIpConfig(grayApplicationIpConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_IP, GrayConfigOperationEnum.DELETE,
+                    grayApplicationIpConfigDO.getId(), null);
+            if (before != null) {
+                recordApplicationChange(before.getApplicationId());
+            }
+        }
+        return result;
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public Boolean insertGrayApplicationIpConfig(String ipAddress, Long applicationId, String describe) {
         GrayApplicationIpConfigDO grayApplicationIpConfigDO = new GrayApplicationIpConfigDO();
         grayApplicationIpConfigDO.setIpAddress(ipAddress);
         grayApplicationIpConfigDO.setApplicationId(applicationId);
         grayApplicationIpConfigDO.setDescribe(describe);
         grayApplicationIpConfigDO.setCreateTime(System.currentTimeMillis());
-        return grayApplicationIpConfigDAO.insertGrayApplicationIpConfig(grayApplicationIpConfigDO);
+        Boolean result = grayApplicationIpConfigDAO.insertGrayApplicationIpConfig(grayApplicationIpConfigDO);
+        if (Boolean.TRUE.equals(result)) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_IP, GrayConfigOperationEnum.INSERT,
+                    grayApplicationIpConfigDO.getId(), queryById(grayApplicationIpConfigDO.getId()));
+            recordApplicationChange(applicationId);
+        }
+        return result;
+    }
+
+    /**
+     * 查询变更后的记录，作为变更日志的内容
+     */
+    private GrayApplicationIpConfigDO queryById(Long id) {
+        List<GrayApplicationIpConfigDO> list = queryGrayApplicationIpConfig(id, null);
+        return CollectionUtils.isEmpty(list) ? null : list.get(0);
+    }
+
+    /**
+     * 记录灰度服务的修改日志，内容为带最新机器列表的灰度服务
+     */
+    private void recordApplicationChange(Long applicationId) {
+        GrayApplicationInfoDO applicationInfoDO = grayApplicationInfoManager.queryGrayApplicationInfoById(applicationId);
+        if (applicationInfoDO != null) {
+            grayConfigChangeLogManager.recordChange(GrayConfigTypeEnum.APPLICATION_INFO, GrayConfigOperationEnum.UPDATE,
+                    applicationId, applicationInfoDO);
+        }
     }
 }
@@ -0,0 +1,52 @@
+package com.huangyuan.open.gray.config.provider.manager.impl;
+
+import com.google.gson.Gson;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
+import com.huangyuan.open.gray.config.provider.dao.GrayConfigChangeLogDAO;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayConfigChangeLogDO;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.util.List;
+
+@Service
+public class GrayConfigChangeLogManagerImpl implements GrayConfigChangeLogManager {
+
+    private static final Gson GSON = new Gson();
+
+    @Resource
+    private GrayConfigChangeLogDAO grayConfigChangeLogDAO;
+
+    @Override
+    public void recordChange(GrayConfigTypeEnum configType, GrayConfigOperationEnum operation, Long configId, Object content) {
+        GrayConfigChangeLogDO grayConfigChangeLogDO = new GrayConfigChangeLogDO();
+        grayConfigChangeLogDO.setConfigType(configType.getTypeCode());
+        grayConfigChangeLogDO.setOperation(operation.getTypeCode());
+        grayConfigChangeLogDO.setConfigId(configId);
+        grayConfigChangeLogDO.setContent(content == null ? null : GSON.toJson(content));
+        grayConfigChangeLogDO.setCreateTime(System.currentTimeMillis());
+
+        // DAO吞掉了异常，这里需要重新抛出，才能让配置修改一起回滚
+        if (!Boolean.TRUE.equals(grayConfigChangeLogDAO.insertChangeLog(grayConfigChangeLogDO))) {
+            throw new IllegalStateException("record gray config change log fail, changeLog=" + grayConfigChangeLogDO);
+        }
+    }
+
+    @Override
+    public List<GrayConfigChangeLogDO> queryChangeLogSince(Long sinceVersion, Integer limit) {
+        return grayConfigChangeLogDAO.queryChangeLogSince(sinceVersion, limit);
+    }
+
+    @Override
+    public Long queryMaxVersion() {
+        return grayConfigChangeLogDAO.queryMaxVersion();
+    }
+
+    @Override
+    public Long queryMinVersion() {
+        return grayConfigChangeLogDAO.queryMinVersion();
+    }
+}
@@ -0,0 +1,248 @@
+package com.huangyuan.open.gray.config.provider.manager.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+import com.huangyuan.open.gray.config.api.model.event.GrayConfigChangeEvent;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayRoutingIndexManager;
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 订阅方保存在内存中，配置服务重启后由订阅方定时重新订阅来恢复。
+ * 版本号即变更日志的最大id，多个配置服务实例之间共享；
+ * 后台定时检查变更日志，其他实例上发生的修改也能重建本实例的路由索引（同时清除受影响的缓存），并通知到本实例的订阅方。
+ * 检查变更日志、重建索引在单独的线程中执行；回调订阅方放在有界的线程池中，每个订阅方同时只有一个回调，
+ * 回调期间产生的新事件只保留最新的一个，某个订阅方变慢、下线不会拖慢其他订阅方和索引的重建
+ */
+@Service
+public class GrayConfigChangeManagerImpl implements GrayConfigChangeManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayConfigChangeManagerImpl.class);
+
+    /**
+     * 索引的最长使用时间，超过后即使版本号没有变化也重建一次（与原来缓存的过期时间一致），
+     * 用于兜底提交顺序与版本号顺序不一致时漏掉的变更
+     */
+    private static final long MAX_INDEX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
+    @Resource
+    private GrayRoutingIndexManager grayRoutingIndexManager;
+
+    /**
+     * 定时检查变更日志的间隔（秒）
+     */
+    @Value("${gray.change.pollSeconds:5}")
+    private long pollSeconds;
+
+    /**
+     * 已经通知过的版本号，订阅时直接返回，不需要每次都查询数据库
+     */
+    private volatile long version;
+
+    /**
+     * 回调订阅方的最大线程数
+     */
+    @Value("${gray.change.notifyThreads:8}")
+    private int notifyThreads;
+
+    /**
+     * 等待回调的订阅方的最大个数，超过时本次不通知，订阅方定时重新订阅时会发现版本号变化
+     */
+    @Value("${gray.change.notifyQueueSize:1000}")
+    private int notifyQueueSize;
+
+    /**
+     * 监听器 -> 订阅方
+     */
+    private final Map<GrayConfigChangeListener, Subscriber> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * 检查变更日志、重建索引在这个线程中执行，不阻塞配置的修改
+     */
+    private final ScheduledExecutorService checkExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("gray-config-change-check-%d").setDaemon(true).build());
+
+    /**
+     * 回调订阅方的线程池
+     */
+    private ThreadPoolExecutor notifyExecutor;
+
+    @PostConstruct
+    public void init() {
+        version = grayConfigChangeLogManager.queryMaxVersion();
+
+        notifyExecutor = new ThreadPoolExecutor(notifyThreads, notifyThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(notifyQueueSize),
+                new ThreadFactoryBuilder().setNameFormat("gray-config-change-notify-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        notifyExecutor.allowCoreThreadTimeOut(true);
+
+        checkExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkChange();
+            }
+        }, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Long subscribe(String applicationName, GrayConfigChangeListener listener) {
+        if (listeners.putIfAbsent(listener, new Subscriber(applicationName, listener)) == null) {
+            LOGGER.info("subscribe gray config change, applicationName={}, subscribers={}",
+                    applicationName, listeners.size());
+        }
+        return version;
+    }
+
+    @Override
+    public Boolean unsubscribe(String applicationName, GrayConfigChangeListener listener) {
+        boolean removed = listeners.remove(listener) != null;
+        if (removed) {
+            LOGGER.info("unsubscribe gray config change, applicationName={}, subscribers={}",
+                    applicationName, listeners.size());
+        }
+        return removed;
+    }
+
+    @Override
+    public void publishChange() {
+        // 同步重建索引，修改配置的调用返回后，本实例上的查询立即可以看到修改
+        grayRoutingIndexManager.rebuild();
+
+        checkExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                checkChange();
+            }
+        });
+    }
+
+    /**
+     * 读取变更日志的最大版本号，比索引的版本号大时重建索引；比已通知的版本号大时通知订阅方
+     */
+    private void checkChange() {
+        try {
+            long maxVersion = grayConfigChangeLogManager.queryMaxVersion();
+
+            GrayRoutingIndex index = grayRoutingIndexManager.getIndex();
+            if ((index.getVersion() == null) || (index.getVersion() < maxVersion)
+                    || (System.currentTimeMillis() - index.getBuildTime() > MAX_INDEX_AGE_MILLIS)) {
+                grayRoutingIndexManager.rebuild();
+            }
+
+            if (maxVersion <= version) {
+                return;
+            }
+            version = maxVersion;
+
+            GrayConfigChangeEvent event = new GrayConfigChangeEvent();
+            event.setVersion(maxVersion);
+            event.setChangeTime(System.currentTimeMillis());
+            notifyListeners(event);
+
+        } catch (Exception e) {
+            LOGGER.error("check gray config change fail", e);
+        }
+    }
+
+    private void notifyListeners(GrayConfigChangeEvent event) {
+        for (Subscriber subscriber : listeners.values()) {
+            subscriber.offer(event);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        checkExecutor.shutdownNow();
+        notifyExecutor.shutdownNow();
+    }
+
+    /**
+     * 一个订阅方：同时只有一个回调在执行，回调期间产生的事件只保留最新的一个，回调结束后再发送，
+     * 因此同一个订阅方收到的版本号是递增的
+     */
+    private class Subscriber implements Runnable {
+
+        private final String applicationName;
+
+        private final GrayConfigChangeListener listener;
+
+        private final AtomicReference<GrayConfigChangeEvent> pending = new AtomicReference<>();
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        Subscriber(String applicationName, GrayConfigChangeListener listener) {
+            this.applicationName = applicationName;
+            this.listener = listener;
+        }
+
+        void offer(GrayConfigChangeEvent event) {
+            pending.set(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                notifyExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+                LOGGER.warn("notify gray config change rejected, too many subscribers waiting, applicationName={}",
+                        applicationName);
+            }
+        }
+
+        @Override
+        public void run() {
+            GrayConfigChangeEvent event = pending.getAndSet(null);
+            try {
+                if (event != null) {
+                    // 回调的超时时间见dubbo-provider.xml中的onChange.timeout
+                    listener.onChange(event);
+                }
+
+            } catch (Exception e) {
+                // 订阅方已经下线（连接断开）或者超时，移除该订阅，订阅方恢复后会重新订阅
+                listeners.remove(listener, this);
+                pending.set(null);
+                LOGGER.warn("notify gray config change fail, remove subscriber, applicationName={}, event={}",
+                        applicationName, event, e);
+
+            } finally {
+                running.set(false);
+                if (pending.get() != null) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.huangyuan.open.gray.config.provider.manager.impl;
+
+import com.huangyuan.open.gray.config.provider.manager.GrayApplicationGroupConfigManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayRoutingIndexManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayServiceCacheManager;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 启动时构建一次索引，之后由GrayConfigChangeManager在配置变更（包括其他实例上的变更）后重建
+ *
+ * 重建期间查询继续使用旧的索引；同时发起的多次重建合并成一次，只访问一次数据库。
+ * 替换索引后清除全量配置的缓存（见GrayServiceCacheManager）
+ */
+@Service
+public class GrayRoutingIndexManagerImpl implements GrayRoutingIndexManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayRoutingIndexManagerImpl.class);
+
+    @Resource
+    private GrayApplicationInfoManager grayApplicationInfoManager;
+    @Resource
+    private GrayApplicationGroupConfigManager grayApplicationGroupConfigManager;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
+    @Resource
+    private GrayServiceCacheManager grayServiceCacheManager;
+
+    private volatile GrayRoutingIndex index;
+
+    /**
+     * 重建请求的序号
+     */
+    private final AtomicLong rebuildRequests = new AtomicLong();
+
+    /**
+     * 最近一次完成的重建覆盖到的请求序号，在这之前发起的请求不需要再次重建
+     */
+    private long rebuiltRequests;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @Override
+    public GrayRoutingIndex getIndex() {
+        GrayRoutingIndex current = index;
+        if (current != null) {
+            return current;
+        }
+
+        current = rebuild();
+        if (current == null) {
+            throw new IllegalStateException("gray routing index is not ready");
+        }
+        return current;
+    }
+
+    @Override
+    public GrayRoutingIndex rebuild() {
+        long request = rebuildRequests.incrementAndGet();
+
+        synchronized (this) {
+            if (rebuiltRequests >= request) {
+                // 等待期间，已经有一次在本次请求之后开始的重建完成了，它读到的数据不会比本次请求旧
+                return index;
+            }
+            // 从这里开始读取数据库，之前发起的请求都可以使用本次的结果
+            rebuiltRequests = rebuildRequests.get();
+
+            return doRebuild();
+        }
+    }
+
+    private GrayRoutingIndex doRebuild() {
+        try {
+            // 先取版本号再查询，查询期间发生的变更会使版本号继续增大，从而再次重建
+            Long version = grayConfigChangeLogManager.queryMaxVersion();
+
+            List<GrayApplicationInfoDO> applicationInfoDOs = grayApplicationInfoManager.queryGrayApplicationInfo(null, null);
+            // 分组不读取fs_eas字段，企业列表从关系表读取
+            List<GrayApplicationGroupConfigDO> groupConfigDOs = grayApplicationGroupConfigManager.
+                    queryGrayApplicationGroupConfigWithoutEas(null);
+            List<GrayGroupEaDO> groupEaDOs = grayApplicationGroupConfigManager.queryGrayGroupEa(null, null);
+
+            GrayRoutingIndex previous = index;
+            index = new GrayRoutingIndex(version, applicationInfoDOs, groupConfigDOs, groupEaDOs);
+            grayServiceCacheManager.evictChanged(previous, index);
+            LOGGER.info("rebuild gray routing index, version={}, applicationInfos={}, groupConfigs={}, groupEas={}",
+                    version, applicationInfoDOs.size(), groupConfigDOs.size(), groupEaDOs.size());
+
+        } catch (Exception e) {
+            LOGGER.error("rebuild gray routing index fail, keep the old index, version={}",
+                    index == null ? null : index.getVersion(), e);
+        }
+        return index;
+    }
+}
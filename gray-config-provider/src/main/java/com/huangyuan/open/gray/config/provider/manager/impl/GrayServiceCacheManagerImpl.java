@@ -0,0 +1,47 @@
+package com.huangyuan.open.gray.config.provider.manager.impl;
+
+import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
+import com.huangyuan.open.gray.config.provider.manager.GrayServiceCacheManager;
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+
+import java.util.Objects;
+
+/**
+ * 本实例和其他实例上的修改都在重建索引时处理
+ */
+@Service
+public class GrayServiceCacheManagerImpl implements GrayServiceCacheManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayServiceCacheManagerImpl.class);
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Override
+    public void evictChanged(GrayRoutingIndex previous, GrayRoutingIndex current) {
+        if ((previous == null) || (current == null) || (previous == current)) {
+            return;
+        }
+
+        Cache cache = cacheManager.getCache(GrayConstant.GRAY_SERVICE_CACHE);
+        if (cache == null) {
+            return;
+        }
+
+        // 全量配置中带有版本号，只修改服务信息、企业列表时配置可能相同，但版本号已经变化
+        if (Objects.equals(current.getVersion(), previous.getVersion()) && current.sameConfigs(previous)) {
+            return;
+        }
+
+        cache.evict(GrayConstant.ROUTING_CONFIG_CACHE_KEY);
+        LOGGER.info("evict gray routing config cache, previousVersion={}, version={}",
+                previous.getVersion(), current.getVersion());
+    }
+}
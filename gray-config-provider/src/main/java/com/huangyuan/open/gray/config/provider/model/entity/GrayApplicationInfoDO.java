@@ -41,7 +41,8 @@ public class GrayApplicationInfoDO implements Serializable{
     private Long updateTime;
 
     /**
-     * ip地址列表，使用;分割
+     * ip地址列表，使用;分割；查询时由gray_application_ip_config的记录拼接而成，
+     * 不再写入gray_application_info.ip_address（该字段在迁移时清空）
      */
     private String ipAddress;
 
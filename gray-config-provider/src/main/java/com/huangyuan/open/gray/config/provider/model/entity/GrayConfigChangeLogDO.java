@@ -0,0 +1,102 @@
+package com.huangyuan.open.gray.config.provider.model.entity;
+
+import java.io.Serializable;
+
+/**
+ * 灰度配置变更日志，自增id即配置版本号
+ */
+public class GrayConfigChangeLogDO implements Serializable {
+
+    /**
+     * 记录id（配置版本号）
+     */
+    private Long id;
+
+    /**
+     * 配置类型，参考GrayConfigTypeEnum
+     */
+    private Integer configType;
+
+    /**
+     * 变更的配置记录id
+     */
+    private Long configId;
+
+    /**
+     * 变更操作，参考GrayConfigOperationEnum
+     */
+    private Integer operation;
+
+    /**
+     * 变更后的配置内容（json），删除操作时为空
+     */
+    private String content;
+
+    /**
+     * 创建时间
+     */
+    private Long createTime;
+
+    public GrayConfigChangeLogDO() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getConfigType() {
+        return configType;
+    }
+
+    public void setConfigType(Integer configType) {
+        this.configType = configType;
+    }
+
+    public Long getConfigId() {
+        return configId;
+    }
+
+    public void setConfigId(Long configId) {
+        this.configId = configId;
+    }
+
+    public Integer getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Integer operation) {
+        this.operation = operation;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Long createTime) {
+        this.createTime = createTime;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayConfigChangeLogDO{" +
+                "id=" + id +
+                ", configType=" + configType +
+                ", configId=" + configId +
+                ", operation=" + operation +
+                ", content='" + content + '\'' +
+                ", createTime=" + createTime +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package com.huangyuan.open.gray.config.provider.model.entity;
+
+import java.io.Serializable;
+
+/**
+ * 灰度分组与灰度企业的关系，一个企业一条记录
+ */
+public class GrayGroupEaDO implements Serializable {
+
+    /**
+     * 记录id
+     */
+    private Long id;
+
+    /**
+     * 灰度分组id
+     */
+    private Long groupId;
+
+    /**
+     * 企业账户
+     */
+    private String fsEa;
+
+    /**
+     * 创建时间
+     */
+    private Long createTime;
+
+    public GrayGroupEaDO() {
+    }
+
+    public GrayGroupEaDO(Long groupId, String fsEa) {
+        this.groupId = groupId;
+        this.fsEa = fsEa;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(Long groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getFsEa() {
+        return fsEa;
+    }
+
+    public void setFsEa(String fsEa) {
+        this.fsEa = fsEa;
+    }
+
+    public Long getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Long createTime) {
+        this.createTime = createTime;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayGroupEaDO{" +
+                "id=" + id +
+                ", groupId=" + groupId +
+                ", fsEa='" + fsEa + '\'' +
+                ", createTime=" + createTime +
+                '}';
+    }
+}
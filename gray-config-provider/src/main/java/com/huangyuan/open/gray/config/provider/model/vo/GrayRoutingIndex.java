@@ -0,0 +1,395 @@
+package com.huangyuan.open.gray.config.provider.model.vo;
+
+import com.huangyuan.open.gray.base.common.GrayRollout;
+import com.huangyuan.open.gray.base.common.IpRangeMatcher;
+import com.huangyuan.open.gray.config.api.constant.StatusTypeEnum;
+import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayGroupEaDO;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 灰度路由索引（不可变）
+ *
+ * 由全部灰度服务、全部灰度分组构建，把原来每次请求都要做的数据库查询、字符串拆分提前做好：
+ *  （1）服务名称 -> 灰度配置
+ *  （2）服务名称 + ip -> 灰度配置（灰度机器编译成IpRangeMatcher，支持网段）
+ *  （3）企业账号 -> 灰度分组
+ * 分组的企业列表来自gray_group_ea关系表（分组记录不读取fs_eas字段）。
+ * 企业账号在构建时编号（每个账号只保存一份），每个分组的企业列表保存为按编号的位图，
+ * 判断企业是否灰度只需要一次HashMap查询和一次位运算，占用的内存与企业数、分组数成正比，与服务数无关。
+ * 分组还可以按比例灰度企业（GrayRollout），不在企业列表中的企业再按哈希值判断，不需要保存企业。
+ * 配置修改后整体重建再替换引用，读取方拿到的总是一个完整的版本。
+ * 同一个key命中多条记录时，取数据库顺序的第一条，与原来遍历查询结果的规则保持一致
+ */
+public class GrayRoutingIndex {
+
+    private static final String ALL = "all";
+
+    /**
+     * 配置版本号（构建时变更日志的最大id）
+     */
+    private final Long version;
+
+    /**
+     * 索引的构建时间
+     */
+    private final long buildTime;
+
+    private final List<GrayApplicationInfoDO> applicationInfos;
+
+    private final List<GrayApplicationGroupConfigDO> groupConfigs;
+
+    /**
+     * 分组id -> 该分组的企业列表（按关系表记录id的顺序）
+     */
+    private final Map<Long, List<String>> fsEasByGroup;
+
+    /**
+     * 服务名称 -> 该服务的第一条灰度配置
+     */
+    private final Map<String, ApplicationEntry> applicationByName;
+
+    /**
+     * 服务名称 -> 该服务的全部灰度配置（保持数据库顺序）
+     */
+    private final Map<String, List<ApplicationEntry>> applicationByIp;
+
+    /**
+     * 企业账号 -> 编号，编号只在本索引内有效
+     */
+    private final Map<String, Integer> tenantIds;
+
+    /**
+     * 企业编号 -> 该企业所在的第一个灰度分组在groupConfigs中的下标
+     */
+    private final int[] groupByTenant;
+
+    /**
+     * 按比例灰度的分组（保持数据库顺序），企业不在任何分组的企业列表中时，取第一个比例覆盖该企业的分组
+     */
+    private final List<GroupEntry> rolloutGroups;
+
+    /**
+     * @param groupConfigs 全部灰度分组（不需要fsEas）
+     * @param groupEas     全部分组与企业的关系，按记录id排列
+     */
+    public GrayRoutingIndex(Long version, List<GrayApplicationInfoDO> applicationInfos,
+                            List<GrayApplicationGroupConfigDO> groupConfigs, List<GrayGroupEaDO> groupEas) {
+        this.version = version;
+        this.buildTime = System.currentTimeMillis();
+        this.applicationInfos = Collections.unmodifiableList(new ArrayList<>(applicationInfos));
+        this.groupConfigs = Collections.unmodifiableList(new ArrayList<>(groupConfigs));
+
+        Map<Long, List<String>> groupFsEas = new HashMap<>();
+        for (GrayGroupEaDO groupEaDO : groupEas) {
+            List<String> fsEas = groupFsEas.get(groupEaDO.getGroupId());
+            if (fsEas == null) {
+                fsEas = new ArrayList<>();
+                groupFsEas.put(groupEaDO.getGroupId(), fsEas);
+            }
+            fsEas.add(groupEaDO.getFsEa());
+        }
+        this.fsEasByGroup = groupFsEas;
+
+        Map<String, Integer> tenantIndex = new HashMap<>();
+        Map<Long, GroupEntry> groups = new HashMap<>();
+        List<GroupEntry> groupList = new ArrayList<>(groupConfigs.size());
+        List<GroupEntry> rollouts = new ArrayList<>();
+        for (GrayApplicationGroupConfigDO groupConfigDO : groupConfigs) {
+            GroupEntry group = new GroupEntry(groupConfigDO, fsEasOf(groupConfigDO.getId()), tenantIndex);
+            groups.put(groupConfigDO.getId(), group);
+            groupList.add(group);
+            if (group.rolloutThreshold > 0) {
+                rollouts.add(group);
+            }
+        }
+
+        int[] tenantGroups = new int[tenantIndex.size()];
+        Arrays.fill(tenantGroups, -1);
+        for (int i = 0; i < groupList.size(); i++) {
+            BitSet fsEas = groupList.get(i).fsEas;
+            for (int tenant = fsEas.nextSetBit(0); tenant >= 0; tenant = fsEas.nextSetBit(tenant + 1)) {
+                if (tenantGroups[tenant] < 0) {
+                    tenantGroups[tenant] = i;
+                }
+            }
+        }
+
+        Map<String, ApplicationEntry> nameIndex = new HashMap<>();
+        Map<String, List<ApplicationEntry>> ipIndex = new HashMap<>();
+        for (GrayApplicationInfoDO applicationInfoDO : applicationInfos) {
+            ApplicationEntry entry = new ApplicationEntry(applicationInfoDO, groups.get(applicationInfoDO.getGroupId()));
+            String applicationName = applicationInfoDO.getApplicationName();
+
+            if (!nameIndex.containsKey(applicationName)) {
+                nameIndex.put(applicationName, entry);
+            }
+
+            List<ApplicationEntry> entries = ipIndex.get(applicationName);
+            if (entries == null) {
+                entries = new ArrayList<>(1);
+                ipIndex.put(applicationName, entries);
+            }
+            entries.add(entry);
+        }
+
+        this.applicationByName = nameIndex;
+        this.applicationByIp = ipIndex;
+        this.tenantIds = tenantIndex;
+        this.groupByTenant = tenantGroups;
+        this.rolloutGroups = rollouts;
+    }
+
+    /**
+     * 查询服务的灰度配置（该服务的第一条配置）
+     *
+     * @param applicationName 服务名称
+     * @return GrayApplicationVO，不存在时返回null
+     */
+    public GrayApplicationVO getApplication(String applicationName) {
+        ApplicationEntry entry = applicationByName.get(applicationName);
+        return entry == null ? null : entry.toVO();
+    }
+
+    /**
+     * 查询该ip所在的灰度配置（只匹配具体的ip或网段，不包括all）
+     *
+     * @param applicationName 服务名称
+     * @param ip              机器ip
+     * @return GrayApplicationVO，不存在时返回null
+     */
+    public GrayApplicationVO getApplicationByIp(String applicationName, String ip) {
+        List<ApplicationEntry> entries = applicationByIp.get(applicationName);
+        if ((entries == null) || (ip == null)) {
+            return null;
+        }
+        for (ApplicationEntry entry : entries) {
+            if (entry.ipMatcher.matchesAddress(ip)) {
+                return entry.toVO();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断该企业对于该服务是否灰度企业：服务所在的灰度分组已开启，并且分组的企业列表含有该企业（或者为all）
+     *
+     * @param applicationName 服务名称
+     * @param fsEa            企业账号
+     * @return true-灰度企业
+     */
+    public boolean checkGrayFsEa(String applicationName, String fsEa) {
+        ApplicationEntry entry = applicationByName.get(applicationName);
+        if ((entry == null) || (entry.group == null) || !entry.group.open) {
+            return false;
+        }
+        if (entry.group.allEas) {
+            return true;
+        }
+        Integer tenant = tenantIds.get(fsEa);
+        return ((tenant != null) && entry.group.fsEas.get(tenant)) || entry.group.inRollout(fsEa);
+    }
+
+    /**
+     * 查询该企业所在的灰度分组
+     *
+     * @param fsEa 企业账号
+     * @return GrayApplicationGroupConfigDO，不存在时返回null
+     */
+    public GrayApplicationGroupConfigDO getGroupByEa(String fsEa) {
+        Integer tenant = tenantIds.get(fsEa);
+        if (tenant != null) {
+            return groupConfigs.get(groupByTenant[tenant]);
+        }
+        for (GroupEntry group : rolloutGroups) {
+            if (group.inRollout(fsEa)) {
+                return group.groupConfigDO;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 全量配置（全部灰度服务、全部灰度分组）是否与之前的索引相同，版本号、不返回给订阅方的字段（描述等）不参与比较
+     *
+     * @param previous 之前的索引
+     * @return true-相同
+     */
+    public boolean sameConfigs(GrayRoutingIndex previous) {
+        if ((applicationInfos.size() != previous.applicationInfos.size())
+                || (groupConfigs.size() != previous.groupConfigs.size())) {
+            return false;
+        }
+        for (int i = 0; i < applicationInfos.size(); i++) {
+            GrayApplicationInfoDO current = applicationInfos.get(i);
+            GrayApplicationInfoDO old = previous.applicationInfos.get(i);
+            if (!Objects.equals(current.getId(), old.getId())
+                    || !Objects.equals(current.getApplicationName(), old.getApplicationName())
+                    || !Objects.equals(current.getGroupId(), old.getGroupId())
+                    || !Objects.equals(current.getStatus(), old.getStatus())
+                    || !Objects.equals(current.getIpAddress(), old.getIpAddress())
+                    || !Objects.equals(current.getUpdateTime(), old.getUpdateTime())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < groupConfigs.size(); i++) {
+            GrayApplicationGroupConfigDO current = groupConfigs.get(i);
+            GrayApplicationGroupConfigDO old = previous.groupConfigs.get(i);
+            if (!sameGroup(current, old)
+                    || !fsEasOf(current.getId()).equals(previous.fsEasOf(old.getId()))
+                    || !Objects.equals(current.getRolloutThreshold(), old.getRolloutThreshold())
+                    || !Objects.equals(current.getRolloutSalt(), old.getRolloutSalt())
+                    || !Objects.equals(current.getUpdateTime(), old.getUpdateTime())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 分组的企业列表，以分号拼接（与原来fs_eas字段的格式相同），用于下发给订阅方
+     *
+     * @param groupId 分组id
+     * @return 没有企业时返回null
+     */
+    public String getFsEas(Long groupId) {
+        List<String> fsEas = fsEasOf(groupId);
+        return fsEas.isEmpty() ? null : String.join(GrayConstant.IP_ADDRESS_MARGIN, fsEas);
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public List<GrayApplicationInfoDO> getApplicationInfos() {
+        return applicationInfos;
+    }
+
+    public List<GrayApplicationGroupConfigDO> getGroupConfigs() {
+        return groupConfigs;
+    }
+
+    private List<String> fsEasOf(Long groupId) {
+        List<String> fsEas = fsEasByGroup.get(groupId);
+        return fsEas == null ? Collections.<String>emptyList() : fsEas;
+    }
+
+    private static boolean sameGroup(GrayApplicationGroupConfigDO current, GrayApplicationGroupConfigDO old) {
+        return Objects.equals(current.getId(), old.getId())
+                && Objects.equals(current.getGroupName(), old.getGroupName())
+                && Objects.equals(current.getStatus(), old.getStatus());
+    }
+
+    private static List<String> split(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return Collections.emptyList();
+        }
+
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, value.split(GrayConstant.IP_ADDRESS_MARGIN));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 灰度服务的一条配置
+     */
+    private static class ApplicationEntry {
+
+        private final GrayApplicationInfoDO applicationInfoDO;
+
+        private final GroupEntry group;
+
+        private final List<String> ipAddressList;
+
+        private final IpRangeMatcher ipMatcher;
+
+        ApplicationEntry(GrayApplicationInfoDO applicationInfoDO, GroupEntry group) {
+            this.applicationInfoDO = applicationInfoDO;
+            this.group = group;
+            this.ipAddressList = split(applicationInfoDO.getIpAddress());
+            this.ipMatcher = IpRangeMatcher.compile(ipAddressList);
+        }
+
+        /**
+         * 每次返回新的对象，调用方可以随意修改
+         */
+        GrayApplicationVO toVO() {
+            GrayApplicationVO applicationVO = new GrayApplicationVO();
+            applicationVO.setApplicationName(applicationInfoDO.getApplicationName());
+            applicationVO.setApplicationStatus(applicationInfoDO.getStatus());
+            if (group != null) {
+                applicationVO.setGroupName(group.groupConfigDO.getGroupName());
+                applicationVO.setGroupStatus(group.groupConfigDO.getStatus());
+            }
+            applicationVO.setIpAddressList(new ArrayList<>(ipAddressList));
+            return applicationVO;
+        }
+    }
+
+    /**
+     * 灰度分组
+     */
+    private static class GroupEntry {
+
+        private final GrayApplicationGroupConfigDO groupConfigDO;
+
+        private final boolean open;
+
+        /**
+         * 分组的企业列表，按企业编号
+         */
+        private final BitSet fsEas = new BitSet();
+
+        private final boolean allEas;
+
+        /**
+         * 按比例灰度的阈值（万分之一），0表示不按比例灰度
+         */
+        private final int rolloutThreshold;
+
+        private final String rolloutSalt;
+
+        /**
+         * @param fsEaList  分组的企业列表（来自关系表）
+         * @param tenantIds 企业账号 -> 编号，新出现的企业在这里分配编号
+         */
+        GroupEntry(GrayApplicationGroupConfigDO groupConfigDO, List<String> fsEaList, Map<String, Integer> tenantIds) {
+            this.groupConfigDO = groupConfigDO;
+            this.open = StatusTypeEnum.OPEN.getTypeCode().equals(groupConfigDO.getStatus());
+            this.rolloutThreshold = groupConfigDO.getRolloutThreshold() == null ? 0 : groupConfigDO.getRolloutThreshold();
+            this.rolloutSalt = GrayRollout.saltOf(groupConfigDO.getId(), groupConfigDO.getRolloutSalt());
+
+            boolean all = false;
+            for (String fsEa : fsEaList) {
+                Integer tenant = tenantIds.get(fsEa);
+                if (tenant == null) {
+                    tenant = tenantIds.size();
+                    tenantIds.put(fsEa, tenant);
+                }
+                fsEas.set(tenant);
+                all |= ALL.equals(fsEa);
+            }
+            this.allEas = all;
+        }
+
+        boolean inRollout(String fsEa) {
+            return GrayRollout.contains(fsEa, rolloutSalt, rolloutThreshold);
+        }
+    }
+}
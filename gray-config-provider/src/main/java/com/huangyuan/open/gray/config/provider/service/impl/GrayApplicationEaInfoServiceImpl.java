@@ -7,8 +7,8 @@ import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
 import com.huangyuan.open.gray.config.api.model.arg.GrayApplicationEaInfoArg;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationEaInfoResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationEaInfoService;
-import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationEaInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationEaInfoDO;
 import com.google.common.collect.Lists;
 
@@ -16,7 +16,6 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -33,6 +32,8 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
 
     @Resource
     private GrayApplicationEaInfoManager grayApplicationEaInfoManager;
+    @Resource
+    private GrayConfigChangeManager grayConfigChangeManager;
 
     @Override
     public EserviceResult<Pager<GrayApplicationEaInfoResult>> queryGrayApplicationEaInfoPage(Pager<GrayApplicationEaInfoResult> pager,
@@ -68,7 +69,6 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> updateApplicationEaInfo(GrayApplicationEaInfoArg arg) {
         if (arg == null
                 || arg.getId() == null
@@ -80,9 +80,16 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
 
         try {
 
+            Boolean result = grayApplicationEaInfoManager
+                    .updateApplicationEaInfo(arg.getId(), arg.getFsEa(), arg.getEaName(), arg.getDescribe());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationEaInfoManager
-                    .updateApplicationEaInfo(arg.getId(), arg.getFsEa(), arg.getEaName(), arg.getDescribe()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -91,7 +98,6 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> delGrayApplicationEaInfo(GrayApplicationEaInfoArg arg) {
         if (arg == null
                 || arg.getId() == null) {
@@ -101,9 +107,16 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
 
         try {
 
+            Boolean result = grayApplicationEaInfoManager
+                    .delGrayApplicationEaInfo(arg.getId());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationEaInfoManager
-                    .delGrayApplicationEaInfo(arg.getId()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -112,7 +125,6 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> insertGrayApplicationEaInfo(GrayApplicationEaInfoArg arg) {
         if (arg == null
                 || StringUtils.isBlank(arg.getFsEa())
@@ -123,9 +135,16 @@ public class GrayApplicationEaInfoServiceImpl implements GrayApplicationEaInfoSe
 
         try {
 
+            Boolean result = grayApplicationEaInfoManager
+                    .insertGrayApplicationEaInfo(arg.getFsEa(), arg.getEaName(), arg.getDescribe());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationEaInfoManager
-                    .insertGrayApplicationEaInfo(arg.getFsEa(), arg.getEaName(), arg.getDescribe()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -1,14 +1,15 @@
 package com.huangyuan.open.gray.config.provider.service.impl;
 
+import com.huangyuan.open.gray.base.common.GrayRollout;
 import com.huangyuan.open.gray.base.common.Pager;
 import com.huangyuan.open.gray.base.result.EserviceResult;
 import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
 import com.huangyuan.open.gray.config.api.model.arg.GrayApplicationGroupConfigArg;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationGroupConfigResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationGroupConfigService;
-import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationGroupConfigManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
 import com.google.common.collect.Lists;
@@ -17,7 +18,6 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -36,6 +36,8 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
     private GrayApplicationGroupConfigManager grayApplicationGroupConfigManager;
     @Resource
     private GrayApplicationInfoManager grayApplicationInfoManager;
+    @Resource
+    private GrayConfigChangeManager grayConfigChangeManager;
 
     @Override
     public EserviceResult<Pager<GrayApplicationGroupConfigResult>> queryGrayApplicationGroupConfigPage(Pager<GrayApplicationGroupConfigResult> pager,
@@ -95,20 +97,28 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> updateGroupConfig(GrayApplicationGroupConfigArg arg) {
         if (arg == null
                 || arg.getId() == null
-                || StringUtils.isBlank(arg.getGroupName())) {
+                || StringUtils.isBlank(arg.getGroupName())
+                || !GrayRollout.isValidThreshold(arg.getRolloutThreshold())) {
             return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(),
                     GrayErrorCode.PARAMS_ERROR.getDescription());
         }
 
         try {
 
+            Boolean result = grayApplicationGroupConfigManager
+                    .updateGroupConfig(arg.getId(), arg.getGroupName(), arg.getDescribe(), arg.getFsEas(),arg.getStatus(),
+                            arg.getRolloutThreshold(), arg.getRolloutSalt());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationGroupConfigManager
-                    .updateGroupConfig(arg.getId(), arg.getGroupName(), arg.getDescribe(), arg.getFsEas(),arg.getStatus()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -117,7 +127,6 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> delGrayApplicationGroupConfig(GrayApplicationGroupConfigArg arg) {
         if (arg == null
                 || arg.getId() == null) {
@@ -135,9 +144,16 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
                         GrayErrorCode.GRAY_APPLICATION_GROUP_DELETE.getDescription());
             }
 
+            Boolean result = grayApplicationGroupConfigManager
+                    .delGrayApplicationGroupConfig(arg.getId());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationGroupConfigManager
-                    .delGrayApplicationGroupConfig(arg.getId()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -146,19 +162,27 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> insertGrayApplicationGroupConfig(GrayApplicationGroupConfigArg arg) {
         if (arg == null
-                || StringUtils.isBlank(arg.getGroupName())) {
+                || StringUtils.isBlank(arg.getGroupName())
+                || !GrayRollout.isValidThreshold(arg.getRolloutThreshold())) {
             return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(),
                     GrayErrorCode.PARAMS_ERROR.getDescription());
         }
 
         try {
 
+            Boolean result = grayApplicationGroupConfigManager
+                    .insertGrayApplicationGroupConfig(arg.getGroupName(), arg.getStatus(), arg.getDescribe(), arg.getFsEas(),
+                            arg.getRolloutThreshold(), arg.getRolloutSalt());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationGroupConfigManager
-                    .insertGrayApplicationGroupConfig(arg.getGroupName(), arg.getStatus(), arg.getDescribe(), arg.getFsEas()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -179,6 +203,8 @@ public class GrayApplicationGroupConfigServiceImpl implements GrayApplicationGro
             groupConfigResult.setId(groupConfigDO.getId());
             groupConfigResult.setGroupName(groupConfigDO.getGroupName());
             groupConfigResult.setFsEas(groupConfigDO.getFsEas());
+            groupConfigResult.setRolloutThreshold(groupConfigDO.getRolloutThreshold());
+            groupConfigResult.setRolloutSalt(groupConfigDO.getRolloutSalt());
             groupConfigResult.setStatus(groupConfigDO.getStatus());
             groupConfigResult.setDescribe(groupConfigDO.getDescribe());
             groupConfigResult.setCreateTime(groupConfigDO.getCreateTime());
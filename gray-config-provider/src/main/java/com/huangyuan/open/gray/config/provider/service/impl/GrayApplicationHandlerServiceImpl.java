@@ -1,23 +1,42 @@
 package com.huangyuan.open.gray.config.provider.service.impl;
 
+import com.google.gson.Gson;
 import com.huangyuan.open.gray.base.common.BeanUtils;
 import com.huangyuan.open.gray.base.result.EserviceResult;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
 import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
+import com.huangyuan.open.gray.config.api.constant.StatusTypeEnum;
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+import com.huangyuan.open.gray.config.api.model.arg.ClassifyGrayFsEasArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationConfigNewArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationGroupConfigByEaArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayConfigChangesArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingConfigArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingSliceArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingVerdictArg;
+import com.huangyuan.open.gray.config.api.model.result.ClassifyGrayFsEasResult;
 import com.huangyuan.open.gray.config.api.model.result.GetGrayApplicationGroupConfigByEaResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationGroupConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationInfoResult;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangeResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangesResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingSliceResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingVerdictResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
 import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
-import com.huangyuan.open.gray.config.provider.manager.GrayApplicationGroupConfigManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationHandlerManager;
-import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeLogManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayRoutingIndexManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
+import com.huangyuan.open.gray.config.provider.model.entity.GrayConfigChangeLogDO;
 import com.huangyuan.open.gray.config.provider.model.vo.GrayApplicationVO;
+import com.huangyuan.open.gray.config.provider.model.vo.GrayRoutingIndex;
 
-import com.huangyuan.open.gray.config.provider.util.ConvertUtils;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +44,11 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author huangy
@@ -35,16 +58,33 @@ import java.util.List;
 public class GrayApplicationHandlerServiceImpl implements GrayApplicationHandlerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(GrayApplicationHandlerServiceImpl.class);
 
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 增量配置一次默认返回、最多返回的变更条数
+     */
+    private static final int DEFAULT_CHANGES_LIMIT = 500;
+
+    private static final int MAX_CHANGES_LIMIT = 2000;
+
+    /**
+     * 变更日志的版本号出现空洞时，等待空洞补上的时间（毫秒）。
+     * 自增id在插入时分配、提交顺序可能与id顺序不一致，较小的id可能还在未提交的事务中；
+     * 超过该时间仍未出现的id，认为对应的事务已经回滚
+     */
+    private static final long CHANGE_GAP_WAIT_MILLIS = 10000;
+
     @Resource
     private GrayApplicationHandlerManager grayApplicationHandlerManager;
     @Resource
-    private GrayApplicationInfoManager grayApplicationInfoManager;
+    private GrayConfigChangeManager grayConfigChangeManager;
+    @Resource
+    private GrayConfigChangeLogManager grayConfigChangeLogManager;
     @Resource
-    private GrayApplicationGroupConfigManager grayApplicationGroupConfigManager;
+    private GrayRoutingIndexManager grayRoutingIndexManager;
 
 
     @Override
-    @Cacheable(value = GrayConstant.GRAY_SERVICE_CACHE)
     public EserviceResult<GrayApplicationResult> getGrayApplicationConfig(String applicationName) {
         if (StringUtils.isBlank(applicationName)) {
             LOGGER.warn("Params illegal，applicationName={}", applicationName);
@@ -72,7 +112,6 @@ public class GrayApplicationHandlerServiceImpl implements GrayApplicationHandler
     }
 
     @Override
-    @Cacheable(value = GrayConstant.GRAY_SERVICE_CACHE)
     public EserviceResult<Boolean> checkGrayFsEa(String applicationName, String fsEa) {
         if (StringUtils.isBlank(applicationName) || StringUtils.isBlank(fsEa)) {
             LOGGER.warn("Params illegal，applicationName={}, sEa={}", applicationName, fsEa);
@@ -92,7 +131,6 @@ public class GrayApplicationHandlerServiceImpl implements GrayApplicationHandler
     }
 
     @Override
-    @Cacheable(value = GrayConstant.GRAY_SERVICE_CACHE)
     public EserviceResult<GrayApplicationResult> getGrayApplicationConfigNew(GetGrayApplicationConfigNewArg arg) {
 
         if (StringUtils.isEmpty(arg.getApplicationName()) || StringUtils.isEmpty(arg.getIp())) {
@@ -102,16 +140,13 @@ public class GrayApplicationHandlerServiceImpl implements GrayApplicationHandler
 
         try {
 
-            List<GrayApplicationInfoDO> applicationInfoDOs = grayApplicationInfoManager.queryGrayApplicationInfo(arg.getApplicationName(), null);
-
-            List<String> ipAddressList;
-            for (GrayApplicationInfoDO grayApplicationInfoDO : applicationInfoDOs) {
-                ipAddressList = ConvertUtils.getIpAddress(grayApplicationInfoDO.getIpAddress());
-
-                if (ipAddressList.contains(arg.getIp())) {
-                    return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(), GrayErrorCode.SUCCESS.getDescription(),
-                            genarateGrayApplicationResult(grayApplicationInfoDO));
-                }
+            GrayApplicationVO grayApplicationVO = grayApplicationHandlerManager.
+                    getGrayApplicationConfigByIp(arg.getApplicationName(), arg.getIp());
+            if (grayApplicationVO != null) {
+                GrayApplicationResult grayApplicationResult = new GrayApplicationResult();
+                BeanUtils.copeProperties(grayApplicationResult, grayApplicationVO);
+                return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(), GrayErrorCode.SUCCESS.getDescription(),
+                        grayApplicationResult);
             }
 
             // 到这里，说明灰度配置不存在，配置有问题（或者该应用不参与灰度）
@@ -125,69 +160,362 @@ public class GrayApplicationHandlerServiceImpl implements GrayApplicationHandler
         }
     }
 
-    private GrayApplicationResult genarateGrayApplicationResult(GrayApplicationInfoDO grayApplicationInfoDO) {
 
-        GrayApplicationResult result = new GrayApplicationResult();
+    @Override
+    public EserviceResult<GetGrayApplicationGroupConfigByEaResult> getGrayApplicationGroupConfigByEa(GetGrayApplicationGroupConfigByEaArg arg) {
+
+        if (StringUtils.isEmpty(arg.getFsEa())) {
+            LOGGER.warn("getGrayApplicationGroupConfigByEa fail, param error, arg={}", arg);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
 
-        result.setApplicationName(grayApplicationInfoDO.getApplicationName());
-        result.setApplicationStatus(grayApplicationInfoDO.getStatus());
+        try {
+            GetGrayApplicationGroupConfigByEaResult result = new GetGrayApplicationGroupConfigByEaResult();
 
-        // 获取该服务的灰度分组
-        if (grayApplicationInfoDO.getGroupId() != null) {
-            List<GrayApplicationGroupConfigDO> groupConfigDOs = grayApplicationGroupConfigManager.
-                    queryGrayApplicationGroupConfig(grayApplicationInfoDO.getGroupId(), null);
-            if (CollectionUtils.isNotEmpty(groupConfigDOs)) {
-                GrayApplicationGroupConfigDO group = groupConfigDOs.get(0);
-                result.setGroupName(group.getGroupName());
-                result.setGroupStatus(group.getStatus());
+            GrayApplicationGroupConfigDO groupConfigDO = grayApplicationHandlerManager.getGrayApplicationGroupConfigByEa(arg.getFsEa());
+            if (groupConfigDO != null) {
+                result.setGroupName(groupConfigDO.getGroupName());
+                result.setId(groupConfigDO.getId());
+                result.setStatus(groupConfigDO.getStatus());
+                return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                        GrayErrorCode.SUCCESS.getDescription(), result);
             }
-        }
 
-        // 获取该服务的灰度机器列表
-        result.setIpAddressList(ConvertUtils.getIpAddress(grayApplicationInfoDO.getIpAddress()));
+            return new EserviceResult<>(GrayErrorCode.EA_IS_NOT_GRAY.getErrorCode(), GrayErrorCode.EA_IS_NOT_GRAY.getErrorMessage());
 
-        return result;
+        } catch (Exception e) {
+            LOGGER.error("getGrayApplicationGroupConfigByEa fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
     }
 
+    @Override
+    public EserviceResult<ClassifyGrayFsEasResult> classifyGrayFsEas(ClassifyGrayFsEasArg arg) {
+        if ((arg == null) || (arg.getFsEas() == null) || (arg.getFsEas().size() > ClassifyGrayFsEasArg.MAX_SIZE)) {
+            LOGGER.warn("classifyGrayFsEas fail, param error, arg={}", arg);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
+
+        try {
+            // 全部企业使用同一个索引判断，结果属于同一个配置版本
+            GrayRoutingIndex index = grayRoutingIndexManager.getIndex();
+            String providerApplicationName = StringUtils.trimToNull(arg.getProviderApplicationName());
+
+            List<String> fsEas = arg.getFsEas();
+            int[] groupIndexes = new int[fsEas.size()];
+            byte[] grayFlags = new byte[(fsEas.size() + 7) >>> 3];
+            List<String> groupNames = new ArrayList<>();
+            Map<String, Integer> groupIndexByName = new HashMap<>();
+
+            for (int i = 0; i < groupIndexes.length; i++) {
+                String fsEa = fsEas.get(i);
+                GrayApplicationGroupConfigDO group = StringUtils.isEmpty(fsEa) ? null : index.getGroupByEa(fsEa);
+                if (group == null) {
+                    groupIndexes[i] = -1;
+                } else {
+                    Integer groupIndex = groupIndexByName.get(group.getGroupName());
+                    if (groupIndex == null) {
+                        groupIndex = groupNames.size();
+                        groupNames.add(group.getGroupName());
+                        groupIndexByName.put(group.getGroupName(), groupIndex);
+                    }
+                    groupIndexes[i] = groupIndex;
+                }
+
+                boolean gray = providerApplicationName == null
+                        ? (group != null) && StatusTypeEnum.OPEN.getTypeCode().equals(group.getStatus())
+                        : StringUtils.isNotEmpty(fsEa) && index.checkGrayFsEa(providerApplicationName, fsEa);
+                if (gray) {
+                    grayFlags[i >>> 3] |= 1 << (i & 7);
+                }
+            }
+
+            ClassifyGrayFsEasResult result = new ClassifyGrayFsEasResult();
+            result.setVersion(index.getVersion());
+            result.setGroupNames(groupNames);
+            result.setGroupIndexes(groupIndexes);
+            result.setGrayFlags(grayFlags);
+
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
+
+        } catch (Exception e) {
+            LOGGER.error("classifyGrayFsEas fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
 
     @Override
-    @Cacheable(value = GrayConstant.GRAY_SERVICE_CACHE)
-    public EserviceResult<GetGrayApplicationGroupConfigByEaResult> getGrayApplicationGroupConfigByEa(GetGrayApplicationGroupConfigByEaArg arg) {
+    public EserviceResult<GrayRoutingVerdictResult> getGrayRoutingVerdict(GetGrayRoutingVerdictArg arg) {
+        if ((arg == null) || StringUtils.isEmpty(arg.getConsumerApplicationName())
+                || StringUtils.isEmpty(arg.getProviderApplicationName()) || StringUtils.isEmpty(arg.getIp())) {
+            LOGGER.warn("getGrayRoutingVerdict fail, param error, arg={}", arg);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
 
-        if (StringUtils.isEmpty(arg.getFsEa())) {
-            LOGGER.warn("getGrayApplicationGroupConfigByEa fail, param error, arg={}", arg);
+        try {
+            // 三个判断使用同一个索引，结果属于同一个配置版本
+            GrayRoutingIndex index = grayRoutingIndexManager.getIndex();
+
+            GrayRoutingVerdictResult result = new GrayRoutingVerdictResult();
+            result.setVersion(index.getVersion());
+
+            GrayApplicationVO consumer = index.getApplicationByIp(arg.getConsumerApplicationName(), arg.getIp());
+            result.setConsumerGray((consumer != null) && consumer.checkGray());
+            result.setConsumerGroup(consumer == null ? null : consumer.getGroupName());
+
+            if (StringUtils.isEmpty(arg.getFsEa())) {
+                result.setGray(result.getConsumerGray());
+                result.setGrayGroup(result.getConsumerGroup());
+            } else {
+                GrayApplicationGroupConfigDO group = index.getGroupByEa(arg.getFsEa());
+                result.setEaGray(index.checkGrayFsEa(arg.getProviderApplicationName(), arg.getFsEa()));
+                result.setEaGroup(group == null ? null : group.getGroupName());
+                result.setGray(result.getEaGray());
+                result.setGrayGroup(result.getEaGroup());
+            }
+
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
+
+        } catch (Exception e) {
+            LOGGER.error("getGrayRoutingVerdict fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
+
+    @Override
+    public EserviceResult<GrayRoutingSliceResult> getGrayRoutingSlice(GetGrayRoutingSliceArg arg) {
+        if ((arg == null) || StringUtils.isEmpty(arg.getApplicationName()) || StringUtils.isEmpty(arg.getIp())) {
+            LOGGER.warn("getGrayRoutingSlice fail, param error, arg={}", arg);
             return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
         }
 
         try {
-            GetGrayApplicationGroupConfigByEaResult result = new GetGrayApplicationGroupConfigByEaResult();
+            GrayRoutingIndex index = grayRoutingIndexManager.getIndex();
+
+            Map<Long, GrayApplicationGroupConfigDO> groupById = new LinkedHashMap<>();
+            for (GrayApplicationGroupConfigDO groupConfigDO : index.getGroupConfigs()) {
+                groupById.put(groupConfigDO.getId(), groupConfigDO);
+            }
+
+            // 该应用的灰度服务配置，以及它们引用的分组（保持数据库顺序）
+            List<GrayApplicationInfoResult> applicationInfos = new ArrayList<>();
+            Map<Long, GrayApplicationGroupConfigResult> groups = new LinkedHashMap<>();
+            for (GrayApplicationInfoDO applicationInfoDO : index.getApplicationInfos()) {
+                if (!arg.getApplicationName().equals(applicationInfoDO.getApplicationName())) {
+                    continue;
+                }
+                applicationInfos.add(buildApplicationInfoResult(applicationInfoDO));
+
+                GrayApplicationGroupConfigDO groupConfigDO = groupById.get(applicationInfoDO.getGroupId());
+                if ((groupConfigDO != null) && !groups.containsKey(groupConfigDO.getId())) {
+                    groups.put(groupConfigDO.getId(),
+                            buildGroupConfigResult(groupConfigDO, index.getFsEas(groupConfigDO.getId())));
+                }
+            }
+
+            GrayApplicationVO local = index.getApplicationByIp(arg.getApplicationName(), arg.getIp());
 
-            // 查询出全部分组信息
-            List<GrayApplicationGroupConfigDO> groupConfigDOs = grayApplicationGroupConfigManager.
-                    queryGrayApplicationGroupConfig(null, null);
+            GrayRoutingSliceResult result = new GrayRoutingSliceResult();
+            result.setVersion(index.getVersion());
+            result.setApplicationInfos(applicationInfos);
+            result.setGroupConfigs(new ArrayList<>(groups.values()));
+            result.setGray((local != null) && local.checkGray());
+            result.setGrayGroup(local == null ? null : local.getGroupName());
 
-            // 如果企业列表含有该企业，则返回
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
+
+        } catch (Exception e) {
+            LOGGER.error("getGrayRoutingSlice fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
+
+    @Override
+    @Cacheable(value = GrayConstant.GRAY_SERVICE_CACHE, key = "'getGrayRoutingConfig'", sync = true)
+    public EserviceResult<GrayRoutingConfigResult> getGrayRoutingConfig(GetGrayRoutingConfigArg arg) {
+        try {
+            // 直接使用路由索引中的全量配置，版本号与配置来自同一次构建
+            GrayRoutingIndex index = grayRoutingIndexManager.getIndex();
+            Long version = index.getVersion();
+            List<GrayApplicationInfoDO> applicationInfoDOs = index.getApplicationInfos();
+            List<GrayApplicationGroupConfigDO> groupConfigDOs = index.getGroupConfigs();
+
+            List<GrayApplicationInfoResult> applicationInfos = new ArrayList<>(applicationInfoDOs.size());
+            for (GrayApplicationInfoDO applicationInfoDO : applicationInfoDOs) {
+                applicationInfos.add(buildApplicationInfoResult(applicationInfoDO));
+            }
+
+            List<GrayApplicationGroupConfigResult> groupConfigs = new ArrayList<>(groupConfigDOs.size());
             for (GrayApplicationGroupConfigDO groupConfigDO : groupConfigDOs) {
-                String fsEas = groupConfigDO.getFsEas();
-                String[] fsArr = fsEas.split(";");
-
-                for (String ea : fsArr) {
-                    if (arg.getFsEa().equals(ea)) {
-                        result.setGroupName(groupConfigDO.getGroupName());
-                        result.setId(groupConfigDO.getId());
-                        result.setStatus(groupConfigDO.getStatus());
-                        return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                                GrayErrorCode.SUCCESS.getDescription(), result);
-                    }
+                groupConfigs.add(buildGroupConfigResult(groupConfigDO, index.getFsEas(groupConfigDO.getId())));
+            }
+
+            GrayRoutingConfigResult result = new GrayRoutingConfigResult();
+            result.setVersion(version);
+            result.setApplicationInfos(applicationInfos);
+            result.setGroupConfigs(groupConfigs);
+
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
+
+        } catch (Exception e) {
+            LOGGER.error("getGrayRoutingConfig fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
+
+    @Override
+    public EserviceResult<GrayConfigChangesResult> getGrayConfigChangesSince(GetGrayConfigChangesArg arg) {
+        if ((arg == null) || (arg.getSinceVersion() == null) || (arg.getSinceVersion() < 0)) {
+            LOGGER.warn("getGrayConfigChangesSince fail, param error, arg={}", arg);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
+
+        try {
+            long sinceVersion = arg.getSinceVersion();
+            int limit = (arg.getLimit() == null) || (arg.getLimit() <= 0)
+                    ? DEFAULT_CHANGES_LIMIT : Math.min(arg.getLimit(), MAX_CHANGES_LIMIT);
+
+            GrayConfigChangesResult result = new GrayConfigChangesResult();
+            result.setVersion(sinceVersion);
+            result.setHasMore(false);
+            result.setFullSyncRequired(false);
+            result.setChanges(new ArrayList<GrayConfigChangeResult>());
+
+            // 订阅方的版本号比当前版本号还大（比如变更日志被重建），或者早于已清理的变更日志，只能拉取全量配置
+            long maxVersion = grayConfigChangeLogManager.queryMaxVersion();
+            long minVersion = grayConfigChangeLogManager.queryMinVersion();
+            if ((sinceVersion > maxVersion) || ((minVersion > 0) && (sinceVersion < minVersion - 1))) {
+                LOGGER.info("getGrayConfigChangesSince : full sync required, arg={}, minVersion={}, maxVersion={}",
+                        arg, minVersion, maxVersion);
+                result.setFullSyncRequired(true);
+                result.setVersion(maxVersion);
+                return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                        GrayErrorCode.SUCCESS.getDescription(), result);
+            }
+
+            // 多查一条，用于判断是否还有更多变更
+            List<GrayConfigChangeLogDO> changeLogDOs = grayConfigChangeLogManager.queryChangeLogSince(sinceVersion, limit + 1);
+            if (changeLogDOs.size() > limit) {
+                changeLogDOs = changeLogDOs.subList(0, limit);
+                result.setHasMore(true);
+            }
+
+            long now = System.currentTimeMillis();
+            for (GrayConfigChangeLogDO changeLogDO : changeLogDOs) {
+                // 遇到较新的空洞时停止，避免订阅方越过还未提交的变更，订阅方之后会再次拉取
+                if ((changeLogDO.getId() != result.getVersion() + 1)
+                        && (now - changeLogDO.getCreateTime() < CHANGE_GAP_WAIT_MILLIS)) {
+                    result.setHasMore(false);
+                    break;
                 }
+                result.getChanges().add(buildChangeResult(changeLogDO));
+                result.setVersion(changeLogDO.getId());
             }
 
-            return new EserviceResult<>(GrayErrorCode.EA_IS_NOT_GRAY.getErrorCode(), GrayErrorCode.EA_IS_NOT_GRAY.getErrorMessage());
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
 
         } catch (Exception e) {
-            LOGGER.error("getGrayApplicationGroupConfigByEa fail, Exception occur, arg={}", arg, e);
+            LOGGER.error("getGrayConfigChangesSince fail, Exception occur, arg={}", arg, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
+
+    @Override
+    public EserviceResult<Long> subscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener) {
+        if (StringUtils.isBlank(applicationName) || (listener == null)) {
+            LOGGER.warn("subscribeGrayConfigChange fail, param error, applicationName={}", applicationName);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
+
+        try {
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(), GrayErrorCode.SUCCESS.getDescription(),
+                    grayConfigChangeManager.subscribe(applicationName, listener));
+        } catch (Exception e) {
+            LOGGER.error("subscribeGrayConfigChange fail, Exception occur, applicationName={}", applicationName, e);
+            return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
+                    GrayErrorCode.SYSTEM_ERROR.getDescription());
+        }
+    }
+
+    @Override
+    public EserviceResult<Boolean> unsubscribeGrayConfigChange(String applicationName, GrayConfigChangeListener listener) {
+        if (StringUtils.isBlank(applicationName) || (listener == null)) {
+            LOGGER.warn("unsubscribeGrayConfigChange fail, param error, applicationName={}", applicationName);
+            return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(), GrayErrorCode.PARAMS_ERROR.getErrorMessage());
+        }
+
+        try {
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(), GrayErrorCode.SUCCESS.getDescription(),
+                    grayConfigChangeManager.unsubscribe(applicationName, listener));
+        } catch (Exception e) {
+            LOGGER.error("unsubscribeGrayConfigChange fail, Exception occur, applicationName={}", applicationName, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
                     GrayErrorCode.SYSTEM_ERROR.getDescription());
         }
     }
+
+    private GrayConfigChangeResult buildChangeResult(GrayConfigChangeLogDO changeLogDO) {
+        GrayConfigChangeResult changeResult = new GrayConfigChangeResult();
+        changeResult.setVersion(changeLogDO.getId());
+        changeResult.setConfigType(changeLogDO.getConfigType());
+        changeResult.setConfigId(changeLogDO.getConfigId());
+        changeResult.setOperation(changeLogDO.getOperation());
+        changeResult.setChangeTime(changeLogDO.getCreateTime());
+
+        if (GrayConfigOperationEnum.DELETE.getTypeCode().equals(changeLogDO.getOperation())
+                || StringUtils.isBlank(changeLogDO.getContent())) {
+            return changeResult;
+        }
+
+        // 只有灰度服务、灰度分组参与灰度路由，其他类型的变更只返回记录id
+        if (GrayConfigTypeEnum.APPLICATION_INFO.getTypeCode().equals(changeLogDO.getConfigType())) {
+            changeResult.setApplicationInfo(buildApplicationInfoResult(
+                    GSON.fromJson(changeLogDO.getContent(), GrayApplicationInfoDO.class)));
+
+        } else if (GrayConfigTypeEnum.APPLICATION_GROUP.getTypeCode().equals(changeLogDO.getConfigType())) {
+            // 变更日志中的fsEas在记录时已从关系表读取
+            GrayApplicationGroupConfigDO groupConfigDO = GSON.fromJson(changeLogDO.getContent(),
+                    GrayApplicationGroupConfigDO.class);
+            changeResult.setGroupConfig(buildGroupConfigResult(groupConfigDO, groupConfigDO.getFsEas()));
+        }
+        return changeResult;
+    }
+
+    private GrayApplicationInfoResult buildApplicationInfoResult(GrayApplicationInfoDO applicationInfoDO) {
+        GrayApplicationInfoResult infoResult = new GrayApplicationInfoResult();
+        infoResult.setId(applicationInfoDO.getId());
+        infoResult.setApplicationName(applicationInfoDO.getApplicationName());
+        infoResult.setGroupId(applicationInfoDO.getGroupId());
+        infoResult.setStatus(applicationInfoDO.getStatus());
+        infoResult.setIpAddress(applicationInfoDO.getIpAddress());
+        infoResult.setUpdateTime(applicationInfoDO.getUpdateTime());
+        return infoResult;
+    }
+
+    /**
+     * @param fsEas 分组的企业列表（分号拼接），来自gray_group_ea关系表，不使用分组记录的fs_eas字段
+     */
+    private GrayApplicationGroupConfigResult buildGroupConfigResult(GrayApplicationGroupConfigDO groupConfigDO,
+                                                                    String fsEas) {
+        GrayApplicationGroupConfigResult groupResult = new GrayApplicationGroupConfigResult();
+        groupResult.setId(groupConfigDO.getId());
+        groupResult.setGroupName(groupConfigDO.getGroupName());
+        groupResult.setFsEas(fsEas);
+        groupResult.setRolloutThreshold(groupConfigDO.getRolloutThreshold());
+        groupResult.setRolloutSalt(groupConfigDO.getRolloutSalt());
+        groupResult.setStatus(groupConfigDO.getStatus());
+        groupResult.setUpdateTime(groupConfigDO.getUpdateTime());
+        return groupResult;
+    }
 }
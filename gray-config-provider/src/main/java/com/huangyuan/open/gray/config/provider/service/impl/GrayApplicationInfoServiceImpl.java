@@ -6,10 +6,10 @@ import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
 import com.huangyuan.open.gray.config.api.model.arg.GrayApplicationInfoArg;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationInfoResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationInfoService;
-import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationGroupConfigManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationIpConfigManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationGroupConfigDO;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
 import com.google.common.collect.Lists;
@@ -19,7 +19,6 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -42,6 +41,8 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
     private GrayApplicationIpConfigManager grayApplicationIpConfigManager;
     @Resource
     private GrayApplicationGroupConfigManager grayApplicationGroupConfigManager;
+    @Resource
+    private GrayConfigChangeManager grayConfigChangeManager;
 
     @Override
     public EserviceResult<Pager<GrayApplicationInfoResult>> queryGrayApplicationInfoPage(Pager<GrayApplicationInfoResult> pager, GrayApplicationInfoArg arg) {
@@ -102,7 +103,6 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> updateGrayApplicationInfo(GrayApplicationInfoArg arg) {
         if (arg == null
                 || arg.getId() == null
@@ -114,10 +114,17 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
 
         try {
 
-            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationInfoManager
+            Boolean result = grayApplicationInfoManager
                     .updateGrayApplicationInfo(arg.getId(), arg.getApplicationName(),
-                            arg.getGroupId(), arg.getDescribe(), arg.getIpAddress(), arg.getStatus()));
+                            arg.getGroupId(), arg.getDescribe(), arg.getIpAddress(), arg.getStatus());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -126,7 +133,6 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> delGrayApplicationInfo(GrayApplicationInfoArg arg) {
         if (arg == null
                 || arg.getId() == null) {
@@ -137,9 +143,16 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
 
         try {
 
+            Boolean result = grayApplicationInfoManager
+                    .delGrayApplicationInfo(arg.getId());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationInfoManager
-                    .delGrayApplicationInfo(arg.getId()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -148,7 +161,6 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> insertGrayApplicationInfo(GrayApplicationInfoArg arg) {
         if (arg == null
                 || StringUtils.isBlank(arg.getApplicationName())
@@ -159,10 +171,17 @@ public class GrayApplicationInfoServiceImpl implements GrayApplicationInfoServic
 
         try {
 
-            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationInfoManager
+            Boolean result = grayApplicationInfoManager
                     .insertGrayApplicationInfo(arg.getApplicationName(), arg.getGroupId(), arg.getStatus(),
-                            arg.getDescribe(), arg.getIpAddress()));
+                            arg.getDescribe(), arg.getIpAddress());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
+            return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
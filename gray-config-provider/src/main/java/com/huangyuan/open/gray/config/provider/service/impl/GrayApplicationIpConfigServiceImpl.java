@@ -1,14 +1,15 @@
 package com.huangyuan.open.gray.config.provider.service.impl;
 
+import com.huangyuan.open.gray.base.common.IpRangeMatcher;
 import com.huangyuan.open.gray.base.common.Pager;
 import com.huangyuan.open.gray.base.result.EserviceResult;
 import com.huangyuan.open.gray.config.api.constant.GrayErrorCode;
 import com.huangyuan.open.gray.config.api.model.arg.GrayApplicationIpConfigArg;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationIpConfigResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationIpConfigService;
-import com.huangyuan.open.gray.config.provider.constant.GrayConstant;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationInfoManager;
 import com.huangyuan.open.gray.config.provider.manager.GrayApplicationIpConfigManager;
+import com.huangyuan.open.gray.config.provider.manager.GrayConfigChangeManager;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationInfoDO;
 import com.huangyuan.open.gray.config.provider.model.entity.GrayApplicationIpConfigDO;
 import com.google.common.collect.Lists;
@@ -18,7 +19,6 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -39,6 +39,8 @@ public class GrayApplicationIpConfigServiceImpl implements GrayApplicationIpConf
     private GrayApplicationIpConfigManager grayApplicationIpConfigManager;
     @Resource
     private GrayApplicationInfoManager grayApplicationInfoManager;
+    @Resource
+    private GrayConfigChangeManager grayConfigChangeManager;
 
     @Override
     public EserviceResult<Pager<GrayApplicationIpConfigResult>> queryGrayApplicationIpConfigPage(Pager<GrayApplicationIpConfigResult> pager, GrayApplicationIpConfigArg arg) {
@@ -73,21 +75,28 @@ public class GrayApplicationIpConfigServiceImpl implements GrayApplicationIpConf
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> updateApplicationIPConfig(GrayApplicationIpConfigArg arg) {
         if (arg == null
                 || arg.getId() == null
                 || arg.getApplicationId() == null
-                || StringUtils.isBlank(arg.getIpAddress())) {
+                || StringUtils.isBlank(arg.getIpAddress())
+                || !IpRangeMatcher.isValidRule(arg.getIpAddress())) {
             return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(),
                     GrayErrorCode.PARAMS_ERROR.getDescription());
         }
 
         try {
 
+            Boolean result = grayApplicationIpConfigManager
+                    .updateApplicationIPConfig(arg.getId(), arg.getIpAddress(), arg.getApplicationId(), arg.getDescribe());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationIpConfigManager
-                    .updateApplicationIPConfig(arg.getId(), arg.getIpAddress(), arg.getApplicationId(), arg.getDescribe()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -96,7 +105,6 @@ public class GrayApplicationIpConfigServiceImpl implements GrayApplicationIpConf
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> delGrayApplicationIpConfig(GrayApplicationIpConfigArg arg) {
         if (arg == null
                 || arg.getId() == null) {
@@ -106,9 +114,16 @@ public class GrayApplicationIpConfigServiceImpl implements GrayApplicationIpConf
 
         try {
 
+            Boolean result = grayApplicationIpConfigManager
+                    .delGrayApplicationIpConfig(arg.getId());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationIpConfigManager
-                    .delGrayApplicationIpConfig(arg.getId()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
@@ -117,20 +132,27 @@ public class GrayApplicationIpConfigServiceImpl implements GrayApplicationIpConf
     }
 
     @Override
-    @CacheEvict(value = GrayConstant.GRAY_SERVICE_CACHE, allEntries=true)
     public EserviceResult<Boolean> insertGrayApplicationIpConfig(GrayApplicationIpConfigArg arg) {
         if (arg == null
                 || arg.getApplicationId() == null
-                || StringUtils.isBlank(arg.getIpAddress())) {
+                || StringUtils.isBlank(arg.getIpAddress())
+                || !IpRangeMatcher.isValidRule(arg.getIpAddress())) {
             return new EserviceResult<>(GrayErrorCode.PARAMS_ERROR.getErrorCode(),
                     GrayErrorCode.PARAMS_ERROR.getDescription());
         }
 
         try {
 
+            Boolean result = grayApplicationIpConfigManager
+                    .insertGrayApplicationIpConfig(arg.getIpAddress(), arg.getApplicationId(), arg.getDescribe());
+
+            // 通知订阅了灰度配置变更的客户端
+            if (Boolean.TRUE.equals(result)) {
+                grayConfigChangeManager.publishChange();
+            }
+
             return new EserviceResult<>(GrayErrorCode.SUCCESS.getErrorCode(),
-                    GrayErrorCode.SUCCESS.getDescription(), grayApplicationIpConfigManager
-                    .insertGrayApplicationIpConfig(arg.getIpAddress(), arg.getApplicationId(), arg.getDescribe()));
+                    GrayErrorCode.SUCCESS.getDescription(), result);
         } catch (Exception e) {
             LOGGER.error("An exception occurred, arg={}", arg, e);
             return new EserviceResult<>(GrayErrorCode.SYSTEM_ERROR.getErrorCode(),
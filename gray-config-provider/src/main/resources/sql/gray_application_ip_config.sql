@@ -0,0 +1,40 @@
+-- 灰度机器表：一台机器一条记录，替代 gray_application_info.ip_address 中以分号拼接的ip列表
+-- uk_application_ip 保证同一个灰度服务的ip不重复，同时用于按（服务，ip）查询
+-- 先删除重复的机器，保留id最小的一条
+DELETE c1 FROM `gray_application_ip_config` c1
+JOIN `gray_application_ip_config` c2
+  ON c1.`application_id` = c2.`application_id` AND c1.`ip_address` = c2.`ip_address` AND c1.`id` > c2.`id`;
+
+ALTER TABLE `gray_application_ip_config`
+  MODIFY COLUMN `ip_address` VARCHAR(64) NOT NULL COMMENT 'ip地址（all表示全部机器）',
+  ADD UNIQUE KEY `uk_application_ip` (`application_id`, `ip_address`);
+
+-- 数据迁移：把已有灰度服务的 ip_address 按分号拆分成多条记录（可重复执行），需要在发布新版本之前执行
+-- seq 生成 0 ~ 9999 的序号，第 n 个序号取出第 n+1 个ip
+INSERT IGNORE INTO `gray_application_ip_config` (`ip_address`, `application_id`, `create_time`, `describe`)
+SELECT t.ip_address, t.application_id, UNIX_TIMESTAMP() * 1000, 'migrated from gray_application_info'
+FROM (
+  SELECT a.`id` AS application_id,
+         SUBSTRING_INDEX(SUBSTRING_INDEX(a.`ip_address`, ';', seq.n + 1), ';', -1) AS ip_address,
+         seq.n AS n
+  FROM `gray_application_info` a
+  JOIN (
+    SELECT d0.d + d1.d * 10 + d2.d * 100 + d3.d * 1000 AS n
+    FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d0
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d1
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d2
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d3
+  ) seq ON seq.n <= LENGTH(a.`ip_address`) - LENGTH(REPLACE(a.`ip_address`, ';', ''))
+  WHERE a.`ip_address` IS NOT NULL AND a.`ip_address` <> ''
+) t
+WHERE TRIM(t.ip_address) <> ''
+ORDER BY t.application_id, t.n;
+
+-- 切换：新版本只读写 gray_application_ip_config，不再写 gray_application_info.ip_address。
+-- 拆分完成后清空旧字段，旧版本实例读到空的ip列表，灰度服务的请求全部走正式（而不是按过期的列表路由），
+-- 直到被新版本替换。先执行上面的拆分，再执行这一步，然后发布新版本
+UPDATE `gray_application_info` SET `ip_address` = NULL;
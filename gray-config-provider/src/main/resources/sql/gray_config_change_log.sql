@@ -0,0 +1,11 @@
+-- 灰度配置变更日志，自增id即配置版本号
+-- 与灰度配置的修改在同一个事务中写入，gray-core据此增量同步配置
+CREATE TABLE IF NOT EXISTS `gray_config_change_log` (
+  `id`          BIGINT(20)  NOT NULL AUTO_INCREMENT COMMENT '记录id（配置版本号）',
+  `config_type` TINYINT(4)  NOT NULL COMMENT '配置类型（1：灰度服务 2：灰度分组 3：灰度机器 4：灰度企业）',
+  `config_id`   BIGINT(20)  NOT NULL COMMENT '变更的配置记录id',
+  `operation`   TINYINT(4)  NOT NULL COMMENT '变更操作（1：新增 2：修改 3：删除）',
+  `content`     MEDIUMTEXT  NULL COMMENT '变更后的配置内容（json），删除操作时为空',
+  `create_time` BIGINT(20)  NOT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '灰度配置变更日志';
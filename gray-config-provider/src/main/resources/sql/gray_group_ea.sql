@@ -0,0 +1,40 @@
+-- 灰度分组与灰度企业的关系，替代 gray_application_group_config.fs_eas 中以分号拼接的企业列表
+-- uk_group_ea 保证同一个分组内企业不重复，idx_fs_ea 用于按企业查询所属分组
+CREATE TABLE IF NOT EXISTS `gray_group_ea` (
+  `id`          BIGINT(20)   NOT NULL AUTO_INCREMENT COMMENT '记录id',
+  `group_id`    BIGINT(20)   NOT NULL COMMENT '灰度分组id',
+  `fs_ea`       VARCHAR(64)  NOT NULL COMMENT '企业账户',
+  `create_time` BIGINT(20)   NOT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_group_ea` (`group_id`, `fs_ea`),
+  KEY `idx_fs_ea` (`fs_ea`)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '灰度分组与灰度企业的关系';
+
+-- 数据迁移：把已有分组的 fs_eas 按分号拆分成多条记录（可重复执行）
+-- seq 生成 0 ~ 999999 的序号，第 n 个序号取出第 n+1 个企业
+INSERT IGNORE INTO `gray_group_ea` (`group_id`, `fs_ea`, `create_time`)
+SELECT t.group_id, t.fs_ea, UNIX_TIMESTAMP() * 1000
+FROM (
+  SELECT g.`id` AS group_id,
+         SUBSTRING_INDEX(SUBSTRING_INDEX(g.`fs_eas`, ';', seq.n + 1), ';', -1) AS fs_ea,
+         seq.n AS n
+  FROM `gray_application_group_config` g
+  JOIN (
+    SELECT d0.d + d1.d * 10 + d2.d * 100 + d3.d * 1000 + d4.d * 10000 + d5.d * 100000 AS n
+    FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d0
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d1
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d2
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d3
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d4
+    CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+          UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d5
+  ) seq ON seq.n <= LENGTH(g.`fs_eas`) - LENGTH(REPLACE(g.`fs_eas`, ';', ''))
+  WHERE g.`fs_eas` IS NOT NULL AND g.`fs_eas` <> ''
+) t
+WHERE TRIM(t.fs_ea) <> ''
+ORDER BY t.group_id, t.n;
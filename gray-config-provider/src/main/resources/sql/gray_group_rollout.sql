@@ -0,0 +1,5 @@
+-- 灰度分组按比例灰度企业：企业账号按 murmur3_32(盐 + ':' + 企业账号) 对 10000 取模，小于阈值的企业为灰度企业
+-- rollout_threshold 为 0 时不按比例灰度，只使用 fs_eas 中的企业列表；rollout_salt 为空时使用分组id
+ALTER TABLE `gray_application_group_config`
+  ADD COLUMN `rollout_threshold` INT(11)     NOT NULL DEFAULT 0  COMMENT '按比例灰度的阈值（万分之一，0 ~ 10000）' AFTER `fs_eas`,
+  ADD COLUMN `rollout_salt`      VARCHAR(64) NOT NULL DEFAULT '' COMMENT '按比例灰度的盐，为空时使用分组id' AFTER `rollout_threshold`;
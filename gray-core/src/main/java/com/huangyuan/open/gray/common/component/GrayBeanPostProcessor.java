@@ -1,7 +1,9 @@
 package com.huangyuan.open.gray.common.component;
 
+import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.config.ConsumerConfig;
 import com.alibaba.dubbo.config.ProviderConfig;
+import com.alibaba.dubbo.config.RegistryConfig;
 import com.huangyuan.open.gray.common.support.GrayHandlerHelper;
 
 import org.apache.commons.lang3.StringUtils;
@@ -14,6 +16,9 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * bean后置处理器，用于动态设置提供者的group
  *
@@ -32,8 +37,27 @@ public class GrayBeanPostProcessor implements BeanPostProcessor {
     @Value("${dubbo.application.name}")
     private String applicationName;
 
+    /**
+     * 是否使用GrayRouter进行灰度筛选
+     * 开启后，灰度筛选在路由层完成，负载均衡使用dubbo自带的leastactive；
+     * 关闭时，使用grayLoadBalance在负载均衡里面完成筛选
+     */
+    @Value("${gray.router.enable:false}")
+    private boolean routerEnable;
+
+    /**
+     * 筛选出灰度/正式服务后，多个服务之间的选择策略（使用grayLoadBalance时有效）
+     * 为空时使用leastactive，peakewma表示按响应时间选择，见PeakEwmaSelector
+     */
+    @Value("${gray.loadbalance.selector:}")
+    private String selector;
+
     private static final String DEFAULT_GRAY_FILTER = "grayFilter";
 
+    private static final String GRAY_LOAD_BALANCE = "grayLoadBalance";
+
+    private static final String LEAST_ACTIVE_LOAD_BALANCE = "leastactive";
+
     @Resource
     private GrayHandlerHelper grayHandlerHelper;
 
@@ -46,6 +70,9 @@ public class GrayBeanPostProcessor implements BeanPostProcessor {
         // 初始化提供者的配置
         initProvider(bean);
 
+        // 初始化注册中心配置
+        initRegistry(bean);
+
         // 初始化消费者配置
         initConsumer();
 
@@ -80,6 +107,29 @@ public class GrayBeanPostProcessor implements BeanPostProcessor {
         }
     }
 
+    /**
+     * RegistryDirectory从注册中心的url上读取router参数来创建路由，
+     * 因此灰度路由需要设置在注册中心配置上
+     */
+    private void initRegistry(Object bean) {
+        try {
+
+            if (routerEnable && (bean instanceof RegistryConfig)) {
+                RegistryConfig registryConfig = (RegistryConfig) bean;
+
+                Map<String, String> parameters = registryConfig.getParameters();
+                if (parameters == null) {
+                    parameters = new HashMap<>();
+                    registryConfig.setParameters(parameters);
+                }
+                parameters.put(Constants.ROUTER_KEY, GrayRouterFactory.NAME);
+            }
+
+        } catch (Exception e) {
+            LOGGER.error("initRegistry fail, can not set gray router, please check", e);
+        }
+    }
+
     private void initConsumer() {
         try {
 
@@ -100,7 +150,19 @@ public class GrayBeanPostProcessor implements BeanPostProcessor {
             consumerConfig.setGroup("*");
 
             // 设置负载均衡策略
-            consumerConfig.setLoadbalance("grayLoadBalance");
+            consumerConfig.setLoadbalance(routerEnable ? LEAST_ACTIVE_LOAD_BALANCE : GRAY_LOAD_BALANCE);
+
+            // 设置选择策略，服务、方法上配置了graySelector时，以服务、方法上的配置为准
+            if (StringUtils.isNotEmpty(selector)) {
+                Map<String, String> parameters = consumerConfig.getParameters();
+                if (parameters == null) {
+                    parameters = new HashMap<>();
+                    consumerConfig.setParameters(parameters);
+                }
+                if (!parameters.containsKey(PeakEwmaSelector.SELECTOR_KEY)) {
+                    parameters.put(PeakEwmaSelector.SELECTOR_KEY, selector);
+                }
+            }
 
         } catch (Exception e) {
             LOGGER.error("initConsumer fail, can not set consumer, please check", e);
@@ -5,19 +5,22 @@ import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
 
 import com.huangyuan.open.gray.common.component.api.CustomLoadBalance;
+import com.huangyuan.open.gray.common.support.GrayCircuitBreaker;
+import com.huangyuan.open.gray.common.support.GrayConcurrencyLimiter;
 import com.huangyuan.open.gray.common.support.GrayConfigHepler;
+import com.huangyuan.open.gray.common.support.GrayContext;
 import com.huangyuan.open.gray.common.support.GrayHandlerHelper;
-import com.huangyuan.open.gray.common.utils.CommonUitl;
+import com.huangyuan.open.gray.common.support.GrayServiceRegistry;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingVerdictResult;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -30,10 +33,35 @@ public class GrayComponent {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GrayComponent.class);
 
+    /**
+     * 本机是灰度机器时，使用本机的判断，不使用上游传过来的判断
+     */
+    private static final String POLICY_LOCAL = "local";
+
+    /**
+     * 是否把灰度判断传给下游，并使用上游传过来的判断
+     */
+    @Value("${gray.propagation.enable:false}")
+    private boolean propagationEnable;
+
+    /**
+     * 上游判断的使用策略
+     *      trust：直接使用上游的判断
+     *      local：本机是灰度机器时，使用本机的判断（需要查询本机是否灰度），否则使用上游的判断
+     */
+    @Value("${gray.propagation.policy:trust}")
+    private String propagationPolicy;
+
     @Resource
     private GrayHandlerHelper grayHandlerHelper;
     @Resource
     private GrayConfigHepler grayConfigHepler;
+    @Resource
+    private GrayCircuitBreaker grayCircuitBreaker;
+    @Resource
+    private GrayConcurrencyLimiter grayConcurrencyLimiter;
+    @Resource
+    private GrayServiceRegistry grayServiceRegistry;
 
     /**
      * 判断企业是否灰度企业
@@ -52,24 +80,30 @@ public class GrayComponent {
     public <T> Invoker<T> selectByEa(List<Invoker<T>> invokers, URL url, Invocation invocation,
                                      String fsEa, CustomLoadBalance loadBalance) {
 
-        // 获取消费方的applicationName
-        String consumerApplicationName = getConsumerApplicationName(invokers);
+        // invoker列表没有变化时，复用已经划分好的索引
+        GrayInvokerIndex<T> index = GrayInvokerIndex.of(invokers);
 
         // 获取服务名称
-        String providerApplicationName = getProviderApplicationName(invokers);
+        String providerApplicationName = index.getProviderApplicationName();
+
+        // 没有本地快照时，一次远程调用得到判断
+        GrayContext decided = decideRemotely(invokers, index, invocation, fsEa, false);
+        if (decided != null) {
+            return filterSelect(invokers, index, url, invocation, loadBalance, decided.isGray(), fsEa, decided);
+        }
 
         // 判断是否走灰度
         boolean tag = justGray(fsEa, invokers, invocation, providerApplicationName);
 
         // 根据灰度标志进行筛选
-        return filterSelect(invokers, url, invocation, loadBalance,
-                providerApplicationName, tag, consumerApplicationName, fsEa);
+        return filterSelect(invokers, index, url, invocation, loadBalance, tag, fsEa, null);
     }
 
     /**
      * 1、如果当前机器上的当前服务是灰度服务，那么往下调用的下一个服务，也是灰度服务
      * 2、如果往下层的调用没有灰度服务，那么使用正常服务
      * 3、经过筛选以后，服务数量大于1，使用传入的loadBalance进行筛选
+     * 4、开启gray.propagation.enable后，上游已经做出判断（GrayContext）时，直接使用上游的判断，不再重复判断
      *
      * @param invokers 初始的invokers队列
      * @param url dubbo调用url
@@ -80,11 +114,24 @@ public class GrayComponent {
     public <T> Invoker<T> selectByIpAndApplication(List<Invoker<T>> invokers, URL url, Invocation invocation,
                                                    CustomLoadBalance loadBalance) {
 
+        // invoker列表没有变化时，复用已经划分好的索引
+        GrayInvokerIndex<T> index = GrayInvokerIndex.of(invokers);
+
         // 获取消费方的applicationName
-        String consumerApplicationName = getConsumerApplicationName(invokers);
+        String consumerApplicationName = index.getConsumerApplicationName();
 
-        // 获取提供方的applicationName
-        String providerApplicationName = getProviderApplicationName(invokers);
+        // 上游已经做出判断时，直接使用
+        GrayContext propagated = getPropagated(consumerApplicationName);
+        if (propagated != null) {
+            return filterSelect(invokers, index, url, invocation, loadBalance,
+                    propagated.isGray(), propagated.getFsEa(), propagated);
+        }
+
+        // 没有本地快照时，一次远程调用得到判断
+        GrayContext decided = decideRemotely(invokers, index, invocation, null, true);
+        if (decided != null) {
+            return filterSelect(invokers, index, url, invocation, loadBalance, decided.isGray(), null, decided);
+        }
 
         boolean tag;
 
@@ -104,8 +151,49 @@ public class GrayComponent {
             tag = grayHandlerHelper.justGaryByIpAndApplication(consumerApplicationName);
         }
 
-        return filterSelect(invokers, url, invocation, loadBalance,
-                providerApplicationName, tag, consumerApplicationName, null);
+        return filterSelect(invokers, index, url, invocation, loadBalance, tag, null, null);
+    }
+
+    /**
+     * 供GrayRouter使用，规则与selectByIpAndApplication一致，只是不做负载均衡，
+     * 返回筛选后的invoker列表，由后续的负载均衡（如LeastActiveLoadBalance）选择
+     *
+     * @param invokers 初始的invokers队列
+     * @param invocation 远程调用参数
+     * @return 筛选后的invoker列表，筛选不出服务时，返回初始的invokers队列
+     */
+    public <T> List<Invoker<T>> route(List<Invoker<T>> invokers, Invocation invocation) {
+
+        // invoker列表没有变化时，复用已经划分好的索引
+        GrayInvokerIndex<T> index = GrayInvokerIndex.of(invokers);
+
+        List<Invoker<T>> temInvokers;
+
+        GrayContext decided = getPropagated(index.getConsumerApplicationName());
+        if (decided == null) {
+            // 没有本地快照时，一次远程调用得到判断
+            decided = decideRemotely(invokers, index, invocation, null, true);
+        }
+
+        if (decided != null) {
+            // 上游已经做出判断，或者一次远程调用得到了判断，直接使用
+            temInvokers = doFilterSelect(index, invocation, decided.isGray(), decided.getFsEa(), decided);
+
+        } else {
+            // 判断调用服务是否 必须 走灰度，不是的话，再根据当前消费者判断
+            boolean tag = justInterfaceGray(invokers, invocation)
+                    || grayHandlerHelper.justGaryByIpAndApplication(index.getConsumerApplicationName());
+
+            temInvokers = doFilterSelect(index, invocation, tag, null, null);
+        }
+
+        if (CollectionUtils.isEmpty(temInvokers)) {
+            // 可能是别的问题，不做筛选，保证核心业务正常运行
+            LOGGER.error("route fail, please check, providerApplicationName={}", index.getProviderApplicationName());
+            return invokers;
+        }
+
+        return temInvokers;
     }
 
     /**
@@ -144,126 +232,29 @@ public class GrayComponent {
         }
     }
 
-    // 选择灰度服务
-    private <T> void findGrayService(List<Invoker<T>> invokers, List<Invoker<T>> grayInvokers, String grayGroup) {
-        for (Invoker<T> invoker : invokers) {
-            try {
-                Field field = invoker.getClass().getDeclaredField("providerUrl");
-                field.setAccessible(true);
-
-                URL url = (URL) field.get(invoker);
-                String group = url.getParameters().get("default.group");
-                if (StringUtils.isNotEmpty(group) && grayGroup.equalsIgnoreCase(group)) {
-                    grayInvokers.add(invoker);
-                }
-
-            } catch (Exception e) {
-                LOGGER.error("getGrayService fail : invoker={}", invoker, e);
-            }
-        }
-
-    }
-
-    /**
-     * 选择正式服务
-     *
-     * @param invokers       调用者
-     * @param formalInvokers 正式服务
-     * @param <T>            <T>
-     */
-    private <T> void findFormalService(List<Invoker<T>> invokers, List<Invoker<T>> formalInvokers) {
-        for (Invoker<T> invoker : invokers) {
-            try {
-                Field field = invoker.getClass().getDeclaredField("providerUrl");
-                field.setAccessible(true);
-
-                URL url = (URL) field.get(invoker);
-                String group = url.getParameters().get("default.group");
-                if (StringUtils.isEmpty(group)) {
-                    formalInvokers.add(invoker);
-                }
-
-            } catch (Exception e) {
-                LOGGER.error("getGrayService fail : invoker={}", invoker, e);
-            }
-        }
-    }
-
-    /**
-     * 获取provider的applicationName属性值
-     *
-     * @param invokers 调用者
-     * @param <T>      参数类型
-     * @return <T>
-     */
-    private <T> String getProviderApplicationName(List<Invoker<T>> invokers) {
-        if (CollectionUtils.isEmpty(invokers)) {
-            return "";
-        }
-
-        try {
-            Invoker<T> invoker = invokers.get(0);
-            Field field = invoker.getClass().getDeclaredField("providerUrl");
-            field.setAccessible(true);
-
-            URL url = (URL) field.get(invoker);
-            return url.getParameters().get("application");
-
-        } catch (Exception e) {
-            LOGGER.error("getApplicationName fail, please check, invokers={}", invokers, e);
-            return "";
-        }
-    }
-
-
-    /**
-     * 获取consumer的applicationName
-     *
-     * @param invokers 调用者
-     * @param <T>      参数类型
-     * @return <T>
-     */
-    private <T> String getConsumerApplicationName(List<Invoker<T>> invokers) {
-        if (CollectionUtils.isEmpty(invokers)) {
-            return "";
-        }
-
-        try {
-            Invoker<T> invoker = invokers.get(0);
-            return invoker.getUrl().getParameters().get("application");
-
-        } catch (Exception e) {
-            LOGGER.error("getConsumerApplicationName fail, please check, invokers={}", invokers, e);
-            return "";
-        }
-    }
-
     /**
      * 根据灰度标志，筛选服务
      * 当对应环境的服务不存在，则降级
      * @param invokers 初始的invokers列表
+     * @param index 初始invokers列表对应的索引
      * @param url dubbo调用url
      * @param invocation 远程调用参数
      * @param loadBalance 负载均衡对象，如果经过选择后，可用invoker数量大于1，再使用该对象进行筛选
-     * @param providerApplicationName 提供方的applicationName
      * @param tag 是否灰度标志   true灰度  false正式
-     * @param consumerApplicationName 消费方的应用名称
      * @param fsEa 企业账号，可为空
+     * @param decided 已经做出的判断（上游传过来的，或者一次远程查询得到的），可为空
      * @return 经过筛选后的invoker
      */
-    private <T> Invoker<T> filterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation,
-                                        CustomLoadBalance loadBalance, String providerApplicationName, boolean tag,
-                                        String consumerApplicationName, String fsEa) {
+    private <T> Invoker<T> filterSelect(List<Invoker<T>> invokers, GrayInvokerIndex<T> index, URL url,
+                                        Invocation invocation, CustomLoadBalance loadBalance, boolean tag, String fsEa,
+                                        GrayContext decided) {
 
-        // 临时invoker数组，里面可能是正常invoker、也可能是灰度invoker，具体看处理逻辑
-        List<Invoker<T>> temInvokers = new ArrayList<>();
-
-        // 筛选服务
-        doFilterSelect(invokers, url, invocation, tag, consumerApplicationName, fsEa, temInvokers);
+        // 筛选服务，里面可能是正常invoker、也可能是灰度invoker，具体看处理逻辑
+        List<Invoker<T>> temInvokers = doFilterSelect(index, invocation, tag, fsEa, decided);
 
         // 后置处理
         return afterFilterSelect(invokers, url, invocation, loadBalance,
-                providerApplicationName, temInvokers);
+                index.getProviderApplicationName(), temInvokers);
     }
 
     private <T> Invoker<T> afterFilterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation,
@@ -284,97 +275,174 @@ public class GrayComponent {
         }
     }
 
-    private <T> void doFilterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation, boolean tag,
-                                        String consumerApplicationName, String fsEa, List<Invoker<T>> temInvokers) {
+    private <T> List<Invoker<T>> doFilterSelect(GrayInvokerIndex<T> index, Invocation invocation, boolean tag, String fsEa,
+                                                GrayContext decided) {
         // tag标志判断是否灰度
         if (tag) {
 
             // 筛选灰度服务
-            doGrayFilterSelect(invokers, invocation, consumerApplicationName, fsEa, temInvokers);
+            return doGrayFilterSelect(index, invocation, fsEa, decided);
 
         } else {
 
             // 选择正常服务
-            doFormatFilterSelect(invokers, invocation, consumerApplicationName, fsEa, temInvokers);
+            return doFormatFilterSelect(index, invocation, fsEa, decided);
         }
     }
 
-    private <T> void doFormatFilterSelect(List<Invoker<T>> invokers, Invocation invocation,
-                                          String consumerApplicationName, String fsEa, List<Invoker<T>> temInvokers) {
+    private <T> List<Invoker<T>> doFormatFilterSelect(GrayInvokerIndex<T> index, Invocation invocation, String fsEa,
+                                                      GrayContext decided) {
+
+        // 把判断传给下游
+        propagate(invocation, decided, false, null, fsEa);
 
-        findFormalService(invokers, temInvokers);
+        List<Invoker<T>> temInvokers = index.getFormalInvokers();
 
         if (CollectionUtils.isEmpty(temInvokers)) {
 
             // 这个服务没有正常服务，降级，使用灰度服务
-            String grayGroup = getGrayGroupName(fsEa, consumerApplicationName);
-            findGrayService(invokers, temInvokers, grayGroup);
+            String grayGroup = getGrayGroupName(fsEa, index.getConsumerApplicationName(), decided);
+            temInvokers = index.getGrayInvokers(grayGroup);
             setGroupInfo(invocation, grayGroup);
 
         } else {
             // 已经筛选出正常服务，把url字段的group值设置为空字符串
             setGroupInfo(invocation, StringUtils.EMPTY);
         }
+
+        return temInvokers;
     }
 
-    private <T> void doGrayFilterSelect(List<Invoker<T>> invokers, Invocation invocation,
-                                    String consumerApplicationName, String fsEa, List<Invoker<T>> temInvokers) {
-        String grayGroup = getGrayGroupName(fsEa, consumerApplicationName);
+    private <T> List<Invoker<T>> doGrayFilterSelect(GrayInvokerIndex<T> index, Invocation invocation, String fsEa,
+                                                    GrayContext decided) {
+        String grayGroup = getGrayGroupName(fsEa, index.getConsumerApplicationName(), decided);
 
+        // 把判断传给下游，传的是灰度的判断，本服务熔断、饱和而降级到正常服务时，下游仍然可以使用灰度服务
+        propagate(invocation, decided, true, grayGroup, fsEa);
 
         // 选择灰度服务
-        if (StringUtils.isNotEmpty(grayGroup)) {
+        List<Invoker<T>> temInvokers = index.getGrayInvokers(grayGroup);
 
-            findGrayService(invokers, temInvokers, grayGroup);
+        // 灰度服务熔断中或者已经饱和，并且有正常服务时，当作没有灰度服务处理
+        if (CollectionUtils.isNotEmpty(temInvokers) && CollectionUtils.isNotEmpty(index.getFormalInvokers())
+                && !allowGray(index, invocation, grayGroup, temInvokers.get(0).getUrl())) {
+            temInvokers = null;
         }
 
         if (CollectionUtils.isEmpty(temInvokers)) {
 
-            // 这个服务没有灰度服务，降级，使用正常服务
-            findFormalService(invokers, temInvokers);
+            // 这个服务没有灰度服务（或者灰度服务熔断中、已经饱和），降级，使用正常服务
+            temInvokers = index.getFormalInvokers();
             setGroupInfo(invocation, StringUtils.EMPTY);
 
         } else {
             // 已经筛选出灰度服务，把url字段的group改成灰度值
             setGroupInfo(invocation, grayGroup);
         }
+
+        return temInvokers;
+    }
+
+    /**
+     * 获取上游传过来的判断，没有开启、没有上游的判断，或者按策略应该使用本机的判断时，返回null
+     */
+    private GrayContext getPropagated(String consumerApplicationName) {
+        if (!propagationEnable) {
+            return null;
+        }
+
+        GrayContext propagated = GrayContext.current();
+        if ((propagated != null) && POLICY_LOCAL.equals(propagationPolicy)
+                && grayHandlerHelper.justGaryByIpAndApplication(consumerApplicationName)) {
+            // 本机是灰度机器，使用本机的判断
+            return null;
+        }
+        return propagated;
     }
 
     /**
-     * 获取灰度分组名称
+     * 没有本地快照时，一次远程调用（getGrayRoutingVerdict）得到是否灰度、灰度分组，
+     * 代替checkGrayFsEa、getGrayApplicationGroupConfigByEa、getGrayApplicationConfigNew多次远程调用。
+     * 判断规则与本地判断一致，强制走灰度的接口仍然在本地判断。
+     * 远程调用失败时（配置服务不可用），不再逐个调用原来的接口（每个都要等到超时），直接降级，走正常服务
      *
-     * 如果有企业账号
-     *     判断该企业账号属于哪个灰度分组，获取该分组名称
-     * 没有企业账号
-     *     获取消费者的group（通过消费方的applicationName{也就是当前应用的名称}，和当前机器ip可以获取到当前服务的group），根据该group筛选出生产者
-     *     如果消费者的group为空 或者为*，则调用正常服务
+     * @param fsEa 企业账号，可为空
+     * @param byConsumer 没有企业账号时，是否根据消费方机器判断（selectByIpAndApplication、route）
+     * @return 有本地快照时返回null，按原来的规则在本地判断
      */
-    private String getGrayGroupName(String fsEa, String consumerApplicationName) {
+    private <T> GrayContext decideRemotely(List<Invoker<T>> invokers, GrayInvokerIndex<T> index, Invocation invocation,
+                                           String fsEa, boolean byConsumer) {
+        if (grayHandlerHelper.hasRoutingSnapshot()) {
+            return null;
+        }
+
+        Class<?> interfaceType = CollectionUtils.isEmpty(invokers) ? null : invokers.get(0).getInterface();
+        GrayRoutingVerdictResult verdict = grayHandlerHelper.getRemoteRoutingVerdict(index.getConsumerApplicationName(),
+                index.getProviderApplicationName(), fsEa, interfaceType, invocation.getMethodName());
+        if (verdict == null) {
+            // 降级，走正常服务
+            return new GrayContext(false, null, fsEa);
+        }
+
+        boolean tag = justInterfaceGray(invokers, invocation);
         if (StringUtils.isEmpty(fsEa)) {
-            return grayHandlerHelper.getGrayGroupByConsumerApplication(consumerApplicationName);
+            tag = tag || (byConsumer && Boolean.TRUE.equals(verdict.getConsumerGray()));
+            return new GrayContext(tag, verdict.getConsumerGroup(), null);
         } else {
-            return grayHandlerHelper.getGrayApplicationGroupNameByEa(fsEa);
+            tag = tag || Boolean.TRUE.equals(verdict.getEaGray());
+            return new GrayContext(tag, verdict.getEaGroup(), fsEa);
         }
     }
 
     /**
-     * 获取消费的接口
-     *
-     * @param invokers 调用者
-     * @param <T>      参数类型
-     * @return <T>
+     * 把灰度判断放到调用的attachment中，传给下游；已经有判断时，原样往下传
      */
-    private <T> String getInterface(List<Invoker<T>> invokers, Invocation invocation) {
-        if (CollectionUtils.isEmpty(invokers)) {
-            return "";
+    private void propagate(Invocation invocation, GrayContext decided, boolean tag, String grayGroup, String fsEa) {
+        if (!propagationEnable) {
+            return;
         }
 
         try {
-            Invoker<T> invoker = invokers.get(0);
-            return CommonUitl.getInterface(invoker, invocation);
+            GrayContext context = decided != null ? decided : new GrayContext(tag, grayGroup, fsEa);
+            context.attach(invocation);
         } catch (Exception e) {
-            LOGGER.error("getApplicationName fail, please check, invokers={}", invokers, e);
-            return "";
+            LOGGER.error("propagate gray context fail, invocation={}", invocation, e);
+        }
+    }
+
+    /**
+     * 判断灰度服务是否可用：没有熔断，并且没有饱和
+     */
+    private <T> boolean allowGray(GrayInvokerIndex<T> index, Invocation invocation, String grayGroup, URL url) {
+        if (!grayCircuitBreaker.isEnable() && !grayConcurrencyLimiter.isEnable()) {
+            return true;
+        }
+
+        String providerApplicationName = index.getProviderApplicationName();
+        grayServiceRegistry.register(url.getPath(), providerApplicationName);
+
+        return grayCircuitBreaker.allowGray(providerApplicationName, grayGroup)
+                && grayConcurrencyLimiter.allowGray(providerApplicationName, grayGroup, url, invocation);
+    }
+
+    /**
+     * 获取灰度分组名称
+     *
+     * 如果有企业账号
+     *     判断该企业账号属于哪个灰度分组，获取该分组名称
+     * 没有企业账号
+     *     获取消费者的group（通过消费方的applicationName{也就是当前应用的名称}，和当前机器ip可以获取到当前服务的group），根据该group筛选出生产者
+     *     如果消费者的group为空 或者为*，则调用正常服务
+     * 已经做出的判断中有灰度分组时，直接使用
+     */
+    private String getGrayGroupName(String fsEa, String consumerApplicationName, GrayContext decided) {
+        if ((decided != null) && (decided.getGrayGroup() != null)) {
+            return decided.getGrayGroup();
+        }
+        if (StringUtils.isEmpty(fsEa)) {
+            return grayHandlerHelper.getGrayGroupByConsumerApplication(consumerApplicationName);
+        } else {
+            return grayHandlerHelper.getGrayApplicationGroupNameByEa(fsEa);
         }
     }
 
@@ -384,13 +452,13 @@ public class GrayComponent {
      */
     private <T> boolean justInterfaceGray(List<Invoker<T>> invokers, Invocation invocation) {
         try {
-            String _Interface = getInterface(invokers, invocation);
-            List<String> getGrayInterfaces = grayConfigHepler.getGrayInterfaceList();
-            if (CollectionUtils.isEmpty(getGrayInterfaces)) {
-                LOGGER.info("getGrayInterfaces is empty, run formal provider");
+            if (CollectionUtils.isEmpty(invokers)) {
                 return false;
             }
-            return  getGrayInterfaces.contains("all") || getGrayInterfaces.contains(_Interface);
+
+            // 按（接口类，方法名）缓存判断结果，不再拼接 接口#方法
+            return grayConfigHepler.getGrayInterfaceMatcher()
+                    .matches(invokers.get(0).getInterface(), invocation.getMethodName());
 
         } catch (Exception e) {
             LOGGER.error("justInterfaceGray fail, invokers={}, invocation={}", invokers, invocation, e);
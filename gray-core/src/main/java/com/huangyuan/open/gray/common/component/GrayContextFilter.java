@@ -0,0 +1,34 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.extension.Activate;
+import com.alibaba.dubbo.rpc.Filter;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
+import com.huangyuan.open.gray.common.support.GrayContext;
+
+/**
+ * 用于提供者端，把上游传过来的灰度判断放到当前线程（GrayContext），调用结束后恢复
+ *
+ * dubbo的RpcContext在第一次向下游调用后就会清空attachment，因此不能依赖RpcContext传递
+ */
+@Activate(group = Constants.PROVIDER)
+public class GrayContextFilter implements Filter {
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        GrayContext context = GrayContext.from(invocation);
+        if (context == null) {
+            return invoker.invoke(invocation);
+        }
+
+        GrayContext previous = GrayContext.set(context);
+        try {
+            return invoker.invoke(invocation);
+        } finally {
+            GrayContext.restore(previous);
+        }
+    }
+}
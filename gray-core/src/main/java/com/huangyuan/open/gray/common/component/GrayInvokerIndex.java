@@ -0,0 +1,196 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * invoker元数据索引
+ *
+ * 把invoker列表预先划分成正式服务列表、以及按灰度分组划分的灰度服务列表，
+ * 负载均衡时只需要一次map查找，不需要对每个invoker反射读取providerUrl。
+ *
+ * 注册中心推送变更时，RegistryDirectory会生成新的invoker列表，
+ * 因此以invoker列表的引用（identity）作为缓存key，列表变化后自然重建索引；
+ * 旧的列表被回收后，对应的索引也会随之回收
+ */
+public class GrayInvokerIndex<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayInvokerIndex.class);
+
+    /**
+     * weakKeys使用引用比较key，并且不会阻止invoker列表被回收
+     */
+    private static final Cache<List<?>, GrayInvokerIndex<?>> INDEX_CACHE = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * invoker实现类 -> providerUrl字段，不存在该字段的类记录为absent
+     */
+    private static final ClassValue<Optional<Field>> PROVIDER_URL_FIELD = new ClassValue<Optional<Field>>() {
+        @Override
+        protected Optional<Field> computeValue(Class<?> type) {
+            try {
+                Field field = type.getDeclaredField("providerUrl");
+                field.setAccessible(true);
+                return Optional.of(field);
+            } catch (Exception e) {
+                LOGGER.error("invoker has no providerUrl field, please check, invokerClass={}", type.getName(), e);
+                return Optional.absent();
+            }
+        }
+    };
+
+    /**
+     * 正式服务（没有配置group）
+     */
+    private final List<Invoker<T>> formalInvokers;
+
+    /**
+     * 灰度分组名称（小写） -> 灰度服务
+     */
+    private final Map<String, List<Invoker<T>>> grayInvokers;
+
+    private final String providerApplicationName;
+
+    private final String consumerApplicationName;
+
+    private GrayInvokerIndex(List<Invoker<T>> invokers) {
+        List<Invoker<T>> formal = new ArrayList<>();
+        Map<String, List<Invoker<T>>> gray = new HashMap<>();
+
+        for (Invoker<T> invoker : invokers) {
+            URL url = getProviderUrl(invoker);
+            if (url == null) {
+                continue;
+            }
+
+            String group = url.getParameters().get("default.group");
+            if (StringUtils.isEmpty(group)) {
+                formal.add(invoker);
+            } else {
+                String key = group.toLowerCase(Locale.ROOT);
+                List<Invoker<T>> groupInvokers = gray.get(key);
+                if (groupInvokers == null) {
+                    groupInvokers = new ArrayList<>();
+                    gray.put(key, groupInvokers);
+                }
+                groupInvokers.add(invoker);
+            }
+        }
+
+        for (Map.Entry<String, List<Invoker<T>>> entry : gray.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        this.formalInvokers = Collections.unmodifiableList(formal);
+        this.grayInvokers = gray;
+        this.providerApplicationName = initProviderApplicationName(invokers);
+        this.consumerApplicationName = initConsumerApplicationName(invokers);
+    }
+
+    /**
+     * 获取invoker列表对应的索引，列表没有变化时直接复用
+     *
+     * @param invokers invoker列表
+     * @return 索引
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GrayInvokerIndex<T> of(final List<Invoker<T>> invokers) {
+        try {
+            return (GrayInvokerIndex<T>) INDEX_CACHE.get(invokers, new Callable<GrayInvokerIndex<?>>() {
+                @Override
+                public GrayInvokerIndex<?> call() {
+                    return new GrayInvokerIndex<>(invokers);
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.error("build invoker index fail, invokers={}", invokers, e);
+            return new GrayInvokerIndex<>(invokers);
+        }
+    }
+
+    /**
+     * 正式服务列表
+     */
+    public List<Invoker<T>> getFormalInvokers() {
+        return formalInvokers;
+    }
+
+    /**
+     * 灰度分组对应的灰度服务列表（分组名称不区分大小写）
+     *
+     * @param grayGroup 灰度分组名称
+     * @return 灰度服务列表，不存在时返回空列表
+     */
+    public List<Invoker<T>> getGrayInvokers(String grayGroup) {
+        if (grayGroup == null) {
+            return Collections.emptyList();
+        }
+
+        List<Invoker<T>> invokers = grayInvokers.get(grayGroup.toLowerCase(Locale.ROOT));
+        return invokers == null ? Collections.<Invoker<T>>emptyList() : invokers;
+    }
+
+    /**
+     * 提供方的applicationName
+     */
+    public String getProviderApplicationName() {
+        return providerApplicationName;
+    }
+
+    /**
+     * 消费方的applicationName
+     */
+    public String getConsumerApplicationName() {
+        return consumerApplicationName;
+    }
+
+    private static URL getProviderUrl(Invoker<?> invoker) {
+        try {
+            Optional<Field> field = PROVIDER_URL_FIELD.get(invoker.getClass());
+            return field.isPresent() ? (URL) field.get().get(invoker) : null;
+        } catch (Exception e) {
+            LOGGER.error("getProviderUrl fail : invoker={}", invoker, e);
+            return null;
+        }
+    }
+
+    private String initProviderApplicationName(List<Invoker<T>> invokers) {
+        if (CollectionUtils.isEmpty(invokers)) {
+            return "";
+        }
+
+        URL url = getProviderUrl(invokers.get(0));
+        return url == null ? "" : url.getParameters().get("application");
+    }
+
+    private String initConsumerApplicationName(List<Invoker<T>> invokers) {
+        if (CollectionUtils.isEmpty(invokers)) {
+            return "";
+        }
+
+        try {
+            return invokers.get(0).getUrl().getParameters().get("application");
+        } catch (Exception e) {
+            LOGGER.error("getConsumerApplicationName fail, please check, invokers={}", invokers, e);
+            return "";
+        }
+    }
+}
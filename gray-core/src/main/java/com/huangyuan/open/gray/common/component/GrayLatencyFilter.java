@@ -0,0 +1,92 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.extension.Activate;
+import com.alibaba.dubbo.rpc.Filter;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.Result;
+import com.alibaba.dubbo.rpc.RpcException;
+import com.alibaba.dubbo.rpc.support.RpcUtils;
+import com.huangyuan.open.gray.common.support.GrayCircuitBreaker;
+import com.huangyuan.open.gray.common.support.GrayConcurrencyLimiter;
+import com.huangyuan.open.gray.common.utils.SpringContextUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 记录每次调用的耗时和结果
+ *  （1）开启了peakewma选择时，记录每个provider的响应时间和未返回的请求数，供PeakEwmaSelector使用
+ *  （2）开启了熔断、并且调用的是灰度服务时，记录调用结果，供GrayCircuitBreaker使用
+ *  （3）开启了并发限制、并且调用的是灰度服务时，记录进行中的请求数和响应时间，供GrayConcurrencyLimiter使用
+ *
+ * 只在消费者端记录；异步调用在这里拿不到响应时间，不记录。
+ * 调用失败（包括超时）也按实际耗时记录，慢的机器会更快被避开
+ */
+@Activate(group = Constants.CONSUMER)
+public class GrayLatencyFilter implements Filter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayLatencyFilter.class);
+
+    private static volatile GrayCircuitBreaker grayCircuitBreaker;
+
+    private static volatile GrayConcurrencyLimiter grayConcurrencyLimiter;
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        boolean latency = PeakEwmaSelector.isEnabled(invoker.getUrl(), invocation);
+        String grayGroup = invocation.getAttachment("group");
+        boolean gray = StringUtils.isNotEmpty(grayGroup) && initGrayBeans();
+        GrayCircuitBreaker breaker = gray && grayCircuitBreaker.isEnable() ? grayCircuitBreaker : null;
+        GrayConcurrencyLimiter limiter = gray && grayConcurrencyLimiter.isEnable() ? grayConcurrencyLimiter : null;
+
+        if ((!latency && (breaker == null) && (limiter == null)) || RpcUtils.isAsync(invoker.getUrl(), invocation)) {
+            return invoker.invoke(invocation);
+        }
+
+        String service = invoker.getUrl().getPath();
+        PeakEwmaSelector.InvokerStats stats = latency ? PeakEwmaSelector.stats(invoker.getUrl()) : null;
+        GrayConcurrencyLimiter.Limit limit = limiter == null ? null : limiter.start(service, grayGroup);
+        long start = System.nanoTime();
+        if (stats != null) {
+            stats.start();
+        }
+
+        boolean error = true;
+        try {
+            Result result = invoker.invoke(invocation);
+            // 业务声明的异常不算失败
+            error = result.hasException() && (result.getException() instanceof RuntimeException);
+            return result;
+        } finally {
+            long now = System.nanoTime();
+            if (stats != null) {
+                stats.end(now - start, now);
+            }
+            if (limit != null) {
+                limit.end(now - start, error);
+            }
+            if (breaker != null) {
+                breaker.record(service, grayGroup, error, now - start);
+            }
+        }
+    }
+
+    /**
+     * 获取熔断器、并发限制，获取失败时返回false
+     */
+    private static boolean initGrayBeans() {
+        if ((grayCircuitBreaker != null) && (grayConcurrencyLimiter != null)) {
+            return true;
+        }
+        try {
+            grayCircuitBreaker = SpringContextUtil.getBean("grayCircuitBreaker");
+            grayConcurrencyLimiter = SpringContextUtil.getBean("grayConcurrencyLimiter");
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("get grayCircuitBreaker or grayConcurrencyLimiter fail, please check", e);
+            return false;
+        }
+    }
+}
@@ -25,6 +25,10 @@ public class GrayLoadBalance extends LeastActiveLoadBalance implements CustomLoa
 
     @Override
     public <T> Invoker<T> superFilterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation) {
+        // 开启peakewma时按响应时间选择，否则使用leastactive
+        if (PeakEwmaSelector.isEnabled(url, invocation)) {
+            return PeakEwmaSelector.select(invokers);
+        }
         return super.doSelect(invokers, url, invocation);
     }
 }
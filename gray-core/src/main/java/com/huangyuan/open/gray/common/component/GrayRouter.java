@@ -0,0 +1,73 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.Constants;
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.alibaba.dubbo.rpc.RpcException;
+import com.alibaba.dubbo.rpc.cluster.Router;
+import com.huangyuan.open.gray.common.utils.SpringContextUtil;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * 灰度路由（用于非接入层项目）
+ *
+ * 与GrayLoadBalance的筛选规则一致，区别在于：
+ *  （1）在集群层之前完成灰度/正式服务的筛选，负载均衡（LeastActiveLoadBalance）只会看到筛选后的列表
+ *  （2）可以与其他路由规则（条件路由、标签路由等）一起使用
+ *  （3）灰度/正式服务的划分由GrayInvokerIndex按invoker列表缓存，目录不变化时，每次路由只是一次map查找
+ */
+public class GrayRouter implements Router {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayRouter.class);
+
+    private final URL url;
+
+    private final int priority;
+
+    public GrayRouter(URL url) {
+        // runtime=true，每次调用都执行路由，因为灰度配置会变化，不能只在目录变化时执行
+        this.url = url.addParameter(Constants.RUNTIME_KEY, true);
+        this.priority = url.getParameter(Constants.PRIORITY_KEY, 0);
+    }
+
+    @Override
+    public URL getUrl() {
+        return url;
+    }
+
+    @Override
+    public <T> List<Invoker<T>> route(List<Invoker<T>> invokers, URL url, Invocation invocation) throws RpcException {
+        if (CollectionUtils.isEmpty(invokers)) {
+            return invokers;
+        }
+
+        try {
+            GrayComponent grayComponent = SpringContextUtil.getBean("grayComponent");
+
+            return grayComponent.route(invokers, invocation);
+
+        } catch (Exception e) {
+            LOGGER.error("GrayRouter route fail, invocation={}", invocation, e);
+            // 降级，不做筛选
+            return invokers;
+        }
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public int compareTo(Router o) {
+        if (o == null) {
+            return 1;
+        }
+        return Integer.compare(priority, o.getPriority());
+    }
+}
@@ -0,0 +1,21 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.cluster.Router;
+import com.alibaba.dubbo.rpc.cluster.RouterFactory;
+
+/**
+ * 灰度路由工厂，SPI名称为gray
+ *
+ * 开启gray.router.enable后，GrayBeanPostProcessor会在注册中心配置上设置router=gray，
+ * dubbo创建RegistryDirectory时通过该工厂创建GrayRouter
+ */
+public class GrayRouterFactory implements RouterFactory {
+
+    public static final String NAME = "gray";
+
+    @Override
+    public Router getRouter(URL url) {
+        return new GrayRouter(url);
+    }
+}
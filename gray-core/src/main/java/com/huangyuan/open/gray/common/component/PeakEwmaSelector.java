@@ -0,0 +1,168 @@
+package com.huangyuan.open.gray.common.component;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import com.alibaba.dubbo.rpc.Invoker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按响应时间选择invoker（peak-EWMA + 随机选两个取较优）
+ *
+ * leastactive只看并发数，不看响应时间，灰度服务通常只有两台机器，其中一台变慢时影响很大。
+ * 开启后，CustomLoadBalance.superFilterSelect使用该选择器：
+ *  （1）GrayLatencyFilter记录每个invoker的响应时间和未返回的请求数
+ *  （2）响应时间按指数衰减平均，变慢时直接取新的响应时间（peak），变快时才慢慢下降
+ *  （3）负载 = 响应时间 * (未返回的请求数 + 1)，随机选两个invoker，取负载低的一个
+ * GrayComponent先筛选出灰度服务或正式服务，再调用superFilterSelect，因此只在同一个环境的服务中选择
+ *
+ * 通过消费者参数graySelector=peakewma开启（gray.loadbalance.selector），可以按服务、按方法配置
+ */
+public final class PeakEwmaSelector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeakEwmaSelector.class);
+
+    /**
+     * 消费者参数名
+     */
+    public static final String SELECTOR_KEY = "graySelector";
+
+    public static final String PEAK_EWMA = "peakewma";
+
+    /**
+     * 衰减时间常数，10秒前的响应时间权重约为1/e
+     */
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 还没有响应时间、但已经有请求未返回的invoker，给一个很大的负载，避免请求都堆到新机器上
+     */
+    private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+    /**
+     * invoker(protocol://host:port/path) -> 统计，过滤器和负载均衡看到的是不同的invoker对象，因此用url区分；
+     * 下线的机器一段时间不访问后自动回收
+     */
+    private static final Cache<String, InvokerStats> STATS = CacheBuilder.newBuilder()
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    private PeakEwmaSelector() {
+    }
+
+    /**
+     * 该调用是否使用peak-EWMA选择
+     */
+    public static boolean isEnabled(URL url, Invocation invocation) {
+        return PEAK_EWMA.equalsIgnoreCase(url.getMethodParameter(invocation.getMethodName(), SELECTOR_KEY));
+    }
+
+    /**
+     * 随机选两个invoker，取负载低的一个
+     *
+     * @param invokers 已经筛选好的灰度服务或正式服务，不为空
+     * @return invoker
+     */
+    public static <T> Invoker<T> select(List<Invoker<T>> invokers) {
+        int size = invokers.size();
+        if (size == 1) {
+            return invokers.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        Invoker<T> a = invokers.get(first);
+        Invoker<T> b = invokers.get(second);
+        long now = System.nanoTime();
+        return stats(a.getUrl()).load(now) <= stats(b.getUrl()).load(now) ? a : b;
+    }
+
+    /**
+     * 获取invoker的统计，不存在时创建
+     */
+    static InvokerStats stats(URL url) {
+        String key = url.toIdentityString();
+        try {
+            return STATS.get(key, new Callable<InvokerStats>() {
+                @Override
+                public InvokerStats call() {
+                    return new InvokerStats();
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.error("get invoker stats fail, url={}", key, e);
+            return new InvokerStats();
+        }
+    }
+
+    /**
+     * 单个invoker的统计，只使用原子变量，不加锁
+     */
+    static final class InvokerStats {
+
+        /**
+         * 未返回的请求数
+         */
+        private final AtomicLong pending = new AtomicLong();
+
+        /**
+         * 最近一次更新的时间（纳秒）
+         */
+        private final AtomicLong stamp = new AtomicLong(System.nanoTime());
+
+        /**
+         * 响应时间的peak-EWMA（纳秒），按double的位保存
+         */
+        private final AtomicLong cost = new AtomicLong(Double.doubleToRawLongBits(0.0D));
+
+        void start() {
+            pending.incrementAndGet();
+        }
+
+        /**
+         * 请求返回（包括失败），记录响应时间
+         *
+         * @param rttNanos 响应时间
+         * @param now      当前时间
+         */
+        void end(long rttNanos, long now) {
+            pending.decrementAndGet();
+
+            double weight = Math.exp(-Math.max(now - stamp.getAndSet(now), 0L) / DECAY_NANOS);
+            for (;;) {
+                long bits = cost.get();
+                double current = Double.longBitsToDouble(bits);
+                double next = rttNanos > current ? rttNanos : current * weight + rttNanos * (1.0D - weight);
+                if (cost.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 负载：按距离上次更新的时间衰减后的响应时间 * (未返回的请求数 + 1)
+         */
+        double load(long now) {
+            long active = Math.max(pending.get(), 0L);
+            double current = Double.longBitsToDouble(cost.get());
+            if ((current == 0.0D) && (active > 0)) {
+                return PENALTY + active;
+            }
+            double decayed = current * Math.exp(-Math.max(now - stamp.get(), 0L) / DECAY_NANOS);
+            return decayed * (active + 1);
+        }
+    }
+}
@@ -30,7 +30,6 @@ public class MQListenerController implements ApplicationContextAware {
 
     //默认状态是没有监听
     boolean currentIsListen = false;
-    volatile String currentIp = null;
 
     @Resource
     private Jedis jedis;
@@ -61,10 +60,8 @@ public class MQListenerController implements ApplicationContextAware {
     }
 
     private String getCunrrentIP() {
-        if (currentIp == null) {
-            currentIp = GrayHandlerHelper.getLocalIp();
-        }
-        return currentIp;
+        // 本机地址已经缓存，网卡变化后会重新解析，这里不再缓存
+        return GrayHandlerHelper.getLocalIp();
     }
 
     /**
@@ -0,0 +1,313 @@
+package com.huangyuan.open.gray.common.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 灰度服务熔断器
+ *
+ * 灰度服务还活着、但是变慢或者报错时，灰度流量仍然全部打到灰度服务上。
+ * 按（提供方服务, 灰度分组）统计最近一段时间的调用结果（滑动窗口），
+ *  （1）错误率超过阈值，或者p99响应时间超过阈值（即超过阈值的调用占比大于1%）时熔断，灰度流量降级到正常服务
+ *  （2）熔断一段时间后半开，放少量探测请求到灰度服务，全部成功则恢复，有一个失败或变慢则继续熔断
+ * 调用结果由GrayLatencyFilter记录，GrayComponent筛选灰度服务前判断是否熔断，判断只读取原子变量，不加锁
+ */
+@Component
+public class GrayCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayCircuitBreaker.class);
+
+    /**
+     * 超过slowMillis的调用占比大于该值，说明p99超过了slowMillis
+     */
+    private static final double SLOW_RATE = 0.01D;
+
+    private static final long BUCKET_MILLIS = 1000L;
+
+    private static final int CLOSED = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HALF_OPEN = 2;
+
+    /**
+     * 是否开启熔断
+     */
+    @Value("${gray.breaker.enable:false}")
+    private boolean enable;
+
+    /**
+     * 滑动窗口的长度（秒）
+     */
+    @Value("${gray.breaker.windowSeconds:10}")
+    private int windowSeconds;
+
+    /**
+     * 窗口内的调用次数达到该值才判断是否熔断
+     */
+    @Value("${gray.breaker.minRequests:20}")
+    private int minRequests;
+
+    /**
+     * 错误率阈值
+     */
+    @Value("${gray.breaker.errorRate:0.5}")
+    private double errorRate;
+
+    /**
+     * p99响应时间阈值（毫秒）
+     */
+    @Value("${gray.breaker.slowMillis:1000}")
+    private long slowMillis;
+
+    /**
+     * 熔断持续的时间（秒），之后进入半开
+     */
+    @Value("${gray.breaker.openSeconds:30}")
+    private int openSeconds;
+
+    /**
+     * 半开时放行的探测请求数，全部成功则恢复
+     */
+    @Value("${gray.breaker.halfOpenProbes:5}")
+    private int halfOpenProbes;
+
+    @Resource
+    private GrayServiceRegistry grayServiceRegistry;
+
+    /**
+     * 提供方服务名称 -> 灰度分组 -> 熔断器
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Breaker>> breakers = new ConcurrentHashMap<>();
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    /**
+     * 判断是否可以调用灰度服务
+     *
+     * @param providerApplicationName 提供方服务名称
+     * @param grayGroup               灰度分组
+     * @return true-可以调用灰度服务, false-熔断中，应该降级到正常服务
+     */
+    public boolean allowGray(String providerApplicationName, String grayGroup) {
+        if (!enable || (providerApplicationName == null) || (grayGroup == null)) {
+            return true;
+        }
+        return getBreaker(providerApplicationName, grayGroup).allow(System.currentTimeMillis());
+    }
+
+    /**
+     * 记录一次灰度服务的调用结果
+     *
+     * @param service      服务接口
+     * @param grayGroup    灰度分组
+     * @param error        是否失败
+     * @param elapsedNanos 耗时
+     */
+    public void record(String service, String grayGroup, boolean error, long elapsedNanos) {
+        String providerApplicationName = grayServiceRegistry.getProviderApplicationName(service);
+        if (!enable || (providerApplicationName == null)) {
+            return;
+        }
+
+        boolean slow = elapsedNanos > TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        getBreaker(providerApplicationName, grayGroup).record(error, slow, System.currentTimeMillis());
+    }
+
+    private Breaker getBreaker(String providerApplicationName, String grayGroup) {
+        ConcurrentMap<String, Breaker> groups = breakers.get(providerApplicationName);
+        if (groups == null) {
+            ConcurrentMap<String, Breaker> created = new ConcurrentHashMap<>();
+            groups = breakers.putIfAbsent(providerApplicationName, created);
+            if (groups == null) {
+                groups = created;
+            }
+        }
+
+        Breaker breaker = groups.get(grayGroup);
+        if (breaker == null) {
+            Breaker created = new Breaker(providerApplicationName, grayGroup);
+            breaker = groups.putIfAbsent(grayGroup, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * 单个（提供方服务, 灰度分组）的熔断器
+     */
+    private class Breaker {
+
+        private final String providerApplicationName;
+
+        private final String grayGroup;
+
+        private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+        private volatile Window window = new Window(windowSeconds);
+
+        /**
+         * 熔断结束的时间
+         */
+        private volatile long openUntil;
+
+        /**
+         * 进入半开的时间
+         */
+        private volatile long halfOpenSince;
+
+        /**
+         * 半开时已经放行的探测请求数
+         */
+        private final AtomicInteger probes = new AtomicInteger();
+
+        /**
+         * 半开时成功的探测请求数
+         */
+        private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+        Breaker(String providerApplicationName, String grayGroup) {
+            this.providerApplicationName = providerApplicationName;
+            this.grayGroup = grayGroup;
+        }
+
+        boolean allow(long now) {
+            switch (state.get()) {
+                case CLOSED:
+                    return true;
+
+                case OPEN:
+                    if ((now < openUntil) || !state.compareAndSet(OPEN, HALF_OPEN)) {
+                        return false;
+                    }
+                    halfOpenSince = now;
+                    probeSuccesses.set(0);
+                    probes.set(1);
+                    LOGGER.info("gray circuit half open, providerApplicationName={}, grayGroup={}",
+                            providerApplicationName, grayGroup);
+                    return true;
+
+                default:
+                    if (probes.incrementAndGet() <= halfOpenProbes) {
+                        return true;
+                    }
+                    // 探测请求迟迟没有结果（例如异步调用不记录结果），重新熔断，等待下一次半开
+                    if (now - halfOpenSince > TimeUnit.SECONDS.toMillis(openSeconds)) {
+                        trip(HALF_OPEN, now);
+                    }
+                    return false;
+            }
+        }
+
+        void record(boolean error, boolean slow, long now) {
+            switch (state.get()) {
+                case CLOSED:
+                    Window current = window;
+                    current.add(now, error, slow);
+                    if (current.shouldTrip(now)) {
+                        trip(CLOSED, now);
+                    }
+                    return;
+
+                case HALF_OPEN:
+                    if (error || slow) {
+                        trip(HALF_OPEN, now);
+                    } else if (probeSuccesses.incrementAndGet() >= halfOpenProbes) {
+                        window = new Window(windowSeconds);
+                        if (state.compareAndSet(HALF_OPEN, CLOSED)) {
+                            LOGGER.info("gray circuit closed, providerApplicationName={}, grayGroup={}",
+                                    providerApplicationName, grayGroup);
+                        }
+                    }
+                    return;
+
+                default:
+                    // 熔断中，忽略熔断前发出的请求的结果
+            }
+        }
+
+        private void trip(int from, long now) {
+            // 先设置结束时间再切换状态，其他线程看到OPEN时结束时间已经是新的
+            openUntil = now + TimeUnit.SECONDS.toMillis(openSeconds);
+            if (state.compareAndSet(from, OPEN)) {
+                LOGGER.warn("gray circuit open, degrade to formal, providerApplicationName={}, grayGroup={}, openSeconds={}",
+                        providerApplicationName, grayGroup, openSeconds);
+            }
+        }
+    }
+
+    /**
+     * 滑动窗口，每秒一个桶，桶过期后由第一个写入的线程重置
+     */
+    private class Window {
+
+        private final Bucket[] buckets;
+
+        Window(int seconds) {
+            buckets = new Bucket[Math.max(seconds, 1)];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        void add(long now, boolean error, boolean slow) {
+            long epoch = now / BUCKET_MILLIS;
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+
+            long old = bucket.epoch.get();
+            if ((old < epoch) && bucket.epoch.compareAndSet(old, epoch)) {
+                bucket.total.set(0);
+                bucket.errors.set(0);
+                bucket.slow.set(0);
+            }
+
+            bucket.total.incrementAndGet();
+            if (error) {
+                bucket.errors.incrementAndGet();
+            }
+            if (slow) {
+                bucket.slow.incrementAndGet();
+            }
+        }
+
+        boolean shouldTrip(long now) {
+            long oldest = now / BUCKET_MILLIS - buckets.length;
+            long total = 0;
+            long errors = 0;
+            long slow = 0;
+            for (Bucket bucket : buckets) {
+                if (bucket.epoch.get() > oldest) {
+                    total += bucket.total.get();
+                    errors += bucket.errors.get();
+                    slow += bucket.slow.get();
+                }
+            }
+            return (total >= minRequests) && ((errors >= total * errorRate) || (slow > total * SLOW_RATE));
+        }
+    }
+
+    private static class Bucket {
+
+        private final AtomicLong epoch = new AtomicLong(-1L);
+
+        private final AtomicLong total = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+
+        private final AtomicLong slow = new AtomicLong();
+    }
+}
@@ -0,0 +1,247 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.rpc.Invocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 灰度服务的自适应并发限制（AIMD）
+ *
+ * 灰度环境的机器很少，大企业切到灰度后，流量可能压垮灰度机器。
+ * 按（提供方服务, 灰度分组）限制同时进行中的灰度请求数，限制值根据响应时间自动调整：
+ *  （1）响应时间超过latencyMillis或调用失败，限制值乘以backoffRatio（每个latencyMillis最多下降一次）
+ *  （2）正常返回、并且进行中的请求数超过限制值的一半时，限制值缓慢增加（每返回limit个请求约加1）
+ * 进行中的请求数达到限制值时，超出的请求溢出到正常服务，不在饱和的灰度机器上排队。
+ * 是否溢出可以按服务、按方法配置（消费者参数graySpill），不溢出的请求仍然调用灰度服务，只做计数
+ */
+@Component
+public class GrayConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayConcurrencyLimiter.class);
+
+    /**
+     * 消费者参数名，是否允许溢出到正常服务
+     */
+    public static final String SPILL_KEY = "graySpill";
+
+    /**
+     * 是否开启并发限制
+     */
+    @Value("${gray.limiter.enable:false}")
+    private boolean enable;
+
+    /**
+     * 默认是否允许溢出到正常服务
+     */
+    @Value("${gray.limiter.spill:true}")
+    private boolean spill;
+
+    @Value("${gray.limiter.initialLimit:20}")
+    private int initialLimit;
+
+    @Value("${gray.limiter.minLimit:2}")
+    private int minLimit;
+
+    @Value("${gray.limiter.maxLimit:200}")
+    private int maxLimit;
+
+    /**
+     * 响应时间超过该值（毫秒）时，认为灰度机器已经饱和
+     */
+    @Value("${gray.limiter.latencyMillis:500}")
+    private long latencyMillis;
+
+    @Value("${gray.limiter.backoffRatio:0.9}")
+    private double backoffRatio;
+
+    @Resource
+    private GrayServiceRegistry grayServiceRegistry;
+
+    /**
+     * 提供方服务名称 -> 灰度分组 -> 并发限制
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Limit>> limits = new ConcurrentHashMap<>();
+
+    public boolean isEnable() {
+        return enable;
+    }
+
+    /**
+     * 判断是否可以调用灰度服务
+     *
+     * @param providerApplicationName 提供方服务名称
+     * @param grayGroup               灰度分组
+     * @param url                     消费方url，读取graySpill配置
+     * @param invocation              远程调用参数
+     * @return true-可以调用灰度服务, false-灰度服务饱和，应该溢出到正常服务
+     */
+    public boolean allowGray(String providerApplicationName, String grayGroup, URL url, Invocation invocation) {
+        if (!enable || (providerApplicationName == null) || (grayGroup == null)) {
+            return true;
+        }
+
+        Limit limit = getLimit(providerApplicationName, grayGroup);
+        if (!limit.isSaturated()) {
+            return true;
+        }
+
+        if (url.getMethodParameter(invocation.getMethodName(), SPILL_KEY, spill)) {
+            long spilled = limit.spilled.incrementAndGet();
+            // 按1、2、4、8...次打印，避免饱和时打印过多日志
+            if ((spilled & (spilled - 1)) == 0) {
+                LOGGER.warn("gray pool saturated, spill to formal, providerApplicationName={}, grayGroup={}, limit={}, spilled={}",
+                        providerApplicationName, grayGroup, limit.getLimit(), spilled);
+            }
+            return false;
+        }
+
+        limit.overLimit.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 灰度请求开始，返回该请求对应的并发限制，没有开启或者没有登记服务时返回null
+     *
+     * @param service   服务接口
+     * @param grayGroup 灰度分组
+     * @return Limit
+     */
+    public Limit start(String service, String grayGroup) {
+        String providerApplicationName = grayServiceRegistry.getProviderApplicationName(service);
+        if (!enable || (providerApplicationName == null)) {
+            return null;
+        }
+
+        Limit limit = getLimit(providerApplicationName, grayGroup);
+        limit.inflight.incrementAndGet();
+        return limit;
+    }
+
+    /**
+     * 溢出到正常服务的次数
+     */
+    public long getSpillCount(String providerApplicationName, String grayGroup) {
+        Limit limit = findLimit(providerApplicationName, grayGroup);
+        return limit == null ? 0L : limit.spilled.get();
+    }
+
+    /**
+     * 超过限制、但是配置了不溢出，仍然调用灰度服务的次数
+     */
+    public long getOverLimitCount(String providerApplicationName, String grayGroup) {
+        Limit limit = findLimit(providerApplicationName, grayGroup);
+        return limit == null ? 0L : limit.overLimit.get();
+    }
+
+    /**
+     * 当前的限制值，没有灰度请求时返回0
+     */
+    public int getCurrentLimit(String providerApplicationName, String grayGroup) {
+        Limit limit = findLimit(providerApplicationName, grayGroup);
+        return limit == null ? 0 : limit.getLimit();
+    }
+
+    private Limit findLimit(String providerApplicationName, String grayGroup) {
+        ConcurrentMap<String, Limit> groups = limits.get(providerApplicationName);
+        return groups == null ? null : groups.get(grayGroup);
+    }
+
+    private Limit getLimit(String providerApplicationName, String grayGroup) {
+        ConcurrentMap<String, Limit> groups = limits.get(providerApplicationName);
+        if (groups == null) {
+            ConcurrentMap<String, Limit> created = new ConcurrentHashMap<>();
+            groups = limits.putIfAbsent(providerApplicationName, created);
+            if (groups == null) {
+                groups = created;
+            }
+        }
+
+        Limit limit = groups.get(grayGroup);
+        if (limit == null) {
+            Limit created = new Limit();
+            limit = groups.putIfAbsent(grayGroup, created);
+            if (limit == null) {
+                limit = created;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * 单个（提供方服务, 灰度分组）的并发限制，只使用原子变量，不加锁
+     */
+    public class Limit {
+
+        /**
+         * 进行中的请求数
+         */
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        /**
+         * 限制值，按double的位保存
+         */
+        private final AtomicLong limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+
+        /**
+         * 最近一次下降的时间（纳秒）
+         */
+        private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+
+        private final AtomicLong spilled = new AtomicLong();
+
+        private final AtomicLong overLimit = new AtomicLong();
+
+        boolean isSaturated() {
+            return inflight.get() >= getLimit();
+        }
+
+        int getLimit() {
+            return (int) Double.longBitsToDouble(limit.get());
+        }
+
+        /**
+         * 灰度请求返回（包括失败），调整限制值
+         *
+         * @param rttNanos 响应时间
+         * @param error    是否失败
+         */
+        public void end(long rttNanos, boolean error) {
+            int current = inflight.getAndDecrement();
+
+            if (error || (rttNanos > TimeUnit.MILLISECONDS.toNanos(latencyMillis))) {
+                long now = System.nanoTime();
+                long last = lastDecrease.get();
+                if ((now - last > TimeUnit.MILLISECONDS.toNanos(latencyMillis)) && lastDecrease.compareAndSet(last, now)) {
+                    update(backoffRatio, 0.0D);
+                }
+            } else if (current * 2 >= getLimit()) {
+                update(1.0D, 1.0D);
+            }
+        }
+
+        /**
+         * limit = limit * ratio + increase / limit，并限制在[minLimit, maxLimit]之间
+         */
+        private void update(double ratio, double increase) {
+            for (;;) {
+                long bits = limit.get();
+                double value = Double.longBitsToDouble(bits);
+                double next = Math.min(Math.max(value * ratio + increase / value, minLimit), maxLimit);
+                if ((next == value) || limit.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.huangyuan.open.gray.common.support;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import javax.annotation.PostConstruct;
+
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -11,15 +16,45 @@ import java.util.List;
 @Component
 public class GrayConfigHepler {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayConfigHepler.class);
+
+    /**
+     * 需要走灰度的接口列表，多个用逗号或分号分隔，规则见GrayInterfaceMatcher
+     */
+    @Value("${gray.interfaces:}")
+    private String grayInterfaces;
+
+    private volatile GrayInterfaceMatcher grayInterfaceMatcher = GrayInterfaceMatcher.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        setGrayInterfaceList(Arrays.asList(grayInterfaces.split("[,;]")));
+    }
+
     /**
      * 获取需要走灰度的接口列表，形如：
      * com.facishare.eservice.cases.api.service.MigrateService#addWorkOrderField
      */
     public List<String> getGrayInterfaceList() {
+        return grayInterfaceMatcher.getRules();
+    }
 
-        // todo 从配置中心获取你们的灰度接口列表
-        List<String> grayInterfaces = new ArrayList<>();
+    /**
+     * 编译好的灰度接口列表
+     */
+    public GrayInterfaceMatcher getGrayInterfaceMatcher() {
+        return grayInterfaceMatcher;
+    }
 
-        return grayInterfaces;
+    /**
+     * 替换灰度接口列表，供配置中心的变更回调使用；
+     * 编译完成后整体替换，正在进行的判断使用旧的列表或新的列表，不会看到一半
+     *
+     * @param grayInterfaceList 灰度接口列表
+     */
+    public void setGrayInterfaceList(List<String> grayInterfaceList) {
+        GrayInterfaceMatcher matcher = GrayInterfaceMatcher.compile(grayInterfaceList);
+        grayInterfaceMatcher = matcher;
+        LOGGER.info("gray interfaces changed, grayInterfaces={}", matcher.getRules());
     }
 }
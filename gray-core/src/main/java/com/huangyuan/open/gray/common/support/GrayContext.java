@@ -0,0 +1,120 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.alibaba.dubbo.rpc.Invocation;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+
+/**
+ * 已经做出的灰度判断（不可变）
+ *
+ * 入口服务判断出是否灰度、灰度分组（以及企业）后，放在调用的attachment中传给下游；
+ * 下游服务的GrayContextFilter把它放到当前线程，该线程再调用其他服务时，GrayComponent直接使用，
+ * 不再重复判断接口、本机是否灰度，一次请求只判断一次。
+ * 业务自己开启的线程拿不到上游的判断，仍然按原来的规则判断
+ * 没有本地快照时，GrayComponent也用它保存一次远程查询（getGrayRoutingVerdict）得到的判断
+ */
+public final class GrayContext {
+
+    /**
+     * 是否灰度，1-灰度，0-正式
+     */
+    public static final String GRAY_TAG_KEY = "grayTag";
+
+    /**
+     * 灰度分组
+     */
+    public static final String GRAY_GROUP_KEY = "grayGroup";
+
+    /**
+     * 企业账号
+     */
+    public static final String GRAY_EA_KEY = "grayEa";
+
+    private static final String GRAY = "1";
+
+    private static final String FORMAL = "0";
+
+    private static final ThreadLocal<GrayContext> CURRENT = new ThreadLocal<>();
+
+    private final boolean gray;
+
+    private final String grayGroup;
+
+    private final String fsEa;
+
+    public GrayContext(boolean gray, String grayGroup, String fsEa) {
+        this.gray = gray;
+        this.grayGroup = grayGroup;
+        this.fsEa = fsEa;
+    }
+
+    /**
+     * 从调用的attachment中读取上游的判断
+     *
+     * @param invocation 远程调用参数
+     * @return 没有上游的判断时返回null
+     */
+    public static GrayContext from(Invocation invocation) {
+        Map<String, String> attachments = invocation.getAttachments();
+        String tag = attachments == null ? null : attachments.get(GRAY_TAG_KEY);
+        if (StringUtils.isEmpty(tag)) {
+            return null;
+        }
+        return new GrayContext(GRAY.equals(tag), StringUtils.trimToNull(attachments.get(GRAY_GROUP_KEY)),
+                StringUtils.trimToNull(attachments.get(GRAY_EA_KEY)));
+    }
+
+    /**
+     * 把判断放到调用的attachment中，传给下游
+     *
+     * @param invocation 远程调用参数
+     */
+    public void attach(Invocation invocation) {
+        Map<String, String> attachments = invocation.getAttachments();
+        attachments.put(GRAY_TAG_KEY, gray ? GRAY : FORMAL);
+        attachments.put(GRAY_GROUP_KEY, StringUtils.defaultString(grayGroup));
+        attachments.put(GRAY_EA_KEY, StringUtils.defaultString(fsEa));
+    }
+
+    /**
+     * 当前线程上的上游判断，没有时返回null
+     */
+    public static GrayContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 设置当前线程上的上游判断，返回原来的值，调用结束后用restore恢复
+     */
+    public static GrayContext set(GrayContext context) {
+        GrayContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    public static void restore(GrayContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public boolean isGray() {
+        return gray;
+    }
+
+    public String getGrayGroup() {
+        return grayGroup;
+    }
+
+    public String getFsEa() {
+        return fsEa;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayContext{gray=" + gray + ", grayGroup=" + grayGroup + ", fsEa=" + fsEa + "}";
+    }
+}
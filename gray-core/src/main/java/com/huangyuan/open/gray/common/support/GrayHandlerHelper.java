@@ -1,11 +1,16 @@
 package com.huangyuan.open.gray.common.support;
 
 
+import com.huangyuan.open.gray.base.common.IpRangeMatcher;
 import com.huangyuan.open.gray.base.result.EserviceResult;
+import com.huangyuan.open.gray.config.api.model.arg.ClassifyGrayFsEasArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationConfigNewArg;
 import com.huangyuan.open.gray.config.api.model.arg.GetGrayApplicationGroupConfigByEaArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingVerdictArg;
+import com.huangyuan.open.gray.config.api.model.result.ClassifyGrayFsEasResult;
 import com.huangyuan.open.gray.config.api.model.result.GetGrayApplicationGroupConfigByEaResult;
 import com.huangyuan.open.gray.config.api.model.result.GrayApplicationResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingVerdictResult;
 import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,8 +18,12 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 
-import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author huangy on 2018/9/4
@@ -26,6 +35,13 @@ public class GrayHandlerHelper {
 
     @Resource
     private GrayApplicationHandlerService grayApplicationHandlerService;
+    @Resource
+    private GrayRoutingSnapshotHolder grayRoutingSnapshotHolder;
+
+    /**
+     * 服务名称 -> 编译好的灰度机器列表，没有本地快照、远程查询灰度配置时使用
+     */
+    private final ConcurrentMap<String, CompiledIpList> ipMatchers = new ConcurrentHashMap<>();
 
     /**
      * 判断这台机器上、这个服务是否需要灰度，需要的话，返回group
@@ -36,6 +52,12 @@ public class GrayHandlerHelper {
      */
     public String justGrayAndGetGroup(String applicationName) {
 
+        // 优先使用本地快照
+        GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+        if (snapshot != null) {
+            return snapshot.justGrayAndGetGroup(applicationName, getLocalIp());
+        }
+
         // 查询该服务的灰度配置
         EserviceResult<GrayApplicationResult> modelResult = grayApplicationHandlerService.getGrayApplicationConfig(applicationName);
 
@@ -62,7 +84,7 @@ public class GrayHandlerHelper {
                 String ip = getLocalIp();
 
                 // 判断该机器是否需要灰度
-                if (justThisIpIsGray(grayIpList, ip)) {
+                if (justThisIpIsGray(applicationName, grayIpList, ip)) {
                     return result.getGroupName();
                 } else {
 //                    LOGGER.info("this ip address is not gray ip, ip={}, applicationName={}", ip, applicationName);
@@ -81,6 +103,12 @@ public class GrayHandlerHelper {
      * @return group的值
      */
     public String getGrayGroup(String applicationName) {
+        // 优先使用本地快照
+        GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+        if (snapshot != null) {
+            return snapshot.getGrayGroup(applicationName);
+        }
+
         // 查询该服务的灰度配置
         EserviceResult<GrayApplicationResult> modelResult = grayApplicationHandlerService.getGrayApplicationConfig(applicationName);
 
@@ -101,18 +129,23 @@ public class GrayHandlerHelper {
         }
     }
 
-    // 获取本机IP
+    // 获取本机IP，见GrayHostIdentity
     public static String getLocalIp() {
-        try {
-            return InetAddress.getLocalHost().getHostAddress();
-        } catch (Exception e) {
-            LOGGER.error("get local ip fail", e);
-            return null;
-        }
+        return GrayHostIdentity.getIp();
     }
 
-    private boolean justThisIpIsGray(List<String> grayIpList, String ip) {
-        return (grayIpList.contains("all") || grayIpList.contains(ip));
+    /**
+     * 灰度机器列表中可以是ip、网段（CIDR）或all
+     * 编译好的列表按服务缓存，列表没有变化时不再重新解析
+     */
+    private boolean justThisIpIsGray(String applicationName, List<String> grayIpList, String ip) {
+        List<String> rules = grayIpList == null ? Collections.<String>emptyList() : grayIpList;
+        CompiledIpList compiled = ipMatchers.get(applicationName);
+        if ((compiled == null) || !compiled.grayIpList.equals(rules)) {
+            compiled = new CompiledIpList(rules);
+            ipMatchers.put(applicationName, compiled);
+        }
+        return compiled.matcher.matches(ip);
     }
 
     /**
@@ -121,6 +154,12 @@ public class GrayHandlerHelper {
      * @return group的值
      */
     public String getGrayGroupByConsumerApplication(String applicationName) {
+        // 优先使用本地快照
+        GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+        if (snapshot != null) {
+            return snapshot.getGrayGroupByIp(applicationName, getLocalIp());
+        }
+
         // 查询该服务的灰度配置
         GetGrayApplicationConfigNewArg arg = new GetGrayApplicationConfigNewArg();
         arg.setApplicationName(applicationName);
@@ -151,6 +190,12 @@ public class GrayHandlerHelper {
      */
     public boolean justGaryByIpAndApplication(String applicationName) {
         try {
+            // 优先使用本地快照
+            GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+            if (snapshot != null) {
+                return snapshot.justGrayByIp(applicationName, getLocalIp());
+            }
+
             // 查询该服务的灰度配置
             GetGrayApplicationConfigNewArg arg = new GetGrayApplicationConfigNewArg();
             arg.setApplicationName(applicationName);
@@ -180,7 +225,7 @@ public class GrayHandlerHelper {
                     String ip = getLocalIp();
 
                     // 判断该机器是否需要灰度
-                    if (justThisIpIsGray(grayIpList, ip)) {
+                    if (justThisIpIsGray(applicationName, grayIpList, ip)) {
                         return true;
                     } else {
 //                        LOGGER.info("this ip address is not gray ip, ip={}, applicationName={}", ip, applicationName);
@@ -209,6 +254,12 @@ public class GrayHandlerHelper {
 
         try {
 
+            // 优先使用本地快照
+            GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+            if (snapshot != null) {
+                return snapshot.checkGrayFsEa(fsEa, providerApplicationName);
+            }
+
             EserviceResult<Boolean> modelResult = grayApplicationHandlerService.checkGrayFsEa(providerApplicationName, fsEa);
             if (modelResult == null) {
                 LOGGER.error("checkGrayFsEa : grayApplicationHandlerService.checkGrayFsEa, fsEa={}", fsEa);
@@ -241,6 +292,12 @@ public class GrayHandlerHelper {
      */
     public String getGrayApplicationGroupNameByEa(String fsEa) {
         try {
+            // 优先使用本地快照
+            GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+            if (snapshot != null) {
+                return snapshot.getGrayGroupNameByEa(fsEa);
+            }
+
             GetGrayApplicationGroupConfigByEaArg arg = new GetGrayApplicationGroupConfigByEaArg();
             arg.setFsEa(fsEa);
             EserviceResult<GetGrayApplicationGroupConfigByEaResult> result = grayApplicationHandlerService.getGrayApplicationGroupConfigByEa(arg);
@@ -256,4 +313,119 @@ public class GrayHandlerHelper {
             return null;
         }
     }
+
+    /**
+     * 把一批企业分为灰度、正式两部分，供批处理任务、MQ消费者使用
+     *      有本地快照时在本地判断；没有时按ClassifyGrayFsEasArg.MAX_SIZE分批调用classifyGrayFsEas，
+     *      不再按企业逐个远程调用。某一批调用失败时，该批企业按正式处理（与checkGrayFsEa的降级一致）
+     *
+     * @param fsEas                   企业账号，可以是很大的集合，按顺序遍历一次
+     * @param providerApplicationName 提供方应用名称，可为空，为空时企业所在的灰度分组已开启即为灰度
+     * @return GrayTenantPartition
+     */
+    public GrayTenantPartition partitionByGray(Iterable<String> fsEas, String providerApplicationName) {
+        GrayTenantPartition partition = new GrayTenantPartition();
+        if (fsEas == null) {
+            return partition;
+        }
+
+        // 优先使用本地快照
+        GrayRoutingSnapshot snapshot = grayRoutingSnapshotHolder.current();
+        if (snapshot != null) {
+            for (String fsEa : fsEas) {
+                boolean gray = providerApplicationName == null
+                        ? snapshot.checkGrayFsEaByGroup(fsEa) : snapshot.checkGrayFsEa(fsEa, providerApplicationName);
+                partition.add(fsEa, gray, gray ? snapshot.getGrayGroupNameByEa(fsEa) : null);
+            }
+            return partition;
+        }
+
+        Iterator<String> iterator = fsEas.iterator();
+        List<String> batch = new ArrayList<>();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if ((batch.size() >= ClassifyGrayFsEasArg.MAX_SIZE) || !iterator.hasNext()) {
+                classifyRemotely(batch, providerApplicationName, partition);
+                batch = new ArrayList<>();
+            }
+        }
+        return partition;
+    }
+
+    private void classifyRemotely(List<String> batch, String providerApplicationName, GrayTenantPartition partition) {
+        ClassifyGrayFsEasArg arg = new ClassifyGrayFsEasArg();
+        arg.setProviderApplicationName(providerApplicationName);
+        arg.setFsEas(batch);
+
+        ClassifyGrayFsEasResult data = null;
+        try {
+            EserviceResult<ClassifyGrayFsEasResult> result = grayApplicationHandlerService.classifyGrayFsEas(arg);
+            if ((result == null) || !result.isSuccess() || (result.getData() == null)) {
+                LOGGER.warn("classifyRemotely fail, arg={}, result={}", arg, result);
+            } else {
+                data = result.getData();
+            }
+        } catch (Exception e) {
+            LOGGER.error("classifyRemotely fail, Exception occur, arg={}", arg, e);
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            // 降级，走正常服务
+            boolean gray = (data != null) && data.isGray(i);
+            partition.add(batch.get(i), gray, gray ? data.groupNameOf(i) : null);
+        }
+    }
+
+    /**
+     * 是否有本地快照，有的话在本地判断，不需要远程调用
+     */
+    public boolean hasRoutingSnapshot() {
+        return grayRoutingSnapshotHolder.current() != null;
+    }
+
+    /**
+     * 没有本地快照时，一次远程调用得到灰度判断，
+     * 代替checkGrayFsEa、getGrayApplicationGroupNameByEa、justGaryByIpAndApplication各自的远程调用
+     *
+     * @param consumerApplicationName 消费方应用名称
+     * @param providerApplicationName 提供方应用名称
+     * @param fsEa                    企业账号，可为空
+     * @param interfaceType           调用的接口，与方法名一起用于排查问题，只在远程调用时才拼接
+     * @param methodName              调用的方法
+     * @return 调用失败时返回null
+     */
+    public GrayRoutingVerdictResult getRemoteRoutingVerdict(String consumerApplicationName, String providerApplicationName,
+                                                            String fsEa, Class<?> interfaceType, String methodName) {
+        GetGrayRoutingVerdictArg arg = new GetGrayRoutingVerdictArg();
+        arg.setConsumerApplicationName(consumerApplicationName);
+        arg.setProviderApplicationName(providerApplicationName);
+        arg.setIp(getLocalIp());
+        arg.setFsEa(fsEa);
+        arg.setInvokeInterface(interfaceType == null ? "" : interfaceType.getName() + "#" + methodName);
+
+        try {
+            EserviceResult<GrayRoutingVerdictResult> result = grayApplicationHandlerService.getGrayRoutingVerdict(arg);
+            if ((result == null) || !result.isSuccess() || (result.getData() == null)) {
+                LOGGER.warn("getRemoteRoutingVerdict fail, arg={}, result={}", arg, result);
+                return null;
+            }
+            return result.getData();
+
+        } catch (Exception e) {
+            LOGGER.error("getRemoteRoutingVerdict fail, Exception occur, arg={}", arg, e);
+            return null;
+        }
+    }
+
+    private static final class CompiledIpList {
+
+        private final List<String> grayIpList;
+
+        private final IpRangeMatcher matcher;
+
+        CompiledIpList(List<String> grayIpList) {
+            this.grayIpList = new ArrayList<>(grayIpList);
+            this.matcher = IpRangeMatcher.compile(grayIpList);
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.utils.NetUtils;
+import com.alibaba.dubbo.config.ServiceConfig;
+import com.alibaba.dubbo.config.model.ApplicationModel;
+import com.alibaba.dubbo.config.model.ProviderModel;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机地址，用于判断本机是否灰度机器
+ *
+ * 原来每次判断都调用InetAddress.getLocalHost()，可能触发主机名解析，
+ * 多网卡、容器环境中得到的地址也经常与dubbo注册的地址不一致。现在第一次使用时解析一次，按以下顺序：
+ *  （1）dubbo已经暴露的服务地址（与注册中心上的地址一致）
+ *  （2）环境变量、系统属性DUBBO_IP_TO_REGISTRY（dubbo注册时使用的地址）
+ *  （3）网卡上的地址：跳过回环、虚拟、未启用的网卡；有多个地址时优先dubbo默认选择的地址（NetUtils.getLocalHost），
+ *       其次IPv4，再次全局IPv6
+ *  （4）InetAddress.getLocalHost()
+ * 后台每隔一段时间检查一次网卡地址，只有网卡地址变化、或者dubbo暴露了服务（之前没有取到暴露的地址）时才重新解析。
+ * 热路径上只读取解析好的地址
+ */
+public final class GrayHostIdentity {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayHostIdentity.class);
+
+    private static final String DUBBO_IP_TO_REGISTRY = "DUBBO_IP_TO_REGISTRY";
+
+    /**
+     * 检查网卡地址的间隔
+     */
+    private static final long CHECK_INTERVAL_SECONDS = 30;
+
+    private static volatile Identity identity;
+
+    private GrayHostIdentity() {
+    }
+
+    /**
+     * 本机地址，解析失败时返回null
+     */
+    public static String getIp() {
+        Identity current = identity;
+        if (current == null) {
+            current = init();
+        }
+        return current.ip;
+    }
+
+    private static synchronized Identity init() {
+        if (identity == null) {
+            identity = resolve(interfaceAddresses());
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("gray-host-identity").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(GrayHostIdentity::check,
+                    CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        return identity;
+    }
+
+    private static void check() {
+        try {
+            Identity current = identity;
+            List<String> addresses = interfaceAddresses();
+            if (addresses.equals(current.interfaceAddresses) && (current.exported || (exportedHost() == null))) {
+                return;
+            }
+
+            Identity resolved = resolve(addresses);
+            if (!StringUtils.equals(resolved.ip, current.ip)) {
+                LOGGER.warn("local ip changed, old={}, new={}", current.ip, resolved.ip);
+            }
+            identity = resolved;
+        } catch (Exception e) {
+            LOGGER.error("check local ip fail", e);
+        }
+    }
+
+    private static Identity resolve(List<String> addresses) {
+        String ip = exportedHost();
+        if (ip != null) {
+            return new Identity(ip, true, addresses);
+        }
+
+        ip = StringUtils.trimToNull(System.getenv(DUBBO_IP_TO_REGISTRY));
+        if (ip == null) {
+            ip = StringUtils.trimToNull(System.getProperty(DUBBO_IP_TO_REGISTRY));
+        }
+        if ((ip == null) && !addresses.isEmpty()) {
+            // dubbo没有配置地址时注册的地址，它只解析一次，网卡变化后可能已经不在网卡上
+            String dubboHost = NetUtils.getLocalHost();
+            // 已按IPv4在前排序
+            ip = addresses.contains(dubboHost) ? dubboHost : addresses.get(0);
+        }
+        if (ip == null) {
+            try {
+                ip = InetAddress.getLocalHost().getHostAddress();
+            } catch (Exception e) {
+                LOGGER.error("get local ip fail", e);
+            }
+        }
+        return new Identity(ip, false, addresses);
+    }
+
+    /**
+     * dubbo已经暴露的服务地址，没有暴露服务时返回null
+     */
+    private static String exportedHost() {
+        try {
+            for (ProviderModel providerModel : ApplicationModel.allProviderModels()) {
+                ServiceConfig<?> serviceConfig = providerModel.getMetadata();
+                if ((serviceConfig == null) || (serviceConfig.getExportedUrls() == null)) {
+                    continue;
+                }
+                for (URL url : serviceConfig.getExportedUrls()) {
+                    String host = url.getHost();
+                    if (StringUtils.isNotEmpty(host) && !NetUtils.isInvalidLocalHost(host)) {
+                        return host;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("get dubbo exported host fail", e);
+        }
+        return null;
+    }
+
+    /**
+     * 网卡上的可用地址，IPv4在前，其次是全局IPv6（去掉scope）
+     */
+    private static List<String> interfaceAddresses() {
+        List<String> ipv4 = new ArrayList<>();
+        List<String> ipv6 = new ArrayList<>();
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            if (interfaces == null) {
+                return Collections.emptyList();
+            }
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface networkInterface = interfaces.nextElement();
+                if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isVirtual()) {
+                    continue;
+                }
+                Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
+                while (addresses.hasMoreElements()) {
+                    InetAddress address = addresses.nextElement();
+                    if (address.isLoopbackAddress() || address.isAnyLocalAddress() || address.isLinkLocalAddress()) {
+                        continue;
+                    }
+                    if (address instanceof Inet4Address) {
+                        ipv4.add(address.getHostAddress());
+                    } else if (address instanceof Inet6Address) {
+                        ipv6.add(StringUtils.substringBefore(address.getHostAddress(), "%"));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("get network interface addresses fail", e);
+        }
+        // 网卡的枚举顺序不固定，排序后再比较是否变化
+        Collections.sort(ipv4);
+        Collections.sort(ipv6);
+        ipv4.addAll(ipv6);
+        return ipv4;
+    }
+
+    private static final class Identity {
+
+        private final String ip;
+
+        /**
+         * 是否dubbo暴露的地址，是的话只在网卡地址变化时才重新解析
+         */
+        private final boolean exported;
+
+        private final List<String> interfaceAddresses;
+
+        Identity(String ip, boolean exported, List<String> interfaceAddresses) {
+            this.ip = ip;
+            this.exported = exported;
+            this.interfaceAddresses = interfaceAddresses;
+        }
+    }
+}
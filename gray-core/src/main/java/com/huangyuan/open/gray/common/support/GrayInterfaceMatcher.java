@@ -0,0 +1,190 @@
+package com.huangyuan.open.gray.common.support;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 编译好的灰度接口列表（不可变），列表变化时整体替换，见GrayConfigHepler
+ *
+ * 支持的规则：
+ *  （1）all：所有接口
+ *  （2）com.xx.api.service.MigrateService#addWorkOrderField：某个接口的某个方法
+ *  （3）com.xx.api.service.MigrateService#* 或 com.xx.api.service.MigrateService：某个接口的所有方法
+ *  （4）com.xx.api.service.*：某个包（包括子包）下所有接口的所有方法
+ *
+ * 判断结果按（接口类，方法名）缓存，热路径上不再拼接 接口#方法 字符串
+ */
+public final class GrayInterfaceMatcher {
+
+    private static final String ALL = "all";
+
+    private static final String METHOD_SEPARATOR = "#";
+
+    private static final String WILDCARD = "*";
+
+    public static final GrayInterfaceMatcher EMPTY = compile(Collections.<String>emptyList());
+
+    private final List<String> rules;
+
+    private final boolean matchAll;
+
+    /**
+     * 所有方法都走灰度的接口
+     */
+    private final Set<String> interfaces;
+
+    /**
+     * 接口 -> 走灰度的方法
+     */
+    private final Map<String, Set<String>> methodsByInterface;
+
+    /**
+     * 包名前缀（以.结尾）
+     */
+    private final String[] packagePrefixes;
+
+    /**
+     * 接口类 -> （方法名 -> 是否灰度）
+     */
+    private final ClassValue<ConcurrentMap<String, Boolean>> cache = new ClassValue<ConcurrentMap<String, Boolean>>() {
+        @Override
+        protected ConcurrentMap<String, Boolean> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private GrayInterfaceMatcher(List<String> rules, boolean matchAll, Set<String> interfaces,
+                                 Map<String, Set<String>> methodsByInterface, String[] packagePrefixes) {
+        this.rules = rules;
+        this.matchAll = matchAll;
+        this.interfaces = interfaces;
+        this.methodsByInterface = methodsByInterface;
+        this.packagePrefixes = packagePrefixes;
+    }
+
+    /**
+     * 编译灰度接口列表，空白的规则忽略
+     *
+     * @param grayInterfaces 灰度接口列表
+     * @return GrayInterfaceMatcher
+     */
+    public static GrayInterfaceMatcher compile(List<String> grayInterfaces) {
+        List<String> rules = new ArrayList<>();
+        boolean matchAll = false;
+        Set<String> interfaces = new HashSet<>();
+        Map<String, Set<String>> methodsByInterface = new HashMap<>();
+        List<String> packagePrefixes = new ArrayList<>();
+
+        if (grayInterfaces != null) {
+            for (String grayInterface : grayInterfaces) {
+                String rule = StringUtils.trimToNull(grayInterface);
+                if (rule == null) {
+                    continue;
+                }
+                rules.add(rule);
+
+                if (ALL.equalsIgnoreCase(rule)) {
+                    matchAll = true;
+                } else if (rule.endsWith("." + WILDCARD)) {
+                    packagePrefixes.add(rule.substring(0, rule.length() - WILDCARD.length()));
+                } else if (!rule.contains(METHOD_SEPARATOR)) {
+                    interfaces.add(rule);
+                } else {
+                    String interfaceName = StringUtils.substringBefore(rule, METHOD_SEPARATOR);
+                    String methodName = StringUtils.substringAfter(rule, METHOD_SEPARATOR);
+                    if (WILDCARD.equals(methodName)) {
+                        interfaces.add(interfaceName);
+                    } else {
+                        Set<String> methods = methodsByInterface.get(interfaceName);
+                        if (methods == null) {
+                            methods = new HashSet<>();
+                            methodsByInterface.put(interfaceName, methods);
+                        }
+                        methods.add(methodName);
+                    }
+                }
+            }
+        }
+
+        return new GrayInterfaceMatcher(Collections.unmodifiableList(rules), matchAll, interfaces, methodsByInterface,
+                packagePrefixes.toArray(new String[0]));
+    }
+
+    /**
+     * 判断接口的某个方法是否需要走灰度，结果按（接口类，方法名）缓存
+     *
+     * @param type       接口类
+     * @param methodName 方法名
+     * @return true-走灰度
+     */
+    public boolean matches(Class<?> type, String methodName) {
+        if (matchAll) {
+            return true;
+        }
+        if ((type == null) || (methodName == null) || rules.isEmpty()) {
+            return false;
+        }
+
+        ConcurrentMap<String, Boolean> methods = cache.get(type);
+        Boolean gray = methods.get(methodName);
+        if (gray == null) {
+            gray = matches(type.getName(), methodName);
+            methods.put(methodName, gray);
+        }
+        return gray;
+    }
+
+    /**
+     * 判断接口的某个方法是否需要走灰度（不缓存）
+     *
+     * @param interfaceName 接口名称
+     * @param methodName    方法名
+     * @return true-走灰度
+     */
+    public boolean matches(String interfaceName, String methodName) {
+        if (matchAll) {
+            return true;
+        }
+        if (interfaceName == null) {
+            return false;
+        }
+        if (interfaces.contains(interfaceName)) {
+            return true;
+        }
+        Set<String> methods = methodsByInterface.get(interfaceName);
+        if ((methods != null) && methods.contains(methodName)) {
+            return true;
+        }
+        for (String packagePrefix : packagePrefixes) {
+            if (interfaceName.startsWith(packagePrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 编译前的规则（去掉了空白规则）
+     */
+    public List<String> getRules() {
+        return rules;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "GrayInterfaceMatcher{rules=" + rules + "}";
+    }
+}
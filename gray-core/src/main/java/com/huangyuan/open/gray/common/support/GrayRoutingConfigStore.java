@@ -0,0 +1,74 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.huangyuan.open.gray.common.utils.GsonUtil;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 灰度路由配置的本地文件
+ *
+ * 每次同步成功后把全量配置（含版本号）写入本地文件，
+ * 应用重启时先从文件恢复配置，再从该版本号开始增量同步；
+ * 配置服务不可用时，重启后的应用也能使用最后一次同步成功的配置
+ */
+public class GrayRoutingConfigStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayRoutingConfigStore.class);
+
+    private final File file;
+
+    public GrayRoutingConfigStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 从本地文件读取配置
+     *
+     * @return 配置，文件不存在或者读取失败时返回null
+     */
+    public GrayRoutingConfigResult load() {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return GsonUtil.getGson().fromJson(json, GrayRoutingConfigResult.class);
+        } catch (Exception e) {
+            LOGGER.warn("load gray routing config fail, file={}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * 把配置写入本地文件，先写临时文件再替换，避免进程退出时留下不完整的文件
+     *
+     * @param config 配置
+     */
+    public void save(GrayRoutingConfigResult config) {
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if ((dir != null) && !dir.isDirectory() && !dir.mkdirs()) {
+                LOGGER.warn("save gray routing config fail, can not create dir, file={}", file);
+                return;
+            }
+
+            File tmp = new File(dir, file.getName() + ".tmp");
+            Files.write(tmp.toPath(), GsonUtil.getGson().toJson(config).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (Exception e) {
+            LOGGER.warn("save gray routing config fail, file={}", file, e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,325 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.huangyuan.open.gray.base.common.GrayRollout;
+import com.huangyuan.open.gray.base.common.IpRangeMatcher;
+import com.huangyuan.open.gray.base.common.TenantFilter;
+import com.huangyuan.open.gray.config.api.constant.StatusTypeEnum;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationGroupConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationInfoResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 灰度路由快照（不可变）
+ *
+ * 由配置服务返回的全量配置构建，构建完成后只读，可以被多个线程同时访问。
+ * 各个判断方法与GrayApplicationHandlerService对应接口的判断规则保持一致，
+ * 这样gray-core可以在本地完成灰度判断，不需要每次调用都发起远程请求
+ */
+public class GrayRoutingSnapshot {
+
+    private static final String ALL = "all";
+
+    private static final String MARGIN = ";";
+
+    /**
+     * 应用名称 -> 该应用的灰度配置（一个应用可以绑定多个灰度分组，保持数据库顺序）
+     */
+    private final Map<String, List<ApplicationEntry>> applications;
+
+    /**
+     * 企业账号 -> 所属灰度分组（多个分组都含有该企业时，取第一个）
+     */
+    private final Map<String, GroupEntry> groupByEa;
+
+    /**
+     * 按比例灰度的分组（保持数据库顺序），企业不在任何分组的企业列表中时，取第一个比例覆盖该企业的分组
+     */
+    private final List<GroupEntry> rolloutGroups;
+
+    /**
+     * 配置版本号，配置服务没有返回版本号时为null
+     */
+    private final Long version;
+
+    /**
+     * 快照的构建时间
+     */
+    private final long loadTime;
+
+    private GrayRoutingSnapshot(Map<String, List<ApplicationEntry>> applications, Map<String, GroupEntry> groupByEa,
+                                List<GroupEntry> rolloutGroups, Long version, long loadTime) {
+        this.applications = applications;
+        this.groupByEa = groupByEa;
+        this.rolloutGroups = rolloutGroups;
+        this.version = version;
+        this.loadTime = loadTime;
+    }
+
+    /**
+     * 根据全量配置构建快照
+     *
+     * @param config 配置服务返回的全量配置
+     * @return 快照
+     */
+    public static GrayRoutingSnapshot build(GrayRoutingConfigResult config) {
+
+        // 先构建分组，应用需要通过分组id找到分组
+        Map<Long, GroupEntry> groups = new HashMap<>();
+        Map<String, GroupEntry> groupByEa = new HashMap<>();
+        List<GroupEntry> rolloutGroups = new ArrayList<>();
+        if (config.getGroupConfigs() != null) {
+            for (GrayApplicationGroupConfigResult groupConfig : config.getGroupConfigs()) {
+                Set<String> fsEas = split(groupConfig.getFsEas());
+                GroupEntry group = new GroupEntry(groupConfig.getGroupName(), groupConfig.getStatus(), fsEas,
+                        groupConfig.getRolloutThreshold(), GrayRollout.saltOf(groupConfig.getId(), groupConfig.getRolloutSalt()));
+                groups.put(groupConfig.getId(), group);
+                if (group.rolloutThreshold > 0) {
+                    rolloutGroups.add(group);
+                }
+
+                for (String fsEa : fsEas) {
+                    if (!groupByEa.containsKey(fsEa)) {
+                        groupByEa.put(fsEa, group);
+                    }
+                }
+            }
+        }
+
+        Map<String, List<ApplicationEntry>> applications = new HashMap<>();
+        if (config.getApplicationInfos() != null) {
+            for (GrayApplicationInfoResult applicationInfo : config.getApplicationInfos()) {
+                GroupEntry group = groups.get(applicationInfo.getGroupId());
+                ApplicationEntry entry = new ApplicationEntry(group, applicationInfo.getStatus(),
+                        IpRangeMatcher.compile(split(applicationInfo.getIpAddress())));
+
+                List<ApplicationEntry> entries = applications.get(applicationInfo.getApplicationName());
+                if (entries == null) {
+                    entries = new ArrayList<>(1);
+                    applications.put(applicationInfo.getApplicationName(), entries);
+                }
+                entries.add(entry);
+            }
+        }
+
+        return new GrayRoutingSnapshot(applications, groupByEa, rolloutGroups, config.getVersion(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * 判断这台机器上、这个服务是否需要灰度，需要的话，返回group
+     * 对应 GrayApplicationHandlerService.getGrayApplicationConfig
+     */
+    public String justGrayAndGetGroup(String applicationName, String ip) {
+        ApplicationEntry entry = first(applicationName);
+        if ((entry == null) || !entry.gray) {
+            return null;
+        }
+        return entry.containsIp(ip) ? entry.groupName : null;
+    }
+
+    /**
+     * 获取某个服务的灰度分组
+     */
+    public String getGrayGroup(String applicationName) {
+        ApplicationEntry entry = first(applicationName);
+        return entry == null ? null : entry.groupName;
+    }
+
+    /**
+     * 获取这台机器上这个服务所在的灰度分组
+     * 对应 GrayApplicationHandlerService.getGrayApplicationConfigNew
+     */
+    public String getGrayGroupByIp(String applicationName, String ip) {
+        ApplicationEntry entry = findByIp(applicationName, ip);
+        return entry == null ? null : entry.groupName;
+    }
+
+    /**
+     * 判断这台机器上、这个服务是否灰度服务
+     */
+    public boolean justGrayByIp(String applicationName, String ip) {
+        ApplicationEntry entry = findByIp(applicationName, ip);
+        return (entry != null) && entry.gray;
+    }
+
+    /**
+     * 判断该企业是否灰度企业
+     * 对应 GrayApplicationHandlerService.checkGrayFsEa
+     */
+    public boolean checkGrayFsEa(String fsEa, String providerApplicationName) {
+        ApplicationEntry entry = first(providerApplicationName);
+        if ((entry == null) || (entry.group == null) || !entry.group.open) {
+            return false;
+        }
+        if (entry.group.allEas) {
+            return true;
+        }
+        // 绝大多数企业不是灰度企业，先用过滤器排除，只有可能在列表中时才查询企业列表；不在列表中的再按比例判断
+        return (entry.group.filter.mightContain(fsEa) && entry.group.fsEas.contains(fsEa)) || entry.group.inRollout(fsEa);
+    }
+
+    /**
+     * 找到该企业所属的分组名称
+     * 对应 GrayApplicationHandlerService.getGrayApplicationGroupConfigByEa
+     */
+    public String getGrayGroupNameByEa(String fsEa) {
+        GroupEntry group = findGroupByEa(fsEa);
+        return group == null ? null : group.name;
+    }
+
+    /**
+     * 判断该企业所属的分组是否已开启
+     * 对应 GrayApplicationHandlerService.classifyGrayFsEas 不指定提供方应用时的判断
+     */
+    public boolean checkGrayFsEaByGroup(String fsEa) {
+        GroupEntry group = findGroupByEa(fsEa);
+        return (group != null) && group.open;
+    }
+
+    private GroupEntry findGroupByEa(String fsEa) {
+        GroupEntry group = groupByEa.get(fsEa);
+        if (group != null) {
+            return group;
+        }
+        for (GroupEntry rolloutGroup : rolloutGroups) {
+            if (rolloutGroup.inRollout(fsEa)) {
+                return rolloutGroup;
+            }
+        }
+        return null;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * 快照是否比给定的版本旧
+     */
+    public boolean isOlderThan(Long otherVersion) {
+        return (otherVersion != null) && ((version == null) || (version < otherVersion));
+    }
+
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    private ApplicationEntry first(String applicationName) {
+        List<ApplicationEntry> entries = applications.get(applicationName);
+        return (entries == null) || entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * 找到ip所在的应用配置，这里只匹配具体的ip或网段（不包括all），与配置服务保持一致
+     */
+    private ApplicationEntry findByIp(String applicationName, String ip) {
+        List<ApplicationEntry> entries = applications.get(applicationName);
+        if ((entries == null) || (ip == null)) {
+            return null;
+        }
+        for (ApplicationEntry entry : entries) {
+            if (entry.ips.matchesAddress(ip)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> split(String value) {
+        if (StringUtils.isBlank(value)) {
+            return Collections.emptySet();
+        }
+
+        Set<String> set = new HashSet<>();
+        for (String item : value.split(MARGIN)) {
+            if (StringUtils.isNotBlank(item)) {
+                set.add(item);
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    private static boolean isOpen(Integer status) {
+        return StatusTypeEnum.OPEN.getTypeCode().equals(status);
+    }
+
+    /**
+     * 灰度服务的一条配置
+     */
+    private static class ApplicationEntry {
+
+        private final GroupEntry group;
+
+        private final String groupName;
+
+        /**
+         * 灰度分组、灰度服务都开启
+         */
+        private final boolean gray;
+
+        /**
+         * 灰度机器：ip、网段或all
+         */
+        private final IpRangeMatcher ips;
+
+        ApplicationEntry(GroupEntry group, Integer applicationStatus, IpRangeMatcher ips) {
+            this.group = group;
+            this.groupName = group == null ? null : group.name;
+            this.gray = (group != null) && group.open && isOpen(applicationStatus);
+            this.ips = ips;
+        }
+
+        boolean containsIp(String ip) {
+            return ips.matches(ip);
+        }
+    }
+
+    /**
+     * 灰度分组
+     */
+    private static class GroupEntry {
+
+        private final String name;
+
+        private final boolean open;
+
+        private final Set<String> fsEas;
+
+        /**
+         * 企业列表的布隆过滤器
+         */
+        private final TenantFilter filter;
+
+        private final boolean allEas;
+
+        /**
+         * 按比例灰度的阈值（万分之一），0表示不按比例灰度
+         */
+        private final int rolloutThreshold;
+
+        private final String rolloutSalt;
+
+        GroupEntry(String name, Integer status, Set<String> fsEas, Integer rolloutThreshold, String rolloutSalt) {
+            this.name = name;
+            this.open = isOpen(status);
+            this.fsEas = fsEas;
+            this.filter = TenantFilter.build(fsEas);
+            this.allEas = fsEas.contains(ALL);
+            this.rolloutThreshold = rolloutThreshold == null ? 0 : rolloutThreshold;
+            this.rolloutSalt = rolloutSalt;
+        }
+
+        boolean inRollout(String fsEa) {
+            return GrayRollout.contains(fsEa, rolloutSalt, rolloutThreshold);
+        }
+    }
+}
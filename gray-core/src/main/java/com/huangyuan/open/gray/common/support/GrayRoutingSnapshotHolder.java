@@ -0,0 +1,455 @@
+package com.huangyuan.open.gray.common.support;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.huangyuan.open.gray.base.result.EserviceResult;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigOperationEnum;
+import com.huangyuan.open.gray.config.api.constant.GrayConfigTypeEnum;
+import com.huangyuan.open.gray.config.api.listener.GrayConfigChangeListener;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayConfigChangesArg;
+import com.huangyuan.open.gray.config.api.model.arg.GetGrayRoutingConfigArg;
+import com.huangyuan.open.gray.config.api.model.event.GrayConfigChangeEvent;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationGroupConfigResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayApplicationInfoResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangeResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayConfigChangesResult;
+import com.huangyuan.open.gray.config.api.model.result.GrayRoutingConfigResult;
+import com.huangyuan.open.gray.config.api.service.GrayApplicationHandlerService;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 灰度路由快照持有者
+ *
+ * 启动时先从本地文件恢复上一次的配置，再与配置服务同步，并订阅配置变更：
+ *  （1）配置变更时，配置服务推送变更事件，收到后立即同步配置
+ *  （2）后台定时重新订阅，订阅返回当前版本号，版本号变化时才同步配置，
+ *       既能补上丢失的推送，也能在配置服务重启后恢复订阅
+ * 已经持有某个版本的配置时，只拉取该版本之后的增量变更；没有配置、或者增量无法追上时，才拉取全量配置。
+ * 负载均衡的热路径上只读取内存中的快照，不再发起远程调用。
+ * 配置服务不可用时，继续使用最后一次拉取成功的快照（last-known-good）；
+ * 快照超过最大过期时间仍未与配置服务确认过，则在读取时触发异步刷新，并打印告警
+ */
+@Component
+public class GrayRoutingSnapshotHolder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrayRoutingSnapshotHolder.class);
+
+    /**
+     * 收到变更事件后，拉取到的配置仍然比事件旧时（配置服务的缓存还没清除），重试的次数和间隔
+     */
+    private static final int MAX_CHANGE_RETRY = 3;
+
+    private static final long CHANGE_RETRY_DELAY_MILLIS = 1000;
+
+    /**
+     * 一次同步中最多拉取的增量页数，剩余的变更留给下一次同步
+     */
+    private static final int MAX_CHANGE_PAGES = 20;
+
+    @Resource
+    private GrayApplicationHandlerService grayApplicationHandlerService;
+
+    /**
+     * 服务名称，用于订阅配置变更
+     */
+    @Value("${dubbo.application.name:}")
+    private String applicationName;
+
+    /**
+     * 是否开启本地快照，关闭时每次都走远程调用（原来的方式）
+     */
+    @Value("${gray.snapshot.enable:true}")
+    private boolean enable;
+
+    /**
+     * 定时检查版本的间隔（秒）
+     */
+    @Value("${gray.snapshot.refreshSeconds:30}")
+    private long refreshSeconds;
+
+    /**
+     * 快照的最大过期时间（秒），超过该时间仍未与配置服务确认过，则在读取时触发异步刷新
+     */
+    @Value("${gray.snapshot.maxStaleSeconds:300}")
+    private long maxStaleSeconds;
+
+    /**
+     * 是否把配置保存到本地文件，重启后从文件中的版本号开始增量同步
+     */
+    @Value("${gray.snapshot.persist:true}")
+    private boolean persist;
+
+    /**
+     * 本地文件路径，不配置时使用 ${user.home}/.gray/{服务名称}-routing.json
+     */
+    @Value("${gray.snapshot.file:}")
+    private String snapshotFile;
+
+    private GrayRoutingConfigStore configStore;
+
+    /**
+     * 当前快照对应的配置，增量变更在此基础上应用
+     */
+    private volatile GrayRoutingConfigResult config;
+
+    private volatile GrayRoutingSnapshot snapshot;
+
+    /**
+     * 最近一次与配置服务确认快照是最新的时间（同步配置成功，或者版本号一致）
+     */
+    private volatile long lastSyncTime;
+
+    /**
+     * 保证同一时刻只有一个刷新任务
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    /**
+     * 上一次触发过期刷新的时间，避免快照过期后每次读取都提交刷新任务
+     */
+    private volatile long lastStaleRefreshTime;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 配置变更监听器，重复订阅时使用同一个实例
+     */
+    private final GrayConfigChangeListener changeListener = new GrayConfigChangeListener() {
+        @Override
+        public void onChange(GrayConfigChangeEvent event) {
+            GrayRoutingSnapshot current = snapshot;
+            if ((current == null) || current.isOlderThan(event.getVersion())) {
+                LOGGER.info("receive gray config change, event={}", event);
+                submitRefresh(event.getVersion(), 0);
+            }
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        if (!enable) {
+            LOGGER.info("gray routing snapshot is disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("gray-snapshot-refresh-%d").setDaemon(true).build());
+
+        // 先从本地文件恢复，配置服务不可用时也有可用的快照；恢复的快照视为过期，读取时会触发刷新
+        configStore = initConfigStore();
+        if (configStore != null) {
+            GrayRoutingConfigResult persisted = configStore.load();
+            if (persisted != null) {
+                config = persisted;
+                snapshot = GrayRoutingSnapshot.build(persisted);
+                LOGGER.info("load gray routing config from file, file={}, config={}", configStore.getFile(), persisted);
+            }
+        }
+
+        // 启动时同步一次，同步失败也不影响启动，GrayHandlerHelper会降级为远程调用
+        refresh();
+
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkVersion();
+            }
+        }, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        if (enable && StringUtils.isNotEmpty(applicationName)) {
+            try {
+                grayApplicationHandlerService.unsubscribeGrayConfigChange(applicationName, changeListener);
+            } catch (Exception e) {
+                LOGGER.warn("unsubscribe gray config change fail, applicationName={}", applicationName, e);
+            }
+        }
+    }
+
+    /**
+     * 获取当前快照
+     *
+     * @return 快照，未开启或者从未加载成功时返回null，调用方需要降级为远程调用
+     */
+    public GrayRoutingSnapshot current() {
+        GrayRoutingSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        long maxStaleMillis = TimeUnit.SECONDS.toMillis(maxStaleSeconds);
+        if ((now - lastSyncTime > maxStaleMillis) && (now - lastStaleRefreshTime > maxStaleMillis)) {
+            lastStaleRefreshTime = now;
+            LOGGER.warn("gray routing snapshot is stale, use last-known-good snapshot, version={}, lastSyncTime={}",
+                    current.getVersion(), lastSyncTime);
+            submitRefresh(null, 0);
+        }
+
+        return current;
+    }
+
+    /**
+     * 与配置服务同步配置，重新构建快照
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            GrayRoutingConfigResult current = config;
+
+            // 优先增量同步，增量无法追上时拉取全量配置
+            GrayRoutingConfigResult latest = null;
+            if ((current != null) && (current.getVersion() != null)) {
+                latest = syncChanges(current);
+            }
+            if (latest == null) {
+                latest = fetchConfig();
+            }
+
+            if (latest == null) {
+                LOGGER.warn("refresh gray routing snapshot fail, keep last-known-good snapshot, version={}",
+                        current == null ? null : current.getVersion());
+                return;
+            }
+
+            if ((latest != current) || (snapshot == null)) {
+                config = latest;
+                snapshot = GrayRoutingSnapshot.build(latest);
+                if (configStore != null) {
+                    configStore.save(latest);
+                }
+            }
+            lastSyncTime = System.currentTimeMillis();
+
+        } catch (Exception e) {
+            LOGGER.error("refresh gray routing snapshot fail, keep last-known-good snapshot", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * 拉取全量配置
+     *
+     * @return 全量配置，拉取失败时返回null
+     */
+    private GrayRoutingConfigResult fetchConfig() {
+        GetGrayRoutingConfigArg arg = new GetGrayRoutingConfigArg();
+        arg.setApplicationName(applicationName);
+        EserviceResult<GrayRoutingConfigResult> result = grayApplicationHandlerService.getGrayRoutingConfig(arg);
+
+        if ((result == null) || !result.isSuccess() || (result.getData() == null)) {
+            LOGGER.warn("fetch gray routing config fail, result={}", result);
+            return null;
+        }
+        return result.getData();
+    }
+
+    /**
+     * 拉取当前版本之后的增量变更，并应用到当前配置上
+     *
+     * @param current 当前配置
+     * @return 没有变更时返回current，有变更时返回新的配置；需要拉取全量配置（或者拉取失败）时返回null
+     */
+    private GrayRoutingConfigResult syncChanges(GrayRoutingConfigResult current) {
+        try {
+            long version = current.getVersion();
+            Map<Long, GrayApplicationInfoResult> applicationInfos = null;
+            Map<Long, GrayApplicationGroupConfigResult> groupConfigs = null;
+
+            for (int page = 0; page < MAX_CHANGE_PAGES; page++) {
+                GetGrayConfigChangesArg arg = new GetGrayConfigChangesArg();
+                arg.setSinceVersion(version);
+                arg.setApplicationName(applicationName);
+                EserviceResult<GrayConfigChangesResult> result = grayApplicationHandlerService.getGrayConfigChangesSince(arg);
+
+                if ((result == null) || !result.isSuccess() || (result.getData() == null)) {
+                    LOGGER.warn("sync gray config changes fail, fetch full config, version={}, result={}", version, result);
+                    return null;
+                }
+
+                GrayConfigChangesResult changes = result.getData();
+                if (Boolean.TRUE.equals(changes.getFullSyncRequired())) {
+                    LOGGER.info("sync gray config changes : full sync required, version={}", version);
+                    return null;
+                }
+
+                if (CollectionUtils.isNotEmpty(changes.getChanges())) {
+                    if (applicationInfos == null) {
+                        applicationInfos = indexApplicationInfos(current);
+                        groupConfigs = indexGroupConfigs(current);
+                    }
+                    for (GrayConfigChangeResult change : changes.getChanges()) {
+                        applyChange(change, applicationInfos, groupConfigs);
+                    }
+                }
+
+                if (changes.getVersion() != null) {
+                    version = changes.getVersion();
+                }
+                if (!Boolean.TRUE.equals(changes.getHasMore())) {
+                    break;
+                }
+            }
+
+            if (applicationInfos == null) {
+                return current;
+            }
+
+            GrayRoutingConfigResult latest = new GrayRoutingConfigResult();
+            latest.setVersion(version);
+            latest.setApplicationInfos(new ArrayList<>(applicationInfos.values()));
+            latest.setGroupConfigs(new ArrayList<>(groupConfigs.values()));
+            LOGGER.info("sync gray config changes success, from={}, to={}", current.getVersion(), version);
+            return latest;
+
+        } catch (Exception e) {
+            // 配置服务不支持增量接口时也会走到这里，降级为拉取全量配置
+            LOGGER.warn("sync gray config changes fail, fetch full config, version={}", current.getVersion(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 应用一条变更，只有灰度服务、灰度分组参与灰度路由
+     */
+    private void applyChange(GrayConfigChangeResult change, Map<Long, GrayApplicationInfoResult> applicationInfos,
+                             Map<Long, GrayApplicationGroupConfigResult> groupConfigs) {
+        boolean delete = GrayConfigOperationEnum.DELETE.getTypeCode().equals(change.getOperation());
+
+        if (GrayConfigTypeEnum.APPLICATION_INFO.getTypeCode().equals(change.getConfigType())) {
+            if (delete || (change.getApplicationInfo() == null)) {
+                applicationInfos.remove(change.getConfigId());
+            } else {
+                applicationInfos.put(change.getConfigId(), change.getApplicationInfo());
+            }
+
+        } else if (GrayConfigTypeEnum.APPLICATION_GROUP.getTypeCode().equals(change.getConfigType())) {
+            if (delete || (change.getGroupConfig() == null)) {
+                groupConfigs.remove(change.getConfigId());
+            } else {
+                groupConfigs.put(change.getConfigId(), change.getGroupConfig());
+            }
+        }
+    }
+
+    /**
+     * 按id排序，与配置服务查询全量配置的顺序保持一致
+     */
+    private Map<Long, GrayApplicationInfoResult> indexApplicationInfos(GrayRoutingConfigResult current) {
+        Map<Long, GrayApplicationInfoResult> map = new TreeMap<>();
+        if (current.getApplicationInfos() != null) {
+            for (GrayApplicationInfoResult applicationInfo : current.getApplicationInfos()) {
+                map.put(applicationInfo.getId(), applicationInfo);
+            }
+        }
+        return map;
+    }
+
+    private Map<Long, GrayApplicationGroupConfigResult> indexGroupConfigs(GrayRoutingConfigResult current) {
+        Map<Long, GrayApplicationGroupConfigResult> map = new TreeMap<>();
+        if (current.getGroupConfigs() != null) {
+            for (GrayApplicationGroupConfigResult groupConfig : current.getGroupConfigs()) {
+                map.put(groupConfig.getId(), groupConfig);
+            }
+        }
+        return map;
+    }
+
+    private GrayRoutingConfigStore initConfigStore() {
+        if (!persist) {
+            return null;
+        }
+
+        if (StringUtils.isNotBlank(snapshotFile)) {
+            return new GrayRoutingConfigStore(new File(snapshotFile));
+        }
+        if (StringUtils.isNotEmpty(applicationName)) {
+            return new GrayRoutingConfigStore(new File(System.getProperty("user.home"),
+                    ".gray" + File.separator + applicationName + "-routing.json"));
+        }
+        return null;
+    }
+
+    /**
+     * 重新订阅配置变更，并根据返回的版本号判断是否需要同步配置
+     * 不支持订阅的配置服务（或者没有配置服务名称），退化为每次都同步配置
+     */
+    private void checkVersion() {
+        if (StringUtils.isEmpty(applicationName)) {
+            refresh();
+            return;
+        }
+
+        try {
+            EserviceResult<Long> result = grayApplicationHandlerService.subscribeGrayConfigChange(applicationName, changeListener);
+            if ((result == null) || !result.isSuccess() || (result.getData() == null)) {
+                LOGGER.warn("subscribe gray config change fail, refresh directly, result={}", result);
+                refresh();
+                return;
+            }
+
+            GrayRoutingSnapshot current = snapshot;
+            if ((current == null) || !result.getData().equals(current.getVersion())) {
+                refresh();
+            } else {
+                lastSyncTime = System.currentTimeMillis();
+            }
+
+        } catch (Exception e) {
+            LOGGER.warn("subscribe gray config change fail, refresh directly, applicationName={}", applicationName, e);
+            refresh();
+        }
+    }
+
+    /**
+     * 异步同步配置
+     *
+     * @param expectVersion 期望同步到的版本号，拉取到的配置比该版本旧时，稍后重试；为null时不检查
+     * @param retryTimes    已经重试的次数
+     */
+    private void submitRefresh(final Long expectVersion, final int retryTimes) {
+        if ((scheduler == null) || scheduler.isShutdown()) {
+            return;
+        }
+
+        long delay = retryTimes == 0 ? 0 : CHANGE_RETRY_DELAY_MILLIS;
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+
+                GrayRoutingSnapshot current = snapshot;
+                if ((current != null) && current.isOlderThan(expectVersion) && (retryTimes < MAX_CHANGE_RETRY)) {
+                    submitRefresh(expectVersion, retryTimes + 1);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
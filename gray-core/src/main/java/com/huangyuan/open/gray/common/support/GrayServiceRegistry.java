@@ -0,0 +1,43 @@
+package com.huangyuan.open.gray.common.support;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 服务接口 -> 提供方服务名称
+ *
+ * 消费方的invoker url上的application是消费方的名称（dubbo合并url时覆盖了提供方的application），
+ * 因此由GrayComponent筛选时登记，GrayLatencyFilter记录调用结果时通过接口找到提供方服务
+ */
+@Component
+public class GrayServiceRegistry {
+
+    private final ConcurrentMap<String, String> applicationByService = new ConcurrentHashMap<>();
+
+    /**
+     * 登记服务接口所属的提供方服务
+     *
+     * @param service                 服务接口
+     * @param providerApplicationName 提供方服务名称
+     */
+    public void register(String service, String providerApplicationName) {
+        if ((service == null) || (providerApplicationName == null)) {
+            return;
+        }
+        if (!providerApplicationName.equals(applicationByService.get(service))) {
+            applicationByService.put(service, providerApplicationName);
+        }
+    }
+
+    /**
+     * 获取服务接口所属的提供方服务
+     *
+     * @param service 服务接口
+     * @return 提供方服务名称，没有登记时返回null
+     */
+    public String getProviderApplicationName(String service) {
+        return service == null ? null : applicationByService.get(service);
+    }
+}
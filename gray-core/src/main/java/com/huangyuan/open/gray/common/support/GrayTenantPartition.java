@@ -0,0 +1,70 @@
+package com.huangyuan.open.gray.common.support;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一批企业按是否灰度分开的结果，见GrayHandlerHelper.partitionByGray
+ * 各部分中企业的顺序与传入的顺序一致
+ */
+public class GrayTenantPartition {
+
+    /**
+     * 灰度企业所在分组的key（企业属于灰度服务、但不属于任何分组时使用）
+     */
+    public static final String NO_GROUP = "";
+
+    /**
+     * 灰度企业，按分组名称分开
+     */
+    private final Map<String, List<String>> grayByGroup = new LinkedHashMap<>();
+
+    /**
+     * 正式企业
+     */
+    private final List<String> formal = new ArrayList<>();
+
+    void add(String fsEa, boolean gray, String groupName) {
+        if (!gray) {
+            formal.add(fsEa);
+            return;
+        }
+        String key = groupName == null ? NO_GROUP : groupName;
+        List<String> fsEas = grayByGroup.get(key);
+        if (fsEas == null) {
+            fsEas = new ArrayList<>();
+            grayByGroup.put(key, fsEas);
+        }
+        fsEas.add(fsEa);
+    }
+
+    public Map<String, List<String>> getGrayByGroup() {
+        return grayByGroup;
+    }
+
+    /**
+     * 全部灰度企业
+     */
+    public List<String> getGray() {
+        List<String> gray = new ArrayList<>();
+        for (List<String> fsEas : grayByGroup.values()) {
+            gray.addAll(fsEas);
+        }
+        return gray;
+    }
+
+    public List<String> getFormal() {
+        return formal;
+    }
+
+    @Override
+    public String toString() {
+        return "GrayTenantPartition{" +
+                "grayGroups=" + grayByGroup.keySet() +
+                ", gray=" + getGray().size() +
+                ", formal=" + formal.size() +
+                '}';
+    }
+}
@@ -6,6 +6,7 @@ import com.alibaba.dubbo.rpc.Invoker;
 import com.alibaba.dubbo.rpc.cluster.loadbalance.LeastActiveLoadBalance;
 import com.huangyuan.open.gray.common.component.api.CustomLoadBalance;
 import com.huangyuan.open.gray.common.component.GrayComponent;
+import com.huangyuan.open.gray.common.component.PeakEwmaSelector;
 import com.huangyuan.open.gray.common.utils.SpringContextUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,10 @@ public class ProxyLoadBalance extends LeastActiveLoadBalance implements CustomLo
 
     @Override
     public<T> Invoker<T> superFilterSelect(List<Invoker<T>> invokers, URL url, Invocation invocation) {
+        // 开启peakewma时按响应时间选择，否则使用leastactive
+        if (PeakEwmaSelector.isEnabled(url, invocation)) {
+            return PeakEwmaSelector.select(invokers);
+        }
         return super.doSelect(invokers, url, invocation);
     }
 }
\ No newline at end of file